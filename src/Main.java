@@ -1,6 +1,10 @@
 import java.util.ArrayList;
 
-import landscape.Landscape;
+import landscape.LandscapePipeline;
+import landscape.analysis.BlockAnalyzer;
+import landscape.analysis.ExhaustiveAnalyzer;
+import landscape.analysis.LandscapeAnalyzer;
+import landscape.analysis.SampledAnalyzer;
 import simulation.Alliance;
 import simulation.Case;
 import simulation.ClosedInnovation;
@@ -11,6 +15,7 @@ import simulation.Simulator.SimulatorType;
 import util.Globals;
 import agent.Innovator;
 import agent.Provider;
+import agent.ProviderIndex;
 
 public class Main {
 	public static void main(String[] args) {
@@ -21,42 +26,71 @@ public class Main {
 		}
 		ArrayList<Case> cases = Globals.reader.read(args[0]);
 		for (Case c : cases) {
+			LandscapePipeline pipeline = new LandscapePipeline(c.getInf(),
+					c.getLandscapeSettings(), c.getRuns());
 			for (int i = 0; i < c.getRuns(); i++) {
-				Globals.setSeed(i);
-				Globals.ldscp = new Landscape(c.getInf());
+				Globals.ldscp = pipeline.startRun(i);
+				if (c.getAnalysisSettings() != null) {
+					LandscapeAnalyzer analyzer = null;
+					switch (c.getAnalysisSettings().getModeFor(Globals.ldscp)) {
+					case EXHAUSTIVE:
+						analyzer = new ExhaustiveAnalyzer(Globals.ldscp,
+								c.getAnalysisSettings(), i);
+						break;
+					case BLOCK:
+						analyzer = new BlockAnalyzer(Globals.ldscp,
+								c.getAnalysisSettings(), i);
+						break;
+					case SAMPLED:
+						analyzer = new SampledAnalyzer(Globals.ldscp,
+								c.getAnalysisSettings(), i);
+						break;
+					}
+					analyzer.analyze().write(
+							analyzer.constructOutputFileName());
+				}
 				Globals.innovatorList = c.getInnovatorList();
 				Globals.providerList = c.getProviderList();
+				Globals.innovators = c.getInnovators();
+				Globals.providers = c.getProviders();
 				for (SimulatorType type : c.getTypeSet()) {
+					// every strategy starts on the landscape as it was built
+					Globals.ldscp.undoShocks();
 					for (Innovator innovator : Globals.innovatorList) {
 						innovator.reset();
 					}
 					for (Provider provider : Globals.providerList) {
 						provider.reset();
 					}
+					Globals.providerIndex = new ProviderIndex(Globals.providers);
 					Simulator s = null;
 					switch (type) {
 					case CLOSED:
 						s = new ClosedInnovation();
-						s.startSimulation();
 						break;
 					case LICENSING:
 						s = new LicensingSearch();
-						s.startSimulation();
 						break;
 					case OUTSOURCING:
 						s = new Outsourcing();
-						s.startSimulation();
 						break;
 					case ALLIANCE_MAX:
 						s = new Alliance(true);
-						s.startSimulation();
 						break;
 					case ALLIANCE_MIN:
 						s = new Alliance(false);
-						s.startSimulation();
 						break;
 					}
+					s.setScheduleType(c.getScheduleType());
+					s.startSimulation();
+				}
+				if (c.getLandscapeSettings().isCacheStatisticsOn()
+						&& !Globals.ldscp.hasMemo()) {
+					System.out.println("CACHE\t" + i + "\t"
+							+ Globals.ldscp.getCache());
 				}
+				Globals.ldscp = null;
+				pipeline.finishRun();
 			}
 		}
 	}
@@ -1,7 +1,5 @@
 package agent;
 
-import java.util.HashSet;
-
 import util.Globals;
 
 public abstract class Agent {
@@ -11,16 +9,26 @@ public abstract class Agent {
 
 	protected int myId;
 	protected int myProcessingPower;
-	protected long myLocId;
-	protected float myScore;
-	protected long myTimestamp;
-	protected SearchType mySearchType;
-	protected HashSet<Long> myVisitedLocIds;
-	protected HashSet<Long> myUnvisitedNeighourLocIds;
+	/**
+	 * the population that keeps the state of the agent, and the slot of the
+	 * agent in it, or null and -1 while the agent is detached; the agent
+	 * object is a view of that slot
+	 */
+	AgentPopulation myPopulation;
+	int mySlot;
+	protected VisitedLocationSet myVisitedLocIds;
+	protected NeighbourSampler myNeighbourSampler;
+	/**
+	 * the fitness contribution of each element at myContributionsLocId, which
+	 * lets neighbours be scored incrementally
+	 */
+	private float myContributions[];
+	private long myContributionsLocId;
 
 	/**
 	 * Create an agent object with the given processing power. There are two
-	 * subclasses, Innovator and Provider.
+	 * subclasses, Innovator and Provider. The agent is detached, i.e. it has
+	 * no state, until it is added to the population of a case.
 	 * 
 	 * @param processingPower
 	 *            a non-negative integer, which indicates the maximum number of
@@ -29,12 +37,12 @@ public abstract class Agent {
 	public Agent(int processingPower) {
 		this.myId = -1;
 		this.myProcessingPower = processingPower;
-		this.myLocId = -1L;
-		this.myScore = -1f;
-		this.myTimestamp = 0;
-		this.mySearchType = null;
-		this.myVisitedLocIds = new HashSet<Long>();
-		this.myUnvisitedNeighourLocIds = new HashSet<Long>();
+		this.myPopulation = null;
+		this.mySlot = -1;
+		this.myVisitedLocIds = new VisitedLocationSet();
+		this.myNeighbourSampler = new NeighbourSampler();
+		this.myContributions = null;
+		this.myContributionsLocId = -1L;
 	}
 
 	/**
@@ -63,16 +71,18 @@ public abstract class Agent {
 	 * @return the agent's location id
 	 */
 	public long getLocId() {
-		return this.myLocId;
+		return this.myPopulation.getLocId(this.mySlot);
 	}
 
 	/**
-	 * Return the performance of agent's location id.
+	 * Return the performance of agent's location id in the current state of
+	 * the landscape.
 	 * 
 	 * @return the performance of agent's location id
 	 */
 	public float getScore() {
-		return this.myScore;
+		this.refreshScore();
+		return this.myPopulation.getScore(this.mySlot);
 	}
 
 	/**
@@ -82,7 +92,16 @@ public abstract class Agent {
 	 * @return the agent's search type
 	 */
 	public SearchType getSearchType() {
-		return this.mySearchType;
+		return this.myPopulation.getSearchType(this.mySlot);
+	}
+
+	/**
+	 * Return the population that keeps the state of the agent.
+	 * 
+	 * @return the population of the agent
+	 */
+	public AgentPopulation getPopulation() {
+		return this.myPopulation;
 	}
 
 	/**
@@ -105,32 +124,184 @@ public abstract class Agent {
 	 *            a new location id
 	 */
 	public void updateLocIdAndScore(long newLocId) {
-		this.myLocId = newLocId;
-		this.myScore = Globals.ldscp.getScoreOfLocId(this.myLocId);
+		this.setLocIdAndScore(newLocId,
+				Globals.ldscp.getScoreOfLocId(newLocId));
+		int epoch = Globals.ldscp.getEpoch();
+		if (this.myPopulation.getScoreEpoch(this.mySlot) != epoch) {
+			// the contributions may be of the same location id, but stale
+			this.myPopulation.setScoreEpoch(this.mySlot, epoch);
+			this.myContributionsLocId = ~newLocId;
+		}
+	}
+
+	/**
+	 * Set agent's location id and its performance to the given ones.
+	 * 
+	 * @param locId
+	 *            a location id
+	 * @param score
+	 *            the performance of the location id
+	 */
+	protected void setLocIdAndScore(long locId, float score) {
+		this.myPopulation.setLocId(this.mySlot, locId);
+		this.myPopulation.setScore(this.mySlot, score);
+	}
+
+	/**
+	 * Set agent's search type.
+	 * 
+	 * @param type
+	 *            a search type, or null
+	 */
+	protected void setSearchType(SearchType type) {
+		this.myPopulation.setSearchType(this.mySlot, type);
+	}
+
+	/**
+	 * Return agent's time stamp.
+	 * 
+	 * @return agent's time stamp
+	 */
+	public long getTimestamp() {
+		return this.myPopulation.getTimestamp(this.mySlot);
+	}
+
+	/**
+	 * Re-evaluate agent's performance and drop its fitness contributions if
+	 * the landscape has been shocked since they were computed. Agents are
+	 * thus brought up to date lazily, when they are next looked at, rather
+	 * than all at once by the shock.
+	 */
+	protected void refreshScore() {
+		int epoch = Globals.ldscp.getEpoch();
+		if (this.myPopulation.getScoreEpoch(this.mySlot) != epoch) {
+			long locId = this.getLocId();
+			this.myPopulation.setScore(this.mySlot,
+					Globals.ldscp.getScoreOfLocId(locId));
+			this.myPopulation.setScoreEpoch(this.mySlot, epoch);
+			this.myContributionsLocId = ~locId;
+		}
 	}
 
 	/**
 	 * Initialize agent's location with a random position, update its
 	 * corresponding performance, reset time stamp to zero, reset search type to
-	 * null, reset partner agent information, reset searching information.
+	 * null, reset partner agent information, reset searching information. The
+	 * neighbour sampler and the array of fitness contributions are reused.
 	 */
 	public void reset() {
-		this.myLocId = Globals.randomGen
-				.nextLong(1 << Globals.ldscp.getInfN() + 1);
-		this.myScore = Globals.ldscp.getScoreOfLocId(this.myLocId);
-		this.myTimestamp = 0;
-		this.mySearchType = null;
-		this.myVisitedLocIds = new HashSet<Long>();
-		this.myUnvisitedNeighourLocIds = new HashSet<Long>();
+		int n = Globals.ldscp.getInfN();
+		long locId;
+		if (n + 1 < 63) {
+			locId = Globals.randomGen.nextLong(1L << n + 1);
+		} else {
+			// the bound would overflow, so draw N bits directly
+			locId = Globals.randomGen.nextLong() & (-1L >>> (64 - n));
+		}
+		this.setLocIdAndScore(locId, Globals.ldscp.getScoreOfLocId(locId));
+		this.myPopulation.setScoreEpoch(this.mySlot, Globals.ldscp.getEpoch());
+		this.myPopulation.setTimestamp(this.mySlot, 0);
+		this.setSearchType(null);
+		this.myPopulation.setSearchMask(this.mySlot, 0L);
+		this.myVisitedLocIds.clear();
+		this.myNeighbourSampler.clear();
+		this.myPopulation.setHasUnvisitedNeighbour(this.mySlot, false);
+		if (this.myContributions == null || this.myContributions.length != n) {
+			this.myContributions = new float[n];
+		}
+		// any value other than the location id, since every long is a valid
+		// location id when N = 64
+		this.myContributionsLocId = ~locId;
 	}
 
 	/**
-	 * Return true if the set of unvisited neighour locations is not empty.
+	 * Return the fitness value of the given location id, which is usually a
+	 * neighbour of the agent's location id. The value is computed
+	 * incrementally from the fitness contributions at the agent's location id,
+	 * so only the contributions that depend on the differing elements are
+	 * looked up. The result is the same as Landscape.getScoreOfLocId().
 	 * 
-	 * @return true if the set of unvisited neighour locations is not empty
+	 * @param locId
+	 *            a location id
+	 * @return the fitness value of the given location id
+	 */
+	protected float getScoreOfNeighbour(long locId) {
+		this.refreshScore();
+		long baseLocId = this.getLocId();
+		if (this.myContributionsLocId != baseLocId) {
+			Globals.ldscp.computeContributions(baseLocId, this.myContributions);
+			this.myContributionsLocId = baseLocId;
+		}
+		return Globals.ldscp.getScoreOfFlip(baseLocId, this.myContributions,
+				baseLocId ^ locId);
+	}
+
+	/**
+	 * Start walking the neighbourhood of the agent's location id in the
+	 * elements of the given mask with the given processing power, with the
+	 * agent's location id as the only visited one. The visited set and the
+	 * neighbour sampler are reused, not reallocated. The mask becomes the
+	 * search mask of the agent in its population.
+	 * 
+	 * @param mask
+	 *            a bit mask of element indices, which indicates the changeable
+	 *            elements in a configuration
+	 * @param processingPower
+	 *            a non-negative integer, which indicates the maximum number of
+	 *            changes to a configuration
+	 */
+	protected void startNeighbourhood(long mask, int processingPower) {
+		long locId = this.getLocId();
+		this.myPopulation.setSearchMask(this.mySlot, mask);
+		this.myVisitedLocIds.reset(mask);
+		this.myVisitedLocIds.add(locId);
+		this.myNeighbourSampler.start(locId, mask, processingPower,
+				Globals.randomGen.nextLong());
+		this.updateHasUnvisitedNeighbour();
+	}
+
+	/**
+	 * Take one search step: visit the next unvisited neighbour, move there if
+	 * it is at least as good as the current location, and look ahead whether
+	 * another unvisited neighbour is left. The time stamp is not changed.
+	 * 
+	 * @return the score of the visited neighbour
+	 */
+	protected float stepToNeighbour() {
+		// pick one candidate randomly
+		long candidateNeighbour = this.myNeighbourSampler
+				.next(this.myVisitedLocIds);
+		// put the candidate in to visited set
+		this.myVisitedLocIds.add(candidateNeighbour);
+		// compare and pick the better one
+		float newScore = this.getScoreOfNeighbour(candidateNeighbour);
+		if (newScore >= this.myPopulation.getScore(this.mySlot)) {
+			this.setLocIdAndScore(candidateNeighbour, newScore);
+			this.myNeighbourSampler.moveTo(candidateNeighbour,
+					Globals.randomGen.nextLong());
+		}
+		this.updateHasUnvisitedNeighbour();
+		return newScore;
+	}
+
+	/**
+	 * Record in the population whether the neighbourhood of the current
+	 * search has an unvisited location. It must be called whenever the
+	 * visited set or the neighbour sampler changes.
+	 */
+	protected void updateHasUnvisitedNeighbour() {
+		this.myPopulation.setHasUnvisitedNeighbour(this.mySlot,
+				this.myNeighbourSampler.hasNext(this.myVisitedLocIds));
+	}
+
+	/**
+	 * Return true if the neighbourhood of the current search has a location
+	 * that has not been visited yet.
+	 * 
+	 * @return true if there is an unvisited neighbour location
 	 */
 	public boolean hasUnvisitedNeighbour() {
-		return !this.myUnvisitedNeighourLocIds.isEmpty();
+		return this.myPopulation.hasUnvisitedNeighbour(this.mySlot);
 	}
 
 	/**
@@ -153,7 +324,27 @@ public abstract class Agent {
 	 * Agent increases its time stamp by 1.
 	 */
 	public void waitAndDoNothing() {
-		this.myTimestamp++;
+		this.tick();
+	}
+
+	/**
+	 * Agent increases its time stamp by the given number of rounds at once, as
+	 * if it had waited and done nothing in each of them.
+	 *
+	 * @param rounds
+	 *            a non-negative integer, which is the number of rounds
+	 */
+	public void waitAndDoNothing(int rounds) {
+		this.myPopulation.setTimestamp(this.mySlot,
+				this.myPopulation.getTimestamp(this.mySlot) + rounds);
+	}
+
+	/**
+	 * Increase agent's time stamp by 1.
+	 */
+	protected void tick() {
+		this.myPopulation.setTimestamp(this.mySlot,
+				this.myPopulation.getTimestamp(this.mySlot) + 1);
 	}
 
 	@Override
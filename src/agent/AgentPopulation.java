@@ -0,0 +1,418 @@
+package agent;
+
+import java.util.ArrayList;
+
+import agent.Agent.SearchType;
+
+/**
+ * The state of a population of agents, kept in parallel primitive arrays
+ * indexed by agent id rather than in one object per agent. The simulators
+ * scan these arrays linearly, e.g. to find out whether all agents are done,
+ * without touching the agent objects; an Agent object is only a thin view of
+ * its slot, which also keeps the search machinery of the agent (its visited
+ * locations, its neighbour sampler and its fitness contributions).
+ *
+ * A case keeps one population of innovators and one of providers. An agent
+ * starts detached, without a population and with slot -1, and gets its
+ * state when it is added to a population.
+ */
+public class AgentPopulation {
+	/**
+	 * the search type code of an agent that has not started any search
+	 */
+	public final static byte NO_SEARCH = -1;
+	private final static SearchType SEARCH_TYPES[] = SearchType.values();
+
+	private Agent myAgents[];
+	private int mySize;
+	private long myLocIds[];
+	private float myScores[];
+	/**
+	 * the epoch of the landscape in which each score was computed
+	 */
+	private int myScoreEpochs[];
+	private long myTimestamps[];
+	/**
+	 * the ordinal of each search type, or AgentPopulation.NO_SEARCH
+	 */
+	private byte mySearchTypes[];
+	/**
+	 * the mask of the elements changed by each current search, as returned by
+	 * Landscape.getElementMask()
+	 */
+	private long mySearchMasks[];
+	/**
+	 * the id of each partner, -1 for none; only innovators have one
+	 */
+	private int myPartnerIds[];
+	private boolean myHasSetPartners[];
+	/**
+	 * whether the neighbourhood of each current search has an unvisited
+	 * location, kept up to date by the agents whenever they search
+	 */
+	private boolean myHasUnvisitedNeighbours[];
+	/**
+	 * the slots whose scores have changed since they were last polled, and
+	 * whether each slot is among them; null while score changes are not
+	 * tracked
+	 */
+	private int myChangedSlots[];
+	private boolean myIsChanged[];
+	private int myChangedCount;
+
+	/**
+	 * Create an empty population with room for the given number of agents.
+	 *
+	 * @param capacity
+	 *            a non-negative integer, which is the maximum number of
+	 *            agents
+	 */
+	public AgentPopulation(int capacity) {
+		this.myAgents = new Agent[capacity];
+		this.mySize = 0;
+		this.myLocIds = new long[capacity];
+		this.myScores = new float[capacity];
+		this.myScoreEpochs = new int[capacity];
+		this.myTimestamps = new long[capacity];
+		this.mySearchTypes = new byte[capacity];
+		this.mySearchMasks = new long[capacity];
+		this.myPartnerIds = new int[capacity];
+		this.myHasSetPartners = new boolean[capacity];
+		this.myHasUnvisitedNeighbours = new boolean[capacity];
+		this.myChangedSlots = null;
+		this.myIsChanged = null;
+		this.myChangedCount = 0;
+	}
+
+	/**
+	 * Create a population of the given agents, whose ids must be their
+	 * indices in the list. Every agent becomes a view of its slot in the new
+	 * population.
+	 *
+	 * @param agents
+	 *            a list of agent objects
+	 */
+	public AgentPopulation(ArrayList<? extends Agent> agents) {
+		this(agents.size());
+		for (Agent agent : agents) {
+			this.add(agent);
+		}
+	}
+
+	/**
+	 * Add the given agent to the population. Its slot is the next free one. A
+	 * detached agent starts with an empty state there; the state of an agent
+	 * of another population is moved there.
+	 *
+	 * @param agent
+	 *            an agent object
+	 * @return the slot of the agent
+	 */
+	int add(Agent agent) {
+		int slot = this.mySize++;
+		this.myAgents[slot] = agent;
+		if (agent.myPopulation == null) {
+			this.myLocIds[slot] = -1L;
+			this.myScores[slot] = -1f;
+			this.mySearchTypes[slot] = NO_SEARCH;
+			this.myPartnerIds[slot] = -1;
+		} else {
+			AgentPopulation from = agent.myPopulation;
+			int fromSlot = agent.mySlot;
+			this.myLocIds[slot] = from.myLocIds[fromSlot];
+			this.myScores[slot] = from.myScores[fromSlot];
+			this.myScoreEpochs[slot] = from.myScoreEpochs[fromSlot];
+			this.myTimestamps[slot] = from.myTimestamps[fromSlot];
+			this.mySearchTypes[slot] = from.mySearchTypes[fromSlot];
+			this.mySearchMasks[slot] = from.mySearchMasks[fromSlot];
+			this.myPartnerIds[slot] = from.myPartnerIds[fromSlot];
+			this.myHasSetPartners[slot] = from.myHasSetPartners[fromSlot];
+			this.myHasUnvisitedNeighbours[slot] = from.myHasUnvisitedNeighbours[fromSlot];
+		}
+		agent.myPopulation = this;
+		agent.mySlot = slot;
+		return slot;
+	}
+
+	/**
+	 * Return the number of agents.
+	 *
+	 * @return the number of agents
+	 */
+	public int size() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an integer between 0 and size-1 (inclusive), which is also
+	 *            the agent id
+	 * @return the agent of the given slot
+	 */
+	public Agent get(int slot) {
+		return this.myAgents[slot];
+	}
+
+	/**
+	 * Return the location id of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the location id of the agent
+	 */
+	public long getLocId(int slot) {
+		return this.myLocIds[slot];
+	}
+
+	/**
+	 * Set the location id of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param locId
+	 *            a location id
+	 */
+	void setLocId(int slot, long locId) {
+		this.myLocIds[slot] = locId;
+	}
+
+	/**
+	 * Return the score of the agent of the given slot as it was last
+	 * computed, which may be of an earlier epoch of the landscape; see
+	 * Agent.getScore() for the current one.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the last computed score of the agent
+	 */
+	public float getScore(int slot) {
+		return this.myScores[slot];
+	}
+
+	/**
+	 * Set the score of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param score
+	 *            the fitness value of the location of the agent
+	 */
+	void setScore(int slot, float score) {
+		this.myScores[slot] = score;
+		if (this.myIsChanged != null && !this.myIsChanged[slot]) {
+			this.myIsChanged[slot] = true;
+			this.myChangedSlots[this.myChangedCount++] = slot;
+		}
+	}
+
+	/**
+	 * Start tracking which scores change, e.g. to keep an index of the agents
+	 * by score up to date; see AgentPopulation.pollChangedSlot(). Changes made
+	 * before are forgotten.
+	 */
+	public void trackScoreChanges() {
+		if (this.myIsChanged == null) {
+			this.myChangedSlots = new int[this.myAgents.length];
+			this.myIsChanged = new boolean[this.myAgents.length];
+		}
+		while (this.pollChangedSlot() >= 0) {
+		}
+	}
+
+	/**
+	 * Return a slot whose score has changed since it was last polled, or -1
+	 * if there is none. Score changes must be tracked; see
+	 * AgentPopulation.trackScoreChanges().
+	 *
+	 * @return a slot whose score has changed, or -1
+	 */
+	public int pollChangedSlot() {
+		if (this.myChangedCount == 0) {
+			return -1;
+		}
+		int slot = this.myChangedSlots[--this.myChangedCount];
+		this.myIsChanged[slot] = false;
+		return slot;
+	}
+
+	/**
+	 * Return the epoch of the landscape in which the score of the agent of the
+	 * given slot was computed.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the epoch of the score of the agent
+	 */
+	int getScoreEpoch(int slot) {
+		return this.myScoreEpochs[slot];
+	}
+
+	/**
+	 * Set the epoch of the landscape in which the score of the agent of the
+	 * given slot was computed.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param epoch
+	 *            an epoch of the landscape
+	 */
+	void setScoreEpoch(int slot, int epoch) {
+		this.myScoreEpochs[slot] = epoch;
+	}
+
+	/**
+	 * Return the time stamp of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the time stamp of the agent
+	 */
+	public long getTimestamp(int slot) {
+		return this.myTimestamps[slot];
+	}
+
+	/**
+	 * Set the time stamp of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param timestamp
+	 *            a non-negative long
+	 */
+	void setTimestamp(int slot, long timestamp) {
+		this.myTimestamps[slot] = timestamp;
+	}
+
+	/**
+	 * Return the search type of the agent of the given slot, or null if it
+	 * has not started any search.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the search type of the agent, or null
+	 */
+	public SearchType getSearchType(int slot) {
+		byte code = this.mySearchTypes[slot];
+		return (code == NO_SEARCH ? null : SEARCH_TYPES[code]);
+	}
+
+	/**
+	 * Return true if the agent of the given slot is in a search of the given
+	 * type, which may be null; cheaper than comparing
+	 * AgentPopulation.getSearchType().
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param type
+	 *            a search type, or null
+	 * @return true if the agent is in a search of the given type
+	 */
+	public boolean isSearching(int slot, SearchType type) {
+		return this.mySearchTypes[slot] == (type == null ? NO_SEARCH
+				: (byte) type.ordinal());
+	}
+
+	/**
+	 * Set the search type of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param type
+	 *            a search type, or null
+	 */
+	void setSearchType(int slot, SearchType type) {
+		this.mySearchTypes[slot] = (type == null ? NO_SEARCH : (byte) type
+				.ordinal());
+	}
+
+	/**
+	 * Return the mask of the elements changed by the current search of the
+	 * agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the mask of the elements of the current search
+	 */
+	public long getSearchMask(int slot) {
+		return this.mySearchMasks[slot];
+	}
+
+	/**
+	 * Set the mask of the elements changed by the current search of the agent
+	 * of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param mask
+	 *            a bit mask of elements
+	 */
+	void setSearchMask(int slot, long mask) {
+		this.mySearchMasks[slot] = mask;
+	}
+
+	/**
+	 * Return the partner id of the agent of the given slot, or -1 if it has
+	 * none.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return the partner id of the agent, or -1
+	 */
+	public int getPartnerId(int slot) {
+		return this.myPartnerIds[slot];
+	}
+
+	/**
+	 * Return true if the partner of the agent of the given slot has been set.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return true if the partner of the agent has been set
+	 */
+	public boolean hasSetPartner(int slot) {
+		return this.myHasSetPartners[slot];
+	}
+
+	/**
+	 * Set the partner id of the agent of the given slot.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param partnerId
+	 *            a partner agent id, or -1
+	 * @param hasSetPartner
+	 *            true if the partner counts as set
+	 */
+	void setPartnerId(int slot, int partnerId, boolean hasSetPartner) {
+		this.myPartnerIds[slot] = partnerId;
+		this.myHasSetPartners[slot] = hasSetPartner;
+	}
+
+	/**
+	 * Return true if the neighbourhood of the current search of the agent of
+	 * the given slot has a location that has not been visited yet; the same
+	 * as Agent.hasUnvisitedNeighbour(), without touching the agent.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return true if there is an unvisited neighbour location
+	 */
+	public boolean hasUnvisitedNeighbour(int slot) {
+		return this.myHasUnvisitedNeighbours[slot];
+	}
+
+	/**
+	 * Record whether the current search of the agent of the given slot has an
+	 * unvisited neighbour left.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param hasUnvisitedNeighbour
+	 *            a boolean
+	 */
+	void setHasUnvisitedNeighbour(int slot, boolean hasUnvisitedNeighbour) {
+		this.myHasUnvisitedNeighbours[slot] = hasUnvisitedNeighbour;
+	}
+}
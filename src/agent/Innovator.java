@@ -5,12 +5,21 @@ import java.util.HashSet;
 import util.Globals;
 
 public class Innovator extends Agent {
-	private HashSet<Integer> myM;
-	private HashSet<Integer> myP;
+	/**
+	 * the bit masks of the elements of M and P in a location id, i.e. element
+	 * i is bit N-1-i
+	 */
+	private long myM;
+	private long myP;
+	/**
+	 * the elements of P in the order in which a partial copy draws a random
+	 * boolean for each of them, which is the iteration order of the hash set
+	 * that P used to be kept in; results stay comparable with earlier
+	 * versions
+	 */
+	private int myPDrawOrder[];
 	private int myMSize, myPSize;
 	private int myAllianceProcessingPower;
-	private int myPartnerId;
-	private boolean myhasSetPartner;
 
 	/**
 	 * Create an innovator agent object with given M size and P size. The set M
@@ -28,9 +37,10 @@ public class Innovator extends Agent {
 		super(processingPower);
 		this.myMSize = m_size;
 		this.myPSize = p_size;
+		this.myM = 0L;
+		this.myP = 0L;
+		this.myPDrawOrder = new int[p_size];
 		this.myAllianceProcessingPower = -1;
-		this.myPartnerId = -1;
-		this.myhasSetPartner = false;
 	}
 
 	/**
@@ -39,7 +49,7 @@ public class Innovator extends Agent {
 	 * @return a copy of the set M
 	 */
 	public HashSet<Integer> getM() {
-		return new HashSet<Integer>(this.myM);
+		return Globals.ldscp.getElements(this.myM);
 	}
 
 	/**
@@ -48,7 +58,25 @@ public class Innovator extends Agent {
 	 * @return a copy of the set P
 	 */
 	public HashSet<Integer> getP() {
-		return new HashSet<Integer>(this.myP);
+		return Globals.ldscp.getElements(this.myP);
+	}
+
+	/**
+	 * Return the bit mask of the set M in a location id.
+	 * 
+	 * @return the bit mask of the set M
+	 */
+	public long getMMask() {
+		return this.myM;
+	}
+
+	/**
+	 * Return the bit mask of the set P in a location id.
+	 * 
+	 * @return the bit mask of the set P
+	 */
+	public long getPMask() {
+		return this.myP;
 	}
 
 	/**
@@ -85,14 +113,16 @@ public class Innovator extends Agent {
 	 *         current location id and the given other location id
 	 */
 	public long getLocIdWithOtherLocId(long otherLocId, boolean isCopy) {
-		long result = this.myLocId;
-		for (int idx : this.myP) {
-			int shiftAmount = Globals.ldscp.getInfN() - 1 - idx;
-			result += (1 << shiftAmount)
-					* ((otherLocId >> shiftAmount) % 2 - (result >> shiftAmount) % 2)
-					* (isCopy ? 1 : (Globals.randomGen.nextBoolean() ? 0 : 1));
+		long copied = this.myP;
+		if (!isCopy) {
+			int n = Globals.ldscp.getInfN();
+			for (int idx : this.myPDrawOrder) {
+				if (Globals.randomGen.nextBoolean()) {
+					copied &= ~(1L << (n - 1 - idx));
+				}
+			}
 		}
-		return result;
+		return (this.getLocId() & ~copied) | (otherLocId & copied);
 	}
 
 	/**
@@ -105,8 +135,7 @@ public class Innovator extends Agent {
 	 *         innovator's P
 	 */
 	public boolean canPartnerWith(Innovator innovator) {
-		return (this.myP.size() == innovator.myP.size() && this.myP
-				.containsAll(innovator.myP));
+		return this.myP == innovator.myP;
 	}
 
 	/**
@@ -119,7 +148,7 @@ public class Innovator extends Agent {
 	 *         innovator's P
 	 */
 	public boolean canPartnerWith(Provider provider) {
-		return (provider.getQ().containsAll(this.myP));
+		return (this.myP & ~provider.getQMask()) == 0;
 	}
 
 	/**
@@ -128,7 +157,7 @@ public class Innovator extends Agent {
 	 * @return true if Agent.setPartnerId has been called before
 	 */
 	public boolean hasSetPartner() {
-		return this.myhasSetPartner;
+		return this.myPopulation.hasSetPartner(this.mySlot);
 	}
 
 	/**
@@ -137,7 +166,7 @@ public class Innovator extends Agent {
 	 * @return the id of innovator's partner
 	 */
 	public int getPartnerId() {
-		return this.myPartnerId;
+		return this.myPopulation.getPartnerId(this.mySlot);
 	}
 
 	/**
@@ -147,8 +176,7 @@ public class Innovator extends Agent {
 	 *            a partner agent id
 	 */
 	public void setPartnerId(int partnerId) {
-		this.myPartnerId = partnerId;
-		this.myhasSetPartner = true;
+		this.myPopulation.setPartnerId(this.mySlot, partnerId, true);
 	}
 
 	/**
@@ -159,21 +187,25 @@ public class Innovator extends Agent {
 	@Override
 	public void reset() {
 		super.reset();
-		HashSet<Integer> allElements = new HashSet<Integer>();
-		for (int i = 0; i < Globals.ldscp.getInfN(); i++) {
-			allElements.add(i);
-		}
-		this.myM = new HashSet<Integer>();
+		int n = Globals.ldscp.getInfN();
+		// element e is bit e of allElements
+		long allElements = (n == 64 ? -1L : (1L << n) - 1);
+		this.myM = 0L;
 		for (int i = 0; i < this.myMSize; i++) {
-			this.myM.add(Globals.removeRandomElementFromSet(allElements));
+			int element = Globals.getRandomElementOfMask(allElements);
+			allElements &= ~(1L << element);
+			this.myM |= 1L << (n - 1 - element);
 		}
-		this.myP = new HashSet<Integer>();
+		this.myP = 0L;
 		for (int i = 0; i < this.myPSize; i++) {
-			this.myP.add(Globals.removeRandomElementFromSet(allElements));
+			int element = Globals.getRandomElementOfMask(allElements);
+			allElements &= ~(1L << element);
+			this.myP |= 1L << (n - 1 - element);
+			this.myPDrawOrder[i] = element;
 		}
+		sortInHashSetOrder(this.myPDrawOrder);
 		this.myAllianceProcessingPower = -1;
-		this.myPartnerId = -1;
-		this.myhasSetPartner = false;
+		this.myPopulation.setPartnerId(this.mySlot, -1, false);
 	}
 
 	/**
@@ -189,7 +221,7 @@ public class Innovator extends Agent {
 	 * 
 	 */
 	public void startNewSearch(SearchType type, boolean isToSearchTheFirstStep) {
-		HashSet<Integer> elements = null;
+		long elements = 0L;
 		switch (type) {
 		case M:
 		case Magain:
@@ -199,20 +231,15 @@ public class Innovator extends Agent {
 			elements = this.myP;
 			break;
 		case MandP:
-			elements = new HashSet<Integer>(this.myM);
-			elements.addAll(this.myP);
+			elements = this.myM | this.myP;
 			break;
 		default:
 			System.out
 					.println("ERROR : Invalid Innovator SearchType : " + type);
 			System.exit(1);
 		}
-		this.mySearchType = type;
-		this.myVisitedLocIds = new HashSet<Long>();
-		this.myVisitedLocIds.add(this.myLocId);
-		this.myUnvisitedNeighourLocIds = Globals.ldscp.getNeighboursInclusive(
-				this.myLocId, elements, this.myProcessingPower);
-		this.myUnvisitedNeighourLocIds.remove(this.myLocId);
+		this.setSearchType(type);
+		this.startNeighbourhood(elements, this.myProcessingPower);
 		if (isToSearchTheFirstStep && this.hasUnvisitedNeighbour()) {
 			this.continueSearch();
 		}
@@ -236,36 +263,8 @@ public class Innovator extends Agent {
 	 */
 	@Override
 	public void continueSearch() {
-		HashSet<Integer> elements = null;
-		switch (this.mySearchType) {
-		case M:
-		case Magain:
-			elements = this.myM;
-			break;
-		case P:
-			elements = this.myP;
-			break;
-		case MandP:
-			elements = new HashSet<Integer>(this.myM);
-			elements.addAll(this.myP);
-			break;
-		}
-		// pick one candidate randomly
-		long candidateNeighbour = Globals
-				.removeRandomElementFromSet(this.myUnvisitedNeighourLocIds);
-		// put the candidate in to visited set
-		this.myVisitedLocIds.add(candidateNeighbour);
-		// compare and pick the better one
-		float newScore = Globals.ldscp.getScoreOfLocId(candidateNeighbour);
-		if (newScore >= this.myScore) {
-			this.myLocId = candidateNeighbour;
-			this.myScore = newScore;
-			this.myUnvisitedNeighourLocIds = Globals.ldscp
-					.getNeighboursInclusive(this.myLocId, elements,
-							this.myProcessingPower);
-			this.myUnvisitedNeighourLocIds.removeAll(this.myVisitedLocIds);
-		}
-		this.myTimestamp++;
+		this.stepToNeighbour();
+		this.tick();
 	}
 
 	/**
@@ -279,16 +278,11 @@ public class Innovator extends Agent {
 	 *            the alliance
 	 */
 	public void startAllianceSearch(int allianceProcessingPower) {
-		this.mySearchType = SearchType.P;
+		this.setSearchType(SearchType.P);
 		this.myAllianceProcessingPower = allianceProcessingPower;
 		// key innovator has a smaller id
-		if (this.myId < this.myPartnerId) {
-			this.myVisitedLocIds = new HashSet<Long>();
-			this.myVisitedLocIds.add(this.myLocId);
-			this.myUnvisitedNeighourLocIds = Globals.ldscp
-					.getNeighboursInclusive(this.myLocId, this.myP,
-							this.myAllianceProcessingPower);
-			this.myUnvisitedNeighourLocIds.remove(this.myLocId);
+		if (this.myId < this.getPartnerId()) {
+			this.startNeighbourhood(this.myP, this.myAllianceProcessingPower);
 			if (this.hasUnvisitedNeighbour()) {
 				this.continueAllianceSearch();
 			}
@@ -302,40 +296,64 @@ public class Innovator extends Agent {
 	 * undefined.
 	 */
 	public void continueAllianceSearch() {
-		Innovator partner = Globals.innovatorList.get(this.myPartnerId);
+		Innovator partner = Globals.innovatorList.get(this.getPartnerId());
 		// pick one candidate randomly
-		long candidateNeighbour1 = Globals
-				.removeRandomElementFromSet(this.myUnvisitedNeighourLocIds);
+		long candidateNeighbour1 = this.myNeighbourSampler
+				.next(this.myVisitedLocIds);
 		// put the candidate in to visited set
 		this.myVisitedLocIds.add(candidateNeighbour1);
 		// compare
-		float newScore1 = Globals.ldscp.getScoreOfLocId(candidateNeighbour1);
-		if (newScore1 >= this.myScore) {
+		float newScore1 = this.getScoreOfNeighbour(candidateNeighbour1);
+		if (newScore1 >= this.myPopulation.getScore(this.mySlot)) {
 			long candidateNeighbour2 = partner.getLocIdWithOtherLocId(
 					candidateNeighbour1, true);
-			float newScore2 = Globals.ldscp
-					.getScoreOfLocId(candidateNeighbour2);
+			float newScore2 = partner.getScoreOfNeighbour(candidateNeighbour2);
 			// pick the better one together
 			if (newScore2 >= partner.getScore()) {
-				this.myLocId = candidateNeighbour1;
-				this.myScore = newScore1;
-				partner.myLocId = candidateNeighbour2;
-				partner.myScore = newScore2;
-				this.myUnvisitedNeighourLocIds = Globals.ldscp
-						.getNeighboursInclusive(this.myLocId, this.myP,
-								this.myAllianceProcessingPower);
-				this.myUnvisitedNeighourLocIds.removeAll(this.myVisitedLocIds);
+				this.setLocIdAndScore(candidateNeighbour1, newScore1);
+				partner.setLocIdAndScore(candidateNeighbour2, newScore2);
+				this.myNeighbourSampler.moveTo(candidateNeighbour1,
+						Globals.randomGen.nextLong());
+			}
+		}
+		this.updateHasUnvisitedNeighbour();
+		this.tick();
+		partner.tick();
+	}
+
+	/**
+	 * Sort the given distinct elements, which are in the order they were
+	 * added, into the iteration order of a HashSet<Integer> of them: by their
+	 * bucket in a table of the default capacity 16, doubled while the set is
+	 * more than 3/4 full, and in the order they were added within a bucket.
+	 * 
+	 * @param elements
+	 *            distinct integers between 0 and 63 (inclusive)
+	 */
+	private static void sortInHashSetOrder(int elements[]) {
+		int capacity = 16;
+		while (elements.length > capacity * 3 / 4) {
+			capacity *= 2;
+		}
+		// stable insertion sort by bucket
+		for (int i = 1; i < elements.length; i++) {
+			int element = elements[i];
+			int j = i - 1;
+			while (j >= 0
+					&& (elements[j] & (capacity - 1)) > (element & (capacity - 1))) {
+				elements[j + 1] = elements[j];
+				j--;
 			}
+			elements[j + 1] = element;
 		}
-		this.myTimestamp++;
-		partner.myTimestamp++;
 	}
 
 	@Override
 	public String toString() {
-		return this.myTimestamp + "\tINNOVATOR\t" + this.myId + "\t"
-				+ this.myProcessingPower + "\t" + this.mySearchType + "\t"
-				+ this.myScore + "\t"
-				+ (this.myPartnerId < 0 ? "[]" : "[" + this.myPartnerId + "]");
+		int partnerId = this.getPartnerId();
+		return this.getTimestamp() + "\tINNOVATOR\t" + this.myId + "\t"
+				+ this.myProcessingPower + "\t" + this.getSearchType() + "\t"
+				+ this.getScore() + "\t"
+				+ (partnerId < 0 ? "[]" : "[" + partnerId + "]");
 	}
 }
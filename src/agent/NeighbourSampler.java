@@ -0,0 +1,206 @@
+package agent;
+
+import random.CounterBasedRandom;
+
+/**
+ * Walks the neighbourhood of a location in uniformly random order without
+ * materializing it. The neighbours are locId ^ pattern for the flip patterns
+ * of the elements of a mask and a processing power, i.e. the masks of 1 to
+ * power of its bits. The patterns are ranked in the order of
+ * Landscape.getFlipPatterns(): first by their number of bits, then in
+ * colexicographic order of the bits they choose. The walk takes the ranks in
+ * the order of a pseudorandom permutation keyed by one draw from the global
+ * random generator, and unranks each rank to its pattern on demand, so a
+ * sampler takes O(1) memory and a rebuild after a move costs O(1) time.
+ *
+ * Visited locations are skipped when they come up. Together this gives the
+ * same search as drawing uniformly at random from the set of unvisited
+ * neighbours.
+ */
+public class NeighbourSampler {
+	/**
+	 * the largest number of patterns of a neighbourhood, which is the largest
+	 * domain of CounterBasedRandom.permute()
+	 */
+	private final static long MAX_PATTERNS = 1L << 62;
+	/**
+	 * BINOMIAL[n][k] is n choose k, for n between 0 and 64 (inclusive); it is
+	 * 0 for k > n
+	 */
+	private final static long BINOMIAL[][] = new long[65][66];
+
+	static {
+		for (int n = 0; n <= 64; n++) {
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+			}
+		}
+	}
+
+	private long myLocId;
+	/**
+	 * the bits of the element mask, in increasing order
+	 */
+	private int myBits[];
+	private int myBitCount;
+	/**
+	 * myStarts[size] is the rank of the first pattern of size bits, for size
+	 * between 1 and the largest size + 1 (inclusive)
+	 */
+	private long myStarts[];
+	private long myPatternCount;
+	private long myKey;
+	/**
+	 * the number of pattern ranks taken from the permutation so far
+	 */
+	private long myPosition;
+	/**
+	 * true if myCandidate is an unvisited neighbour taken from the permutation
+	 * by NeighbourSampler.hasNext() but not yet returned by
+	 * NeighbourSampler.next()
+	 */
+	private boolean myHasCandidate;
+	private long myCandidate;
+
+	/**
+	 * Create a sampler of an empty neighbourhood.
+	 */
+	public NeighbourSampler() {
+		this.myBits = new int[64];
+		this.myStarts = new long[66];
+		this.clear();
+	}
+
+	/**
+	 * Stop walking, i.e. make the neighbourhood empty.
+	 */
+	public void clear() {
+		this.start(-1L, 0L, 0, 0L);
+	}
+
+	/**
+	 * Start walking the neighbourhood of the given location id in the
+	 * elements of the given mask with the given processing power, in the
+	 * order given by the given key. If the neighbourhood has more than 2^62
+	 * locations, the program will exit.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @param elementMask
+	 *            a bit mask of element indices, which indicates the
+	 *            changeable bits of the location id
+	 * @param processingPower
+	 *            a non-negative integer, which indicates the maximum number of
+	 *            changes to a configuration
+	 * @param key
+	 *            a random long, which decides the order
+	 */
+	public void start(long locId, long elementMask, int processingPower,
+			long key) {
+		this.myBitCount = 0;
+		long remaining = elementMask;
+		while (remaining != 0) {
+			this.myBits[this.myBitCount++] = Long
+					.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+		}
+		int maxSize = Math.min(processingPower, this.myBitCount);
+		this.myStarts[1] = 0;
+		for (int size = 1; size <= maxSize; size++) {
+			long count = BINOMIAL[this.myBitCount][size];
+			if (count > MAX_PATTERNS - this.myStarts[size]) {
+				System.out.println("ERROR : too many neighbours for "
+						+ this.myBitCount + " elements and processing power "
+						+ processingPower);
+				System.exit(1);
+			}
+			this.myStarts[size + 1] = this.myStarts[size] + count;
+		}
+		this.myPatternCount = this.myStarts[maxSize + 1];
+		this.moveTo(locId, key);
+	}
+
+	/**
+	 * Start walking the neighbourhood of the given location id with the same
+	 * elements and processing power, in the order given by the given key.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @param key
+	 *            a random long, which decides the order
+	 */
+	public void moveTo(long locId, long key) {
+		this.myLocId = locId;
+		this.myKey = key;
+		this.myPosition = 0;
+		this.myHasCandidate = false;
+	}
+
+	/**
+	 * Return true if there is a neighbour that is not in the given set of
+	 * visited location ids and has not been returned yet.
+	 *
+	 * @param visited
+	 *            a set of visited location ids
+	 * @return true if there is an unvisited neighbour
+	 */
+	public boolean hasNext(VisitedLocationSet visited) {
+		while (!this.myHasCandidate && this.myPosition < this.myPatternCount) {
+			long rank = CounterBasedRandom.permute(this.myPosition++,
+					this.myPatternCount, this.myKey);
+			long candidate = this.myLocId ^ this.unrank(rank);
+			if (!visited.contains(candidate)) {
+				this.myCandidate = candidate;
+				this.myHasCandidate = true;
+			}
+		}
+		return this.myHasCandidate;
+	}
+
+	/**
+	 * Return the next neighbour that is not in the given set of visited
+	 * location ids. If there is none, the program will exit.
+	 *
+	 * @param visited
+	 *            a set of visited location ids
+	 * @return the next unvisited neighbour
+	 */
+	public long next(VisitedLocationSet visited) {
+		if (!this.hasNext(visited)) {
+			System.out.println("ERROR : no unvisited neighbour");
+			System.exit(1);
+		}
+		this.myHasCandidate = false;
+		return this.myCandidate;
+	}
+
+	/**
+	 * Return the flip pattern of the given rank. Within the patterns of the
+	 * same size, the rank of the pattern that chooses the bits with indices
+	 * c_1 < ... < c_size into the bits of the element mask is the sum of
+	 * (c_i choose i), so the indices are found from the largest one down.
+	 *
+	 * @param rank
+	 *            a long between 0 and the number of patterns - 1 (inclusive)
+	 * @return the flip pattern of the given rank
+	 */
+	private long unrank(long rank) {
+		int size = 1;
+		while (rank >= this.myStarts[size + 1]) {
+			size++;
+		}
+		long remaining = rank - this.myStarts[size];
+		long result = 0L;
+		int c = this.myBitCount - 1;
+		for (int i = size; i >= 1; i--) {
+			while (BINOMIAL[c][i] > remaining) {
+				c--;
+			}
+			remaining -= BINOMIAL[c][i];
+			result |= 1L << this.myBits[c];
+			c--;
+		}
+		return result;
+	}
+}
@@ -7,23 +7,37 @@ import java.util.HashSet;
 import util.Globals;
 
 public class Provider extends Agent {
-	private HashSet<Integer> myQ;
+	/**
+	 * the bit mask of the elements of Q in a location id, i.e. element i is
+	 * bit N-1-i
+	 */
+	private long myQ;
 	private int myQSize;
 	private ArrayList<Integer> myPartnerIdList;
 
 	public Provider(int processingPower, int q_size) {
 		super(processingPower);
 		this.myQSize = q_size;
+		this.myQ = 0L;
 		this.myPartnerIdList = new ArrayList<Integer>();
 	}
 
 	/**
-	 * Return the set Q.
+	 * Return a copy of the set Q.
 	 * 
-	 * @return the set Q
+	 * @return a copy of the set Q
 	 */
 	public HashSet<Integer> getQ() {
-		return new HashSet<Integer>(this.myQ);
+		return Globals.ldscp.getElements(this.myQ);
+	}
+
+	/**
+	 * Return the bit mask of the set Q in a location id.
+	 * 
+	 * @return the bit mask of the set Q
+	 */
+	public long getQMask() {
+		return this.myQ;
 	}
 
 	/**
@@ -43,7 +57,7 @@ public class Provider extends Agent {
 	 * @return true if the given innovator's P is a subset of this provider's Q
 	 */
 	public boolean canPartnerWith(Innovator innovator) {
-		return this.myQ.containsAll(innovator.getP());
+		return (innovator.getPMask() & ~this.myQ) == 0;
 	}
 
 	/**
@@ -63,13 +77,14 @@ public class Provider extends Agent {
 	@Override
 	public void reset() {
 		super.reset();
-		HashSet<Integer> allElements = new HashSet<Integer>();
-		for (int i = 0; i < Globals.ldscp.getInfN(); i++) {
-			allElements.add(i);
-		}
-		this.myQ = new HashSet<Integer>();
+		int n = Globals.ldscp.getInfN();
+		// element e is bit e of allElements
+		long allElements = (n == 64 ? -1L : (1L << n) - 1);
+		this.myQ = 0L;
 		for (int i = 0; i < this.myQSize; i++) {
-			this.myQ.add(Globals.removeRandomElementFromSet(allElements));
+			int element = Globals.getRandomElementOfMask(allElements);
+			allElements &= ~(1L << element);
+			this.myQ |= 1L << (n - 1 - element);
 		}
 		this.myPartnerIdList.clear();
 	}
@@ -88,13 +103,8 @@ public class Provider extends Agent {
 			System.out.println("ERROR : Invalid Provider SearchType : " + type);
 			System.exit(1);
 		}
-		this.mySearchType = type;
-		this.myVisitedLocIds = new HashSet<Long>();
-		this.myVisitedLocIds.add(this.myLocId);
-		this.myUnvisitedNeighourLocIds = Globals.ldscp.getNeighboursInclusive(
-				this.myLocId, new HashSet<Integer>(this.myQ),
-				this.myProcessingPower);
-		this.myUnvisitedNeighourLocIds.remove(this.myLocId);
+		this.setSearchType(type);
+		this.startNeighbourhood(this.myQ, this.myProcessingPower);
 		if (this.hasUnvisitedNeighbour()) {
 			this.continueSearch();
 		}
@@ -106,30 +116,15 @@ public class Provider extends Agent {
 	 */
 	@Override
 	public void continueSearch() {
-		// pick one candidate randomly
-		long candidateNeighbour = Globals
-				.removeRandomElementFromSet(this.myUnvisitedNeighourLocIds);
-		// put the candidate in to visited set
-		this.myVisitedLocIds.add(candidateNeighbour);
-		// compare and pick the better one
-		float newScore = Globals.ldscp.getScoreOfLocId(candidateNeighbour);
-		if (newScore >= this.myScore) {
-			this.myLocId = candidateNeighbour;
-			this.myScore = newScore;
-			this.myUnvisitedNeighourLocIds = Globals.ldscp
-					.getNeighboursInclusive(this.myLocId, this.myQ,
-							this.myProcessingPower);
-			this.myUnvisitedNeighourLocIds.removeAll(this.myVisitedLocIds);
-		}
-		this.myTimestamp++;
-
+		this.stepToNeighbour();
+		this.tick();
 	}
 
 	@Override
 	public String toString() {
-		return this.myTimestamp + "\tPROVIDER\t" + this.myId + "\t"
-				+ this.myProcessingPower + "\t" + this.mySearchType + "\t"
-				+ this.myScore + "\t"
+		return this.getTimestamp() + "\tPROVIDER\t" + this.myId + "\t"
+				+ this.myProcessingPower + "\t" + this.getSearchType() + "\t"
+				+ this.getScore() + "\t"
 				+ Arrays.toString(this.myPartnerIdList.toArray());
 	}
 }
@@ -0,0 +1,243 @@
+package agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import util.Globals;
+
+/**
+ * An index of the providers of a population, which answers "the best-scoring
+ * provider whose Q is a superset of P" without scanning all providers.
+ *
+ * The providers are grouped into buckets by their Q mask, and each bucket
+ * keeps its providers in an indexed max-heap by score, ties going to the lower
+ * id. For each element, a bitset tells which buckets contain it, so the
+ * buckets whose Q is a superset of P are the AND of the bitsets of the |P|
+ * elements of P; only the tops of their heaps are compared. A query takes
+ * O(|P| x buckets / 64 + matching buckets) time.
+ *
+ * The heaps follow the scores as the providers search: the population tracks
+ * which scores change, and the index repositions those providers before it
+ * answers the next query. When the landscape is shocked, all providers are
+ * re-scored once, on the next query.
+ */
+public class ProviderIndex {
+	private AgentPopulation myProviders;
+	private int myN;
+	/**
+	 * bucket -> Q mask
+	 */
+	private long myBucketMasks[];
+	/**
+	 * bucket -> the slots of its providers, in heap order; myHeaps[b][0] is
+	 * the best provider of bucket b
+	 */
+	private int myHeaps[][];
+	/**
+	 * slot -> bucket, and slot -> position in the heap of its bucket
+	 */
+	private int myBucketOf[];
+	private int myPositionOf[];
+	/**
+	 * element -> bitset of the buckets whose Q contains the element
+	 */
+	private long myBucketsWithElement[][];
+	/**
+	 * the epoch of the landscape of the scores in the heaps
+	 */
+	private int myEpoch;
+
+	/**
+	 * Create an index of the given providers, whose Q masks must have been
+	 * drawn, i.e. after Provider.reset(). The index follows later changes of
+	 * their scores, but not of their Q masks.
+	 *
+	 * @param providers
+	 *            the population of the providers
+	 */
+	public ProviderIndex(AgentPopulation providers) {
+		this.myProviders = providers;
+		this.myN = Globals.ldscp.getInfN();
+		int size = providers.size();
+		HashMap<Long, Integer> buckets = new HashMap<Long, Integer>();
+		ArrayList<Integer> counts = new ArrayList<Integer>();
+		this.myBucketOf = new int[size];
+		this.myPositionOf = new int[size];
+		for (int i = 0; i < size; i++) {
+			long mask = ((Provider) providers.get(i)).getQMask();
+			Integer bucket = buckets.get(mask);
+			if (bucket == null) {
+				bucket = buckets.size();
+				buckets.put(mask, bucket);
+				counts.add(0);
+			}
+			this.myBucketOf[i] = bucket;
+			this.myPositionOf[i] = counts.get(bucket);
+			counts.set(bucket, counts.get(bucket) + 1);
+		}
+		int bucketCount = buckets.size();
+		this.myBucketMasks = new long[bucketCount];
+		for (long mask : buckets.keySet()) {
+			this.myBucketMasks[buckets.get(mask)] = mask;
+		}
+		this.myHeaps = new int[bucketCount][];
+		for (int b = 0; b < bucketCount; b++) {
+			this.myHeaps[b] = new int[counts.get(b)];
+		}
+		for (int i = 0; i < size; i++) {
+			this.myHeaps[this.myBucketOf[i]][this.myPositionOf[i]] = i;
+		}
+		this.myBucketsWithElement = new long[this.myN][(bucketCount + 63) >>> 6];
+		for (int b = 0; b < bucketCount; b++) {
+			for (int element = 0; element < this.myN; element++) {
+				if ((this.myBucketMasks[b] & this.bitOf(element)) != 0) {
+					this.myBucketsWithElement[element][b >>> 6] |= 1L << b;
+				}
+			}
+		}
+		this.rebuild();
+	}
+
+	/**
+	 * Return the id of the provider with the highest score whose Q is a
+	 * superset of the given P, the lowest id among equal scores, or -1 if no
+	 * provider's Q is.
+	 *
+	 * @param pMask
+	 *            the bit mask of a set P in a location id
+	 * @return the id of the best provider for P, or -1
+	 */
+	public int findBestProviderId(long pMask) {
+		this.update();
+		long matches[] = new long[(this.myBucketMasks.length + 63) >>> 6];
+		for (int w = 0; w < matches.length; w++) {
+			matches[w] = -1L;
+		}
+		for (int element = 0; element < this.myN; element++) {
+			if ((pMask & this.bitOf(element)) != 0) {
+				long buckets[] = this.myBucketsWithElement[element];
+				for (int w = 0; w < matches.length; w++) {
+					matches[w] &= buckets[w];
+				}
+			}
+		}
+		int result = -1;
+		for (int w = 0; w < matches.length; w++) {
+			for (long bits = matches[w]; bits != 0; bits &= bits - 1) {
+				int b = (w << 6) + Long.numberOfTrailingZeros(bits);
+				if (b >= this.myHeaps.length) {
+					break;
+				}
+				int top = this.myHeaps[b][0];
+				if (result < 0 || this.isBetter(top, result)) {
+					result = top;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Bring the heaps up to date with the scores of the providers.
+	 */
+	private void update() {
+		if (this.myEpoch != Globals.ldscp.getEpoch()) {
+			this.rebuild();
+			return;
+		}
+		for (int slot = this.myProviders.pollChangedSlot(); slot >= 0; slot = this.myProviders
+				.pollChangedSlot()) {
+			int b = this.myBucketOf[slot];
+			int position = this.siftUp(b, this.myPositionOf[slot]);
+			this.siftDown(b, position);
+		}
+	}
+
+	/**
+	 * Re-score all providers in the current epoch of the landscape and
+	 * rebuild the heaps.
+	 */
+	private void rebuild() {
+		this.myEpoch = Globals.ldscp.getEpoch();
+		for (int i = 0; i < this.myProviders.size(); i++) {
+			// brings the score of the provider up to date
+			this.myProviders.get(i).getScore();
+		}
+		this.myProviders.trackScoreChanges();
+		for (int b = 0; b < this.myHeaps.length; b++) {
+			for (int position = this.myHeaps[b].length / 2 - 1; position >= 0; position--) {
+				this.siftDown(b, position);
+			}
+		}
+	}
+
+	/**
+	 * Move the provider at the given position of the heap of the given bucket
+	 * up while it is better than its parent, and return its new position.
+	 */
+	private int siftUp(int b, int position) {
+		int heap[] = this.myHeaps[b];
+		int slot = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (!this.isBetter(slot, heap[parent])) {
+				break;
+			}
+			this.place(heap, heap[parent], position);
+			position = parent;
+		}
+		this.place(heap, slot, position);
+		return position;
+	}
+
+	/**
+	 * Move the provider at the given position of the heap of the given bucket
+	 * down while one of its children is better.
+	 */
+	private void siftDown(int b, int position) {
+		int heap[] = this.myHeaps[b];
+		int slot = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= heap.length) {
+				break;
+			}
+			if (child + 1 < heap.length
+					&& this.isBetter(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!this.isBetter(heap[child], slot)) {
+				break;
+			}
+			this.place(heap, heap[child], position);
+			position = child;
+		}
+		this.place(heap, slot, position);
+	}
+
+	/**
+	 * Put the provider of the given slot at the given position of the given
+	 * heap.
+	 */
+	private void place(int heap[], int slot, int position) {
+		heap[position] = slot;
+		this.myPositionOf[slot] = position;
+	}
+
+	/**
+	 * Return true if the provider of the first slot comes before the provider
+	 * of the second one: a higher score, or the same score and a lower id.
+	 */
+	private boolean isBetter(int slot1, int slot2) {
+		float score1 = this.myProviders.getScore(slot1);
+		float score2 = this.myProviders.getScore(slot2);
+		return score1 > score2 || (score1 == score2 && slot1 < slot2);
+	}
+
+	/**
+	 * Return the bit of the given element in a location id.
+	 */
+	private long bitOf(int element) {
+		return 1L << (this.myN - 1 - element);
+	}
+}
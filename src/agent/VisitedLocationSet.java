@@ -0,0 +1,135 @@
+package agent;
+
+import util.BitCompressor;
+import util.IndexedLongSet;
+
+/**
+ * The set of location ids visited by one search phase of an agent. A search
+ * phase only changes the elements of one element set (M, P, M and P, or Q),
+ * so all its visited location ids agree outside the mask of those elements.
+ * If the element set is small, a location id is projected onto the bits of
+ * the mask and kept in a bitset of 2^|elements| bits; otherwise it is kept in
+ * a primitive hash set. Neither boxes a location id, and both are reused by
+ * the following search phases.
+ */
+public class VisitedLocationSet {
+	/**
+	 * the largest element set that is kept in a bitset. Its bitset takes 8 KB,
+	 * which is about what the hash set takes for a few hundred visits; a
+	 * larger bitset would cost more memory than it saves.
+	 */
+	public final static int MAX_DENSE_ELEMENTS = 16;
+
+	private BitCompressor myCompressor;
+	private boolean myIsDense;
+	/**
+	 * the bitset of the projected location ids; it only grows, and only its
+	 * first myWordsInUse words belong to the current search phase
+	 */
+	private long myBits[];
+	private int myWordsInUse;
+	/**
+	 * the hash set of the location ids, allocated on the first search phase
+	 * with a large element set
+	 */
+	private IndexedLongSet myLocIds;
+	private int mySize;
+
+	/**
+	 * Create an empty set of a search phase that changes no elements.
+	 */
+	public VisitedLocationSet() {
+		this.myCompressor = new BitCompressor(0L);
+		this.myBits = new long[1];
+		this.myWordsInUse = 0;
+		this.myLocIds = null;
+		this.myIsDense = true;
+		this.reset(0L);
+	}
+
+	/**
+	 * Empty the set for a new search phase, which only changes the elements of
+	 * the given mask.
+	 * 
+	 * @param elementMask
+	 *            a bit mask of the changeable elements, as returned by
+	 *            Landscape.getElementMask()
+	 */
+	public void reset(long elementMask) {
+		this.clear();
+		int elements = Long.bitCount(elementMask);
+		this.myIsDense = elements <= MAX_DENSE_ELEMENTS;
+		this.myCompressor.setMask(elementMask);
+		if (this.myIsDense) {
+			this.myWordsInUse = Math.max(1, (1 << elements) >>> 6);
+			if (this.myBits.length < this.myWordsInUse) {
+				this.myBits = new long[this.myWordsInUse];
+			}
+		} else if (this.myLocIds == null) {
+			this.myLocIds = new IndexedLongSet();
+		}
+	}
+
+	/**
+	 * Empty the set, keeping the element mask of the current search phase.
+	 */
+	public void clear() {
+		if (this.myIsDense) {
+			for (int i = 0; i < this.myWordsInUse; i++) {
+				this.myBits[i] = 0L;
+			}
+		} else {
+			this.myLocIds.clear();
+		}
+		this.mySize = 0;
+	}
+
+	/**
+	 * Return the number of visited location ids.
+	 * 
+	 * @return the number of visited location ids
+	 */
+	public int size() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return true if the given location id has been visited. The location id
+	 * must not differ from the visited ones outside the element mask.
+	 * 
+	 * @param locId
+	 *            a location id
+	 * @return true if the given location id has been visited
+	 */
+	public boolean contains(long locId) {
+		if (this.myIsDense) {
+			int bit = (int) this.myCompressor.compress(locId);
+			return (this.myBits[bit >>> 6] & (1L << bit)) != 0;
+		}
+		return this.myLocIds.contains(locId);
+	}
+
+	/**
+	 * Add the given location id to the visited ones. The location id must not
+	 * differ from the visited ones outside the element mask.
+	 * 
+	 * @param locId
+	 *            a location id
+	 * @return true if the given location id had not been visited
+	 */
+	public boolean add(long locId) {
+		boolean result;
+		if (this.myIsDense) {
+			int bit = (int) this.myCompressor.compress(locId);
+			long word = this.myBits[bit >>> 6];
+			this.myBits[bit >>> 6] = word | (1L << bit);
+			result = (word & (1L << bit)) == 0;
+		} else {
+			result = this.myLocIds.add(locId);
+		}
+		if (result) {
+			this.mySize++;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,51 @@
+package landscape;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A storage backed by a sequence of float buffers outside of the Java heap.
+ * A single buffer is int-indexed, so the values are split into chunks of 2^28
+ * floats (1 GiB) and the storage as a whole is not limited to 2^31 values.
+ */
+public abstract class BufferContributionStorage extends ContributionStorage {
+	protected final static int CHUNK_BITS = 28;
+	protected final static long CHUNK_SIZE = 1L << CHUNK_BITS;
+	protected final static long CHUNK_MASK = CHUNK_SIZE - 1;
+
+	protected FloatBuffer myChunks[];
+
+	/**
+	 * Create a storage with the given number of float values. Subclasses must
+	 * allocate the chunks.
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 */
+	public BufferContributionStorage(long size) {
+		super(size);
+		this.myChunks = new FloatBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+	}
+
+	/**
+	 * Return the number of values in the chunk with the given chunk index.
+	 *
+	 * @param chunkIdx
+	 *            a non-negative integer, which indicates the chunk
+	 * @return the number of values in the chunk
+	 */
+	protected int getChunkSize(int chunkIdx) {
+		return (int) Math.min(CHUNK_SIZE, this.mySize - (chunkIdx * CHUNK_SIZE));
+	}
+
+	@Override
+	public float get(long index) {
+		return this.myChunks[(int) (index >>> CHUNK_BITS)]
+				.get((int) (index & CHUNK_MASK));
+	}
+
+	@Override
+	public void set(long index, float value) {
+		this.myChunks[(int) (index >>> CHUNK_BITS)].put(
+				(int) (index & CHUNK_MASK), value);
+	}
+}
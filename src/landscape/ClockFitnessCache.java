@@ -0,0 +1,55 @@
+package landscape;
+
+/**
+ * A fitness cache that approximates LRU with the CLOCK algorithm. A hit only
+ * sets a reference bit, so hits never reorder anything. On eviction a hand
+ * sweeps over the entries, clearing reference bits, and evicts the first
+ * entry whose bit is already clear.
+ */
+public class ClockFitnessCache extends FitnessCache {
+	private boolean myReferenced[];
+	private int myHand;
+
+	/**
+	 * Create an empty CLOCK cache with the given capacity.
+	 *
+	 * @param capacity
+	 *            a positive integer, which is the maximum number of entries
+	 */
+	public ClockFitnessCache(int capacity) {
+		super(capacity);
+		this.myReferenced = new boolean[capacity];
+		this.myHand = 0;
+	}
+
+	@Override
+	public EvictionPolicy getPolicy() {
+		return EvictionPolicy.CLOCK;
+	}
+
+	@Override
+	protected void recordHit(int entry) {
+		this.myReferenced[entry] = true;
+	}
+
+	@Override
+	protected void recordInsert(int entry) {
+		this.myReferenced[entry] = false;
+		if (entry == this.myHand) {
+			this.myHand = (this.myHand + 1) % this.myCapacity;
+		}
+	}
+
+	@Override
+	protected void recordRemove(int entry) {
+	}
+
+	@Override
+	protected int selectVictim() {
+		while (this.myReferenced[this.myHand]) {
+			this.myReferenced[this.myHand] = false;
+			this.myHand = (this.myHand + 1) % this.myCapacity;
+		}
+		return this.myHand;
+	}
+}
@@ -0,0 +1,52 @@
+package landscape;
+
+/**
+ * A flat, long-indexed array of fitness contribution values. A storage has no
+ * knowledge of the table layout; EagerFitnessContributionTable maps its
+ * 3-dimensional indices onto a storage index.
+ */
+public abstract class ContributionStorage {
+	public enum StorageType {
+		HEAP, OFF_HEAP, MAPPED
+	}
+
+	protected long mySize;
+
+	/**
+	 * Create a storage with the given number of float values.
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 */
+	public ContributionStorage(long size) {
+		this.mySize = size;
+	}
+
+	/**
+	 * Return the number of values in the storage.
+	 *
+	 * @return the number of values in the storage
+	 */
+	public long getSize() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return the value at the given index.
+	 *
+	 * @param index
+	 *            a long between 0 and size-1 (inclusive)
+	 * @return the value at the given index
+	 */
+	public abstract float get(long index);
+
+	/**
+	 * Set the value at the given index.
+	 *
+	 * @param index
+	 *            a long between 0 and size-1 (inclusive)
+	 * @param value
+	 *            a float
+	 */
+	public abstract void set(long index, float value);
+}
@@ -0,0 +1,252 @@
+package landscape;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import random.CounterBasedRandom;
+import random.MersenneTwisterFast;
+
+public class EagerFitnessContributionTable extends FitnessContributionTable {
+	/**
+	 * A flat table, the size is
+	 *
+	 * N rows x 2^K choices x 2 choices
+	 *
+	 * The two choices of one element are adjacent, so that both of them are
+	 * usually in the same cache line.
+	 */
+	private ContributionStorage myStorage;
+	/**
+	 * the values of each shocked row in the layout of one row of myStorage,
+	 * null for a row that has not been shocked; null when no row has been
+	 * shocked. The storage itself is never written after generation, so a
+	 * shared library table stays intact.
+	 */
+	private float myShockedRows[][];
+	private GenerationOrder myGenerationOrder;
+	/**
+	 * the random generator of the run, which is only used while the table is
+	 * generated
+	 */
+	private MersenneTwisterFast myRandom;
+	/**
+	 * the largest number of values filled by one task of a parallel
+	 * generation
+	 */
+	private final static long FILL_BLOCK = 1 << 16;
+
+	/**
+	 * Internally create a flat table in the storage of the given type and fill
+	 * up all of its values at once. In the legacy generation order the values
+	 * are drawn from the given random generator in the order of [N][2][2^K],
+	 * so they are the same whatever the storage type is. In the parallel
+	 * generation order only a landscape seed is drawn from the random
+	 * generator, and each (row, choice) gets its own counter-based stream
+	 * split off that seed, so blocks of values are filled independently on
+	 * the common fork-join pool and the table is the same whatever the number
+	 * of threads is. These are also the values of a lazy table drawn at the
+	 * same point.
+	 * 
+	 * If the settings have a landscape library, a table that the library
+	 * already holds for this influence matrix and the given run seed is
+	 * memory-mapped instead of generated. Otherwise the table is generated
+	 * into a new file of the library and stored there for later runs.
+	 * ({@inheritDoc})
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param settings
+	 *            a landscape settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param random
+	 *            the random generator of the run
+	 */
+	public EagerFitnessContributionTable(InfluenceMatrix inf,
+			LandscapeSettings settings, int seed, MersenneTwisterFast random) {
+		super(inf);
+		this.myGenerationOrder = settings.getGenerationOrder();
+		this.myRandom = random;
+		this.myShockedRows = null;
+		long size = (long) this.myDim1 * this.myDim2 * this.myDim3;
+		LandscapeLibrary library = settings.getLibrary();
+		if (library != null) {
+			this.myStorage = library.load(this.myInf, seed,
+					this.myGenerationOrder, size, random);
+			if (this.myStorage == null) {
+				byte before[] = LandscapeLibrary.stateOf(random);
+				MappedContributionStorage storage = library.create(size);
+				this.myStorage = storage;
+				this.fill();
+				library.save(this.myInf, seed, this.myGenerationOrder,
+						storage, before, random);
+			}
+			this.myRandom = null;
+			return;
+		}
+		switch (settings.getStorageType()) {
+		case HEAP:
+			this.myStorage = new HeapContributionStorage(size);
+			break;
+		case OFF_HEAP:
+			this.myStorage = new OffHeapContributionStorage(size);
+			break;
+		case MAPPED:
+			this.myStorage = new MappedContributionStorage(size);
+			break;
+		}
+		this.fill();
+		this.myRandom = null;
+	}
+
+	/**
+	 * Fill up the table in the generation order of the table.
+	 */
+	private void fill() {
+		switch (this.myGenerationOrder) {
+		case LEGACY:
+			this.fillInOrder();
+			break;
+		case PARALLEL:
+			this.fillInParallel();
+			break;
+		}
+	}
+
+	/**
+	 * Fill up the table from the random generator, one value after another.
+	 */
+	private void fillInOrder() {
+		for (int i = 0; i < this.myDim1; i++) {
+			for (int j = 0; j < this.myDim2; j++) {
+				for (int k = 0; k < this.myDim3; k++) {
+					// firstly generate the value for the time when no shocks
+					// have occurred
+					this.myStorage.set(this.indexOf(i, j, k),
+							this.myRandom.nextFloat());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fill up the table from counter-based streams keyed by one landscape
+	 * seed from the random generator, on the common fork-join pool.
+	 */
+	private void fillInParallel() {
+		long seed = this.myRandom.nextLong();
+		long streamKeys[] = new long[this.myDim1 * this.myDim2];
+		for (int i = 0; i < streamKeys.length; i++) {
+			streamKeys[i] = CounterBasedRandom.split(seed, i);
+		}
+		ForkJoinPool.commonPool().invoke(
+				new FillTask(streamKeys, 0, this.myStorage.getSize()));
+	}
+
+	/**
+	 * A task that fills a range of the storage, splitting it in halves until
+	 * a range has at most FILL_BLOCK values. Every value depends on its
+	 * position only, so the split does not change the table.
+	 */
+	private class FillTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private long myStreamKeys[];
+		private long myFrom, myTo;
+
+		/**
+		 * Create a task that fills the storage from the given index
+		 * (inclusive) to the given index (exclusive).
+		 * 
+		 * @param streamKeys
+		 *            the stream key of each (row, choice)
+		 * @param from
+		 *            the first index in the storage
+		 * @param to
+		 *            the index in the storage after the last one
+		 */
+		FillTask(long streamKeys[], long from, long to) {
+			this.myStreamKeys = streamKeys;
+			this.myFrom = from;
+			this.myTo = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.myTo - this.myFrom > FILL_BLOCK) {
+				long middle = (this.myFrom + this.myTo) >>> 1;
+				invokeAll(new FillTask(this.myStreamKeys, this.myFrom, middle),
+						new FillTask(this.myStreamKeys, middle, this.myTo));
+				return;
+			}
+			int dim2 = EagerFitnessContributionTable.this.myDim2;
+			// dim3 is 2^K
+			int k = EagerFitnessContributionTable.this.myInf.getK();
+			long dim3Mask = (1L << k) - 1;
+			ContributionStorage storage = EagerFitnessContributionTable.this
+					.myStorage;
+			for (long index = this.myFrom; index < this.myTo; index++) {
+				// the inverse of EagerFitnessContributionTable.indexOf()
+				int index1 = (int) (index >>> (k + 1));
+				int index2 = (int) (index & 1);
+				long index3 = (index >>> 1) & dim3Mask;
+				storage.set(index, CounterBasedRandom.floatAt(
+						this.myStreamKeys[index1 * dim2 + index2], index3));
+			}
+		}
+	}
+
+	/**
+	 * Return the index in the storage of the given 3-dimensional indices.
+	 *
+	 * @return the index in the storage of the given 3-dimensional indices
+	 */
+	private long indexOf(int index1, int index2, int index3) {
+		return ((((long) index1 * this.myDim3) + index3) << 1) | index2;
+	}
+
+	/**
+	 * Return the fitness contribution value in the internal table with the
+	 * given indices.
+	 *
+	 * @return the fitness contribution value in the internal table with the
+	 *         given indices
+	 */
+	@Override
+	public float getValueOf(int index1, int index2, int index3) {
+		if (this.myShockedRows != null && this.myShockedRows[index1] != null) {
+			return this.myShockedRows[index1][(index3 << 1) | index2];
+		}
+		return this.myStorage.get(this.indexOf(index1, index2, index3));
+	}
+
+	/**
+	 * Draw new values for the given row from the given random generator, in
+	 * the order of [2][2^K] like the generation in the legacy order. The new
+	 * values are kept apart from the storage. ({@inheritDoc})
+	 *
+	 * @param row
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param random
+	 *            a random generator
+	 */
+	@Override
+	public void shockRow(int row, MersenneTwisterFast random) {
+		if (this.myShockedRows == null) {
+			this.myShockedRows = new float[this.myDim1][];
+		}
+		if (this.myShockedRows[row] == null) {
+			this.myShockedRows[row] = new float[this.myDim2 * this.myDim3];
+		}
+		for (int j = 0; j < this.myDim2; j++) {
+			for (int k = 0; k < this.myDim3; k++) {
+				this.myShockedRows[row][(k << 1) | j] = random.nextFloat();
+			}
+		}
+	}
+
+	@Override
+	public void undoShocks() {
+		this.myShockedRows = null;
+	}
+}
@@ -0,0 +1,354 @@
+package landscape;
+
+import random.CounterBasedRandom;
+
+/**
+ * A fixed-capacity cache from location ids to fitness values, which uses only
+ * primitive arrays. The entries live in parallel arrays indexed by an entry
+ * id; an open-addressing hash index with linear probing maps a location id to
+ * its entry id. Subclasses decide which entry is evicted when the cache is
+ * full, and may refuse to admit a new entry at all.
+ *
+ * Since a fitness value is never NaN, a miss is signalled by returning NaN,
+ * so a lookup never boxes its key or value.
+ *
+ * Every entry is tagged with the epoch of the landscape in which its value
+ * was computed. When the landscape is shocked, the cache just moves to a new
+ * epoch, and an entry of another epoch counts as a miss when it is looked up;
+ * stale entries are never scanned, they are overwritten or evicted in due
+ * course.
+ */
+public abstract class FitnessCache {
+	public enum EvictionPolicy {
+		LRU, CLOCK, TINY_LFU
+	}
+
+	/**
+	 * the largest capacity whose hash index still fits in an array
+	 */
+	public final static int MAX_CAPACITY = 1 << 28;
+
+	protected int myCapacity;
+	protected int mySize;
+	protected long myKeys[];
+	protected float myValues[];
+	private int myEpochs[];
+	private int myEpoch;
+	/**
+	 * hash slot -> entry id, -1 for an empty slot; its length is a power of 2
+	 * and at least twice the capacity
+	 */
+	private int myIndex[];
+	private int myIndexMask;
+	private long myHits, myMisses, myEvictions, myRejections;
+
+	/**
+	 * Create an empty cache with the given capacity. If the capacity is not
+	 * between 1 and FitnessCache.MAX_CAPACITY, the program will exit.
+	 *
+	 * @param capacity
+	 *            a positive integer, which is the maximum number of entries
+	 */
+	public FitnessCache(int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			System.out.println("ERROR : invalid cache capacity " + capacity);
+			System.exit(1);
+		}
+		this.myCapacity = capacity;
+		this.mySize = 0;
+		this.myKeys = new long[capacity];
+		this.myValues = new float[capacity];
+		this.myEpochs = new int[capacity];
+		this.myEpoch = 0;
+		this.myIndex = new int[Integer.highestOneBit(capacity) << 2];
+		this.myIndexMask = this.myIndex.length - 1;
+		for (int i = 0; i < this.myIndex.length; i++) {
+			this.myIndex[i] = -1;
+		}
+		this.myHits = 0;
+		this.myMisses = 0;
+		this.myEvictions = 0;
+		this.myRejections = 0;
+	}
+
+	/**
+	 * Return the cached fitness value of the given location id, or NaN if it
+	 * is not cached.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @return the cached fitness value, or NaN
+	 */
+	public float get(long locId) {
+		this.recordAccess(locId);
+		int entry = this.find(locId);
+		if (entry < 0 || this.myEpochs[entry] != this.myEpoch) {
+			this.myMisses++;
+			return Float.NaN;
+		}
+		this.myHits++;
+		this.recordHit(entry);
+		return this.myValues[entry];
+	}
+
+	/**
+	 * Cache the fitness value of the given location id. When the cache is
+	 * full, an entry chosen by the eviction policy is evicted, unless the
+	 * policy refuses to admit the new entry.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @param value
+	 *            the fitness value of the location id
+	 */
+	public void put(long locId, float value) {
+		int entry = this.find(locId);
+		if (entry >= 0) {
+			this.myValues[entry] = value;
+			this.myEpochs[entry] = this.myEpoch;
+			return;
+		}
+		if (this.mySize < this.myCapacity) {
+			entry = this.mySize++;
+		} else {
+			entry = this.selectVictim();
+			if (!this.admit(locId, entry)) {
+				this.myRejections++;
+				return;
+			}
+			this.recordRemove(entry);
+			this.removeFromIndex(this.myKeys[entry]);
+			this.myEvictions++;
+		}
+		this.myKeys[entry] = locId;
+		this.myValues[entry] = value;
+		this.myEpochs[entry] = this.myEpoch;
+		this.addToIndex(locId, entry);
+		this.recordInsert(entry);
+	}
+
+	/**
+	 * Move the cache to the given epoch of the landscape, in O(1) time. Only
+	 * the entries put in that epoch are found from then on.
+	 * 
+	 * @param epoch
+	 *            an integer, which identifies the state of the landscape
+	 */
+	public void setEpoch(int epoch) {
+		this.myEpoch = epoch;
+	}
+
+	/**
+	 * Return the maximum number of entries.
+	 *
+	 * @return the maximum number of entries
+	 */
+	public int getCapacity() {
+		return this.myCapacity;
+	}
+
+	/**
+	 * Return the current number of entries.
+	 *
+	 * @return the current number of entries
+	 */
+	public int getSize() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return the number of lookups that found a cached value.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return this.myHits;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached value.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return this.myMisses;
+	}
+
+	/**
+	 * Return the number of entries evicted to make room for new ones.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return this.myEvictions;
+	}
+
+	/**
+	 * Return the number of new entries that the policy refused to admit.
+	 *
+	 * @return the number of rejections
+	 */
+	public long getRejections() {
+		return this.myRejections;
+	}
+
+	/**
+	 * Return the fraction of lookups that found a cached value.
+	 *
+	 * @return the hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		long lookups = this.myHits + this.myMisses;
+		return (lookups == 0 ? 0.0 : (double) this.myHits / lookups);
+	}
+
+	/**
+	 * Return the eviction policy of the cache.
+	 *
+	 * @return the eviction policy of the cache
+	 */
+	public abstract EvictionPolicy getPolicy();
+
+	/**
+	 * Called on every lookup, before the cache is searched.
+	 *
+	 * @param locId
+	 *            the location id being looked up
+	 */
+	protected void recordAccess(long locId) {
+	}
+
+	/**
+	 * Called when a lookup finds the given entry.
+	 *
+	 * @param entry
+	 *            an entry id
+	 */
+	protected abstract void recordHit(int entry);
+
+	/**
+	 * Called when the given entry has been filled with a new location id.
+	 *
+	 * @param entry
+	 *            an entry id
+	 */
+	protected abstract void recordInsert(int entry);
+
+	/**
+	 * Called right before the given entry is evicted.
+	 *
+	 * @param entry
+	 *            an entry id
+	 */
+	protected abstract void recordRemove(int entry);
+
+	/**
+	 * Return the id of the entry to be evicted when the cache is full.
+	 *
+	 * @return an entry id
+	 */
+	protected abstract int selectVictim();
+
+	/**
+	 * Return true if the given location id should replace the given victim
+	 * entry. By default every new entry is admitted.
+	 *
+	 * @param locId
+	 *            the location id to be cached
+	 * @param victim
+	 *            the entry id chosen by FitnessCache.selectVictim()
+	 * @return true if the new entry should be admitted
+	 */
+	protected boolean admit(long locId, int victim) {
+		return true;
+	}
+
+	/**
+	 * Return the home slot of the given location id in the hash index.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @return the home slot of the given location id
+	 */
+	private int slotOf(long locId) {
+		return (int) CounterBasedRandom.mix(locId) & this.myIndexMask;
+	}
+
+	/**
+	 * Return the entry id of the given location id, or -1 if it is not cached.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @return the entry id of the given location id, or -1
+	 */
+	private int find(long locId) {
+		for (int slot = this.slotOf(locId);; slot = (slot + 1)
+				& this.myIndexMask) {
+			int entry = this.myIndex[slot];
+			if (entry < 0 || this.myKeys[entry] == locId) {
+				return entry;
+			}
+		}
+	}
+
+	/**
+	 * Map the given location id, which is not in the index, to the given
+	 * entry id.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @param entry
+	 *            an entry id
+	 */
+	private void addToIndex(long locId, int entry) {
+		int slot = this.slotOf(locId);
+		while (this.myIndex[slot] >= 0) {
+			slot = (slot + 1) & this.myIndexMask;
+		}
+		this.myIndex[slot] = entry;
+	}
+
+	/**
+	 * Remove the given location id, which is in the index, from the index.
+	 * The following entries of the probe sequence are shifted backwards, so
+	 * the index never needs tombstones.
+	 *
+	 * @param locId
+	 *            a location id
+	 */
+	private void removeFromIndex(long locId) {
+		int gap = this.slotOf(locId);
+		while (this.myKeys[this.myIndex[gap]] != locId) {
+			gap = (gap + 1) & this.myIndexMask;
+		}
+		for (int slot = (gap + 1) & this.myIndexMask;; slot = (slot + 1)
+				& this.myIndexMask) {
+			int entry = this.myIndex[slot];
+			if (entry < 0) {
+				break;
+			}
+			// the entry may fill the gap only if its home slot is not
+			// between the gap and its current slot
+			int home = this.slotOf(this.myKeys[entry]);
+			if (((slot - home) & this.myIndexMask) >= ((slot - gap)
+					& this.myIndexMask)) {
+				this.myIndex[gap] = entry;
+				gap = slot;
+			}
+		}
+		this.myIndex[gap] = -1;
+	}
+
+	/**
+	 * Return a string representation of the cache statistics.
+	 *
+	 * @return a string representation of the cache statistics
+	 */
+	@Override
+	public String toString() {
+		return this.getPolicy() + "\t" + this.myCapacity + "\t" + this.mySize
+				+ "\t" + this.myHits + "\t" + this.myMisses + "\t"
+				+ this.myEvictions + "\t" + this.myRejections + "\t"
+				+ this.getHitRate();
+	}
+}
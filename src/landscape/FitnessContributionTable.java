@@ -2,34 +2,37 @@ package landscape;
 
 import java.util.Arrays;
 
-import util.Globals;
+import random.MersenneTwisterFast;
 
-public class FitnessContributionTable {
-	private InfluenceMatrix myInf;
-	private int myDim1, myDim2, myDim3;
-	/**
-	 * A 3-dimensional table, the size is
-	 * 
-	 * N rows x 2 choices x 2^K choices, K <= 31
-	 */
-	private float[][][] myTable;
+public abstract class FitnessContributionTable {
+	public enum TableType {
+		EAGER, LAZY
+	}
+
+	public enum GenerationOrder {
+		LEGACY, PARALLEL
+	}
+
+	protected InfluenceMatrix myInf;
+	protected int myDim1, myDim2, myDim3;
 
 	/**
-	 * Internally create a 3-dimensional table, by N by 2 by 2^K, where N and K
-	 * are from the influence matrix. Dimension 1 represents N elements.
-	 * Dimension 2 represents the 2 choices (i.e. 0 or 1) for one element.
-	 * Dimension 3 represents all the possible combination of one element's
-	 * dependent elements. The value is a randomly generated fitness
-	 * contribution value between 0 to 1.
-	 * 
+	 * Create a table by N by 2 by 2^K, where N and K are from the influence
+	 * matrix. Dimension 1 represents N elements. Dimension 2 represents the 2
+	 * choices (i.e. 0 or 1) for one element. Dimension 3 represents all the
+	 * possible combination of one element's dependent elements. The value is a
+	 * randomly generated fitness contribution value between 0 to 1.
+	 *
 	 * E.g., when N = 6 and K = 5, the value in [0][1][5] gives the fitness
 	 * contribution value when "the 0th element" is "1" given
 	 * "its 5 dependent elements are 0,0,1,0,1 respectively".
-	 * 
+	 *
 	 * E.g., when N = 4 and K = 2, the value in [1][0][1] gives the fitness
 	 * contribution value when "the 1st element" is "0" given
 	 * "its 2 dependent elements are 0,1 respectively".
-	 * 
+	 *
+	 * How the values are generated and stored is up to the subclasses.
+	 *
 	 * @param inf
 	 *            an influence matrix object
 	 */
@@ -40,34 +43,40 @@ public class FitnessContributionTable {
 		this.myDim1 = this.myInf.getN();
 		this.myDim2 = 2;
 		this.myDim3 = (1 << this.myInf.getK());
-		this.myTable = new float[this.myDim1][this.myDim2][this.myDim3];
-
-		// fill up the 3-dimensional table
-		for (int i = 0; i < this.myDim1; i++) {
-			for (int j = 0; j < this.myDim2; j++) {
-				for (int k = 0; k < this.myDim3; k++) {
-					// firstly generate the value for the time when no shocks
-					// have occurred
-					this.myTable[i][j][k] = Globals.randomGen.nextFloat();
-				}
-			}
-		}
 	}
 
 	/**
-	 * Return the fitness contribution value in the internal 3-dimensional table
-	 * with the given indices.
-	 * 
-	 * @return the fitness contribution value in the internal 3-dimensional
-	 *         table with the given indices
+	 * Return the fitness contribution value in the table with the given
+	 * indices.
+	 *
+	 * @return the fitness contribution value in the table with the given
+	 *         indices
 	 */
-	public float getValueOf(int index1, int index2, int index3) {
-		return this.myTable[index1][index2][index3];
-	}
+	public abstract float getValueOf(int index1, int index2, int index3);
+
+	/**
+	 * Draw new values for the given row, i.e. for both choices of the given
+	 * element under every combination of its dependent elements, from the
+	 * given random generator. This is an environmental shock to the element.
+	 * The values from before the first shock are kept, so that
+	 * FitnessContributionTable.undoShocks() can restore them.
+	 *
+	 * @param row
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param random
+	 *            a random generator
+	 */
+	public abstract void shockRow(int row, MersenneTwisterFast random);
+
+	/**
+	 * Restore the values of all shocked rows to those from before their first
+	 * shock.
+	 */
+	public abstract void undoShocks();
 
 	/**
 	 * Return a string representation of the fitness table.
-	 * 
+	 *
 	 * @return a string representation of the fitness table
 	 */
 	@Override
@@ -0,0 +1,120 @@
+package landscape;
+
+import java.util.HashSet;
+
+/**
+ * An enumerator of flip patterns. The flip patterns of a set of elements and a
+ * processing power are the XOR masks of all configurations/locations whose
+ * distance to a location w.r.t. the elements is between 1 and the processing
+ * power, i.e. a neighbour of location id locId is locId ^ pattern. Searches
+ * do not use them: agent.NeighbourSampler unranks the pattern of a rank on
+ * demand, in the same order, so the patterns are not kept.
+ *
+ * The patterns are enumerated in combinatorial order: first all patterns of
+ * one element, then of two elements, and so on; patterns of the same number
+ * of elements are in colexicographic order of the elements they choose, i.e.
+ * in increasing order of their masks.
+ */
+public class FlipPatternTable {
+	private int myN;
+
+	/**
+	 * Create an enumerator of flip patterns of location ids of N bits.
+	 *
+	 * @param n
+	 *            N of the influence matrix
+	 */
+	public FlipPatternTable(int n) {
+		this.myN = n;
+	}
+
+	/**
+	 * Return the bit mask of the given element indices in a location id, i.e.
+	 * element i is bit N-1-i.
+	 *
+	 * @param elements
+	 *            a set of element indices
+	 * @return the bit mask of the given element indices
+	 */
+	public long getMaskOf(HashSet<Integer> elements) {
+		long result = 0L;
+		for (int element : elements) {
+			result |= 1L << (this.myN - 1 - element);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the flip patterns of the given elements and the given processing
+	 * power, excluding the empty pattern, in a new array.
+	 *
+	 * @param elementMask
+	 *            a bit mask of element indices, as returned by
+	 *            FlipPatternTable.getMaskOf()
+	 * @param processingPower
+	 *            a non-negative integer, which indicates the maximum number of
+	 *            changes to a configuration
+	 * @return the flip patterns
+	 */
+	public long[] getPatterns(long elementMask, int processingPower) {
+		return this.enumerate(elementMask, processingPower);
+	}
+
+	/**
+	 * Enumerate the non-empty flip patterns of the given elements and the
+	 * given processing power in combinatorial order.
+	 *
+	 * @param elementMask
+	 *            a bit mask of element indices
+	 * @param processingPower
+	 *            a non-negative integer, which indicates the maximum number of
+	 *            changes to a configuration
+	 * @return the flip patterns
+	 */
+	private long[] enumerate(long elementMask, int processingPower) {
+		int bits[] = new int[Long.bitCount(elementMask)];
+		long remaining = elementMask;
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+		}
+		int maxSize = Math.min(processingPower, bits.length);
+		long counts[] = new long[maxSize + 1];
+		long total = 0;
+		counts[0] = 1;
+		for (int size = 1; size <= maxSize; size++) {
+			counts[size] = counts[size - 1] * (bits.length - size + 1) / size;
+			total += counts[size];
+			if (total > Integer.MAX_VALUE - 8) {
+				System.out.println("ERROR : too many neighbours for "
+						+ bits.length + " elements and processing power "
+						+ processingPower);
+				System.exit(1);
+			}
+		}
+		long result[] = new long[(int) total];
+		int position = 0;
+		for (int size = 1; size <= maxSize; size++) {
+			// the chosen bits, as indices into bits[], in increasing order
+			int chosen[] = new int[size];
+			for (int i = 0; i < size; i++) {
+				chosen[i] = i;
+			}
+			for (long c = 0; c < counts[size]; c++) {
+				long pattern = 0L;
+				for (int i = 0; i < size; i++) {
+					pattern |= 1L << bits[chosen[i]];
+				}
+				result[position++] = pattern;
+				// advance to the next combination in colexicographic order
+				int i = 0;
+				while (i + 1 < size && chosen[i] + 1 == chosen[i + 1]) {
+					chosen[i] = i;
+					i++;
+				}
+				chosen[i]++;
+			}
+		}
+		return result;
+	}
+}
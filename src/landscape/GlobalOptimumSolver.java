@@ -0,0 +1,638 @@
+package landscape;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An exact solver of the global maximum of a landscape, which uses the
+ * dependence structure of the influence matrix instead of scoring all 2^N
+ * locations. The fitness value is a sum of N row terms, where the term of row
+ * i depends only on element i and its K dependent elements. Each block of the
+ * influence matrix is solved on its own, in parallel, by one of two methods:
+ * <ul>
+ * <li>Dynamic programming over the elements in index order: the partial sums
+ * of the completed rows are kept for every assignment of the frontier, i.e.
+ * the assigned elements that rows still to be completed depend on. Banded
+ * and adjacent (cyclic) neighbourhoods have a frontier of about K and 2K
+ * elements, so N = 64 is solved in milliseconds.</li>
+ * <li>Branch-and-bound for random neighbourhoods, whose frontier is too wide.
+ * The upper bound of a partial assignment is the sum over all rows of the
+ * best term that is still possible given the assigned elements of the row,
+ * looked up in precomputed per-row tables. The subtrees of the first
+ * elements are searched in parallel with a shared incumbent.</li>
+ * </ul>
+ * The solution is the same regardless of the number of threads: among
+ * locations of equal row-sum, the lowest location id wins.
+ */
+public class GlobalOptimumSolver {
+	/**
+	 * the widest frontier solved by dynamic programming
+	 */
+	public final static int MAX_FRONTIER = 20;
+	/**
+	 * the largest K + 1 whose per-row tables branch-and-bound precomputes
+	 */
+	public final static int MAX_ROW_BITS = 20;
+	/**
+	 * the number of elements whose assignments are split into parallel
+	 * subtrees by branch-and-bound
+	 */
+	private final static int SPLIT_BITS = 10;
+	/**
+	 * the slack of the bound test, which is far larger than the rounding
+	 * error of a sum of 64 terms
+	 */
+	private final static double EPSILON = 1e-9;
+
+	private InfluenceMatrix myInf;
+	private Landscape myLdscp;
+
+	/**
+	 * Create a solver of the given landscape of the given influence matrix.
+	 *
+	 * @param inf
+	 *            the influence matrix of the landscape
+	 * @param ldscp
+	 *            a landscape object
+	 */
+	public GlobalOptimumSolver(InfluenceMatrix inf, Landscape ldscp) {
+		this.myInf = inf;
+		this.myLdscp = ldscp;
+	}
+
+	/**
+	 * Return the location id of the global maximum of the landscape. If a
+	 * block is neither narrow enough for dynamic programming nor sparse
+	 * enough for branch-and-bound, the program will exit.
+	 *
+	 * @return the location id of the global maximum
+	 */
+	public long solve() {
+		int blocks = this.myInf.getBlockCount();
+		long results[] = new long[blocks];
+		ForkJoinPool.commonPool().invoke(new BlockTask(results, 0, blocks));
+		long result = 0L;
+		for (long blockResult : results) {
+			result |= blockResult;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the location id of the best configuration of the given block,
+	 * with all other elements 0.
+	 *
+	 * @param block
+	 *            an integer between 0 and InfluenceMatrix.getBlockCount()-1
+	 *            (inclusive)
+	 * @return the location id of the best configuration of the block
+	 */
+	private long solveBlock(int block) {
+		int elements[] = this.myInf.getBlock(block);
+		if (this.isSolvedByDynamicProgramming(block)) {
+			return this.solveByDynamicProgramming(elements);
+		}
+		if (!this.isSolvedByBranchAndBound()) {
+			System.out.println("ERROR : block of " + elements.length
+					+ " elements with K = " + this.myInf.getK()
+					+ " is too large to solve");
+			System.exit(1);
+		}
+		return new BranchAndBound(elements).solve();
+	}
+
+	/**
+	 * Return true if the global maximum of a landscape of the given influence
+	 * matrix can be solved, i.e. if every block is either narrow enough for
+	 * dynamic programming or sparse enough for branch-and-bound. It only
+	 * depends on the structure of the influence matrix, so it can be checked
+	 * before any landscape is built.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @return true if the global maximum can be solved
+	 */
+	public static boolean canSolve(InfluenceMatrix inf) {
+		GlobalOptimumSolver solver = new GlobalOptimumSolver(inf, null);
+		for (int block = 0; block < inf.getBlockCount(); block++) {
+			if (!solver.isSolvedByDynamicProgramming(block)
+					&& !solver.isSolvedByBranchAndBound()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return true if the given block is solved by dynamic programming, and
+	 * false if it is solved by branch-and-bound.
+	 *
+	 * @param block
+	 *            an integer between 0 and InfluenceMatrix.getBlockCount()-1
+	 *            (inclusive)
+	 * @return true if the block is solved by dynamic programming
+	 */
+	boolean isSolvedByDynamicProgramming(int block) {
+		return this.getFrontierWidth(this.myInf.getBlock(block)) <= MAX_FRONTIER;
+	}
+
+	/**
+	 * Return true if branch-and-bound can solve a block that is too wide for
+	 * dynamic programming, i.e. if its per-row tables fit.
+	 *
+	 * @return true if branch-and-bound can solve the blocks
+	 */
+	private boolean isSolvedByBranchAndBound() {
+		return this.myInf.getK() + 1 <= MAX_ROW_BITS;
+	}
+
+	/**
+	 * Return the elements that the fitness contribution of the given element
+	 * depends on, including the element itself, in an increasing manner.
+	 *
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @return the scope of the row of the given element
+	 */
+	private int[] getScopeOf(int element) {
+		int dependence[] = this.myInf.getDependentElementsOf(element);
+		int result[] = new int[dependence.length + 1];
+		int j = 0;
+		boolean isInserted = false;
+		for (int dependent : dependence) {
+			if (!isInserted && dependent > element) {
+				result[j++] = element;
+				isInserted = true;
+			}
+			result[j++] = dependent;
+		}
+		if (!isInserted) {
+			result[j] = element;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the terms of the row of the given element for every assignment
+	 * of the given scope, where bit j of the index is the value of scope[j].
+	 *
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param scope
+	 *            the scope of the row in any order
+	 * @return the terms of the row
+	 */
+	private double[] getTermsOf(int element, int scope[]) {
+		int n = this.myInf.getN();
+		double result[] = new double[1 << scope.length];
+		for (int a = 0; a < result.length; a++) {
+			long locId = 0L;
+			for (int j = 0; j < scope.length; j++) {
+				if ((a & (1 << j)) != 0) {
+					locId |= 1L << (n - 1 - scope[j]);
+				}
+			}
+			result[a] = this.myLdscp.computeContributionOf(element, locId);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the largest frontier of dynamic programming over the given
+	 * elements in index order.
+	 *
+	 * @param elements
+	 *            the elements of a block in an increasing manner
+	 * @return the largest number of elements in the frontier
+	 */
+	private int getFrontierWidth(int elements[]) {
+		int lastUse[] = this.getLastUses(elements);
+		int result = 0;
+		int width = 0;
+		for (int t = 0; t < elements.length; t++) {
+			width++;
+			result = Math.max(result, width);
+			for (int element : elements) {
+				if (lastUse[element] == t) {
+					width--;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return, for each of the given elements, the step of dynamic programming
+	 * after which it is no longer needed, i.e. the step at which the last row
+	 * that depends on it is completed. Step t assigns elements[t]; the array
+	 * is indexed by element.
+	 *
+	 * @param elements
+	 *            the elements of a block in an increasing manner
+	 * @return the last step that needs each element
+	 */
+	private int[] getLastUses(int elements[]) {
+		int step[] = new int[this.myInf.getN()];
+		for (int t = 0; t < elements.length; t++) {
+			step[elements[t]] = t;
+		}
+		int result[] = new int[this.myInf.getN()];
+		for (int element : elements) {
+			int scope[] = this.getScopeOf(element);
+			int completed = step[scope[scope.length - 1]];
+			for (int dependent : scope) {
+				result[dependent] = Math.max(result[dependent], completed);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the location id of the best configuration of the given block by
+	 * dynamic programming over its elements in index order. Bit i of a state
+	 * is the value of frontier element i. A row is added when its last
+	 * element is assigned, and an element is maximized out after its last
+	 * row has been added; the better value of each maximized-out element is
+	 * recorded for every remaining state, so the best configuration is
+	 * recovered backwards.
+	 *
+	 * @param elements
+	 *            the elements of a block in an increasing manner
+	 * @return the location id of the best configuration of the block
+	 */
+	private long solveByDynamicProgramming(int elements[]) {
+		int lastUse[] = this.getLastUses(elements);
+		ArrayList<Integer> frontier = new ArrayList<Integer>();
+		double values[] = new double[] { 0.0 };
+		ArrayList<int[]> droppedFrontiers = new ArrayList<int[]>();
+		ArrayList<Integer> droppedElements = new ArrayList<Integer>();
+		ArrayList<long[]> choices = new ArrayList<long[]>();
+		for (int t = 0; t < elements.length; t++) {
+			// assign the next element, which becomes the highest state bit
+			frontier.add(elements[t]);
+			double assigned[] = new double[values.length << 1];
+			System.arraycopy(values, 0, assigned, 0, values.length);
+			System.arraycopy(values, 0, assigned, values.length, values.length);
+			values = assigned;
+			// add the row that is completed by this element, if any
+			for (int element : elements) {
+				int scope[] = this.getScopeOf(element);
+				if (scope[scope.length - 1] != elements[t]) {
+					continue;
+				}
+				double terms[] = this.getTermsOf(element, scope);
+				int bits[] = new int[scope.length];
+				for (int j = 0; j < scope.length; j++) {
+					bits[j] = frontier.indexOf(scope[j]);
+				}
+				for (int s = 0; s < values.length; s++) {
+					int a = 0;
+					for (int j = 0; j < bits.length; j++) {
+						a |= ((s >>> bits[j]) & 1) << j;
+					}
+					values[s] += terms[a];
+				}
+			}
+			// maximize out the elements that no row needs any more
+			for (int element : elements) {
+				if (lastUse[element] != t) {
+					continue;
+				}
+				int bit = frontier.indexOf(element);
+				frontier.remove(bit);
+				double dropped[] = new double[values.length >>> 1];
+				long choice[] = new long[(dropped.length + 63) >>> 6];
+				for (int s = 0; s < dropped.length; s++) {
+					int s0 = ((s >>> bit) << (bit + 1)) | (s & ((1 << bit) - 1));
+					if (values[s0 | (1 << bit)] > values[s0]) {
+						dropped[s] = values[s0 | (1 << bit)];
+						choice[s >>> 6] |= 1L << s;
+					} else {
+						dropped[s] = values[s0];
+					}
+				}
+				values = dropped;
+				int remaining[] = new int[frontier.size()];
+				for (int i = 0; i < remaining.length; i++) {
+					remaining[i] = frontier.get(i);
+				}
+				droppedFrontiers.add(remaining);
+				droppedElements.add(element);
+				choices.add(choice);
+			}
+		}
+		// every element has been maximized out; recover their values
+		// backwards, each from the elements maximized out after it
+		int n = this.myInf.getN();
+		boolean isSet[] = new boolean[n];
+		long result = 0L;
+		for (int d = droppedElements.size() - 1; d >= 0; d--) {
+			int remaining[] = droppedFrontiers.get(d);
+			int s = 0;
+			for (int i = 0; i < remaining.length; i++) {
+				s |= (isSet[remaining[i]] ? 1 : 0) << i;
+			}
+			int element = droppedElements.get(d);
+			if ((choices.get(d)[s >>> 6] & (1L << s)) != 0) {
+				isSet[element] = true;
+				result |= 1L << (n - 1 - element);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Solves the blocks of the given range, splitting the range in halves.
+	 */
+	private class BlockTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private long myResults[];
+		private int myFrom, myTo;
+
+		BlockTask(long results[], int from, int to) {
+			this.myResults = results;
+			this.myFrom = from;
+			this.myTo = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.myTo - this.myFrom == 1) {
+				this.myResults[this.myFrom] = solveBlock(this.myFrom);
+				return;
+			}
+			int middle = (this.myFrom + this.myTo) >>> 1;
+			invokeAll(new BlockTask(this.myResults, this.myFrom, middle),
+					new BlockTask(this.myResults, middle, this.myTo));
+		}
+	}
+
+	/**
+	 * Branch-and-bound over the elements of one block, in an order that
+	 * completes rows early. The scope of each row is kept in that order, so
+	 * the assigned elements of a row are always a prefix of its scope, and
+	 * the best term still possible is looked up by the assignment of that
+	 * prefix.
+	 */
+	private class BranchAndBound {
+		/**
+		 * the elements in the order of assignment
+		 */
+		private int myOrder[];
+		/**
+		 * for each step, the rows whose scope contains the element of that
+		 * step
+		 */
+		private int myRowsOf[][];
+		/**
+		 * for each row, the best terms still possible: myBounds[r][j][a] is
+		 * the best term of row r when the first j elements of its scope are
+		 * assigned a
+		 */
+		private double myBounds[][][];
+		private volatile double myBestValue;
+		private long myBestLocId;
+
+		BranchAndBound(int elements[]) {
+			int rows = elements.length;
+			int scopes[][] = new int[rows][];
+			for (int r = 0; r < rows; r++) {
+				scopes[r] = getScopeOf(elements[r]);
+			}
+			this.myOrder = this.constructOrder(elements, scopes);
+			int step[] = new int[myInf.getN()];
+			for (int t = 0; t < rows; t++) {
+				step[this.myOrder[t]] = t;
+			}
+			int counts[] = new int[rows];
+			this.myBounds = new double[rows][][];
+			for (int r = 0; r < rows; r++) {
+				// sort the scope by step
+				int scope[] = scopes[r];
+				for (int i = 1; i < scope.length; i++) {
+					for (int j = i; j > 0 && step[scope[j]] < step[scope[j - 1]]; j--) {
+						int swap = scope[j];
+						scope[j] = scope[j - 1];
+						scope[j - 1] = swap;
+					}
+				}
+				this.myBounds[r] = new double[scope.length + 1][];
+				this.myBounds[r][scope.length] = getTermsOf(elements[r], scope);
+				for (int j = scope.length - 1; j >= 0; j--) {
+					double next[] = this.myBounds[r][j + 1];
+					double bound[] = new double[1 << j];
+					for (int a = 0; a < bound.length; a++) {
+						bound[a] = Math.max(next[a], next[a | (1 << j)]);
+					}
+					this.myBounds[r][j] = bound;
+				}
+				for (int element : scope) {
+					counts[step[element]]++;
+				}
+			}
+			this.myRowsOf = new int[rows][];
+			for (int t = 0; t < rows; t++) {
+				this.myRowsOf[t] = new int[counts[t]];
+				counts[t] = 0;
+			}
+			for (int r = 0; r < rows; r++) {
+				for (int element : scopes[r]) {
+					int t = step[element];
+					this.myRowsOf[t][counts[t]++] = r;
+				}
+			}
+			this.myBestValue = Double.NEGATIVE_INFINITY;
+			this.myBestLocId = -1L;
+		}
+
+		/**
+		 * Return the order of assignment: each next element is the one that
+		 * appears in the most rows that already have an assigned element,
+		 * then in the most rows, then the lowest one.
+		 */
+		private int[] constructOrder(int elements[], int scopes[][]) {
+			int rows = elements.length;
+			boolean isAssigned[] = new boolean[myInf.getN()];
+			boolean isTouched[] = new boolean[rows];
+			int result[] = new int[rows];
+			for (int t = 0; t < rows; t++) {
+				int best = -1;
+				long bestKey = -1;
+				for (int element : elements) {
+					if (isAssigned[element]) {
+						continue;
+					}
+					int touched = 0, all = 0;
+					for (int r = 0; r < rows; r++) {
+						for (int dependent : scopes[r]) {
+							if (dependent == element) {
+								all++;
+								touched += (isTouched[r] ? 1 : 0);
+							}
+						}
+					}
+					long key = ((long) touched << 32) | all;
+					if (key > bestKey) {
+						bestKey = key;
+						best = element;
+					}
+				}
+				result[t] = best;
+				isAssigned[best] = true;
+				for (int r = 0; r < rows; r++) {
+					for (int dependent : scopes[r]) {
+						isTouched[r] |= (dependent == best);
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Return the location id of the best configuration of the block.
+		 */
+		long solve() {
+			int split = Math.min(SPLIT_BITS, this.myOrder.length);
+			ForkJoinPool.commonPool().invoke(
+					new SubtreeTask(this, split, 0, 1 << split));
+			return this.myBestLocId;
+		}
+
+		/**
+		 * Offer a complete assignment with the given sum of terms as the new
+		 * incumbent.
+		 */
+		synchronized void offer(double value, long locId) {
+			if (value > this.myBestValue
+					|| (value == this.myBestValue && Long.compareUnsigned(
+							locId, this.myBestLocId) < 0)) {
+				this.myBestValue = value;
+				this.myBestLocId = locId;
+			}
+		}
+	}
+
+	/**
+	 * Searches the subtrees of the given range of assignments of the first
+	 * elements, splitting the range in halves.
+	 */
+	private class SubtreeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private BranchAndBound mySearch;
+		private int mySplit;
+		private int myFrom, myTo;
+		/**
+		 * for each row, the number of assigned elements of its scope and
+		 * their assignment
+		 */
+		private int myAssigned[];
+		private int myAssignments[];
+
+		SubtreeTask(BranchAndBound search, int split, int from, int to) {
+			this.mySearch = search;
+			this.mySplit = split;
+			this.myFrom = from;
+			this.myTo = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.myTo - this.myFrom > 1) {
+				int middle = (this.myFrom + this.myTo) >>> 1;
+				invokeAll(new SubtreeTask(this.mySearch, this.mySplit,
+						this.myFrom, middle), new SubtreeTask(this.mySearch,
+						this.mySplit, middle, this.myTo));
+				return;
+			}
+			int rows = this.mySearch.myOrder.length;
+			this.myAssigned = new int[rows];
+			this.myAssignments = new int[rows];
+			double bound = 0.0;
+			for (int r = 0; r < rows; r++) {
+				bound += this.mySearch.myBounds[r][0][0];
+			}
+			long locId = 0L;
+			for (int t = 0; t < this.mySplit; t++) {
+				int value = (this.myFrom >>> t) & 1;
+				bound += this.assign(t, value);
+				locId |= this.bitOf(t, value);
+			}
+			this.search(this.mySplit, bound, locId);
+		}
+
+		/**
+		 * Search all assignments of the elements from the given step on,
+		 * given the bound and the location id of the assignment so far.
+		 */
+		private void search(int t, double bound, long locId) {
+			BranchAndBound search = this.mySearch;
+			if (bound < search.myBestValue - EPSILON) {
+				return;
+			}
+			if (t == search.myOrder.length) {
+				// sum the terms in row order, so equal assignments always
+				// have equal values
+				double value = 0.0;
+				for (int r = 0; r < search.myBounds.length; r++) {
+					value += search.myBounds[r][this.myAssigned[r]][this.myAssignments[r]];
+				}
+				search.offer(value, locId);
+				return;
+			}
+			// the child with the higher bound first
+			double bound1 = bound + this.assign(t, 1);
+			this.unassign(t);
+			double bound0 = bound + this.assign(t, 0);
+			if (bound0 >= bound1) {
+				this.search(t + 1, bound0, locId);
+				this.unassign(t);
+				bound1 = bound + this.assign(t, 1);
+				this.search(t + 1, bound1, locId | this.bitOf(t, 1));
+			} else {
+				this.unassign(t);
+				this.assign(t, 1);
+				this.search(t + 1, bound1, locId | this.bitOf(t, 1));
+				this.unassign(t);
+				this.assign(t, 0);
+				this.search(t + 1, bound0, locId);
+			}
+			this.unassign(t);
+		}
+
+		/**
+		 * Assign the given value to the element of the given step and return
+		 * the change of the bound.
+		 */
+		private double assign(int t, int value) {
+			double result = 0.0;
+			for (int r : this.mySearch.myRowsOf[t]) {
+				double bounds[][] = this.mySearch.myBounds[r];
+				int j = this.myAssigned[r];
+				result -= bounds[j][this.myAssignments[r]];
+				this.myAssignments[r] |= value << j;
+				this.myAssigned[r] = j + 1;
+				result += bounds[j + 1][this.myAssignments[r]];
+			}
+			return result;
+		}
+
+		/**
+		 * Undo the assignment of the element of the given step.
+		 */
+		private void unassign(int t) {
+			for (int r : this.mySearch.myRowsOf[t]) {
+				int j = --this.myAssigned[r];
+				this.myAssignments[r] &= ~(1 << j);
+			}
+		}
+
+		/**
+		 * Return the bit of the given value of the element of the given step
+		 * in a location id.
+		 */
+		private long bitOf(int t, int value) {
+			return (long) value << (myInf.getN() - 1 - this.mySearch.myOrder[t]);
+		}
+	}
+}
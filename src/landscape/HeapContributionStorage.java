@@ -0,0 +1,42 @@
+package landscape;
+
+/**
+ * A storage backed by one contiguous float array on the Java heap. It is the
+ * fastest storage but holds at most 2^31 - 9 values.
+ */
+public class HeapContributionStorage extends ContributionStorage {
+	/**
+	 * the largest array length that all common JVMs can allocate
+	 */
+	public final static long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+	private float myValues[];
+
+	/**
+	 * Create a storage with the given number of float values on the heap. If
+	 * the size exceeds HeapContributionStorage.MAX_SIZE, the program will exit.
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 */
+	public HeapContributionStorage(long size) {
+		super(size);
+		if (size > MAX_SIZE) {
+			System.out.println("ERROR : " + size
+					+ " values are too many for heap storage,"
+					+ " use offheap or mapped storage instead");
+			System.exit(1);
+		}
+		this.myValues = new float[(int) size];
+	}
+
+	@Override
+	public float get(long index) {
+		return this.myValues[(int) index];
+	}
+
+	@Override
+	public void set(long index, float value) {
+		this.myValues[(int) index] = value;
+	}
+}
@@ -1,5 +1,7 @@
 package landscape;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.Arrays;
 
 public class InfluenceMatrix {
@@ -14,6 +16,24 @@ public class InfluenceMatrix {
 	 * each row consists of element indices [0, N-1] in an increasing manner
 	 */
 	private int myDependenceMatrix[][];
+	/**
+	 * each row consists of the indices of the elements whose fitness
+	 * contributions depend on the element of that row, including the element
+	 * itself, in an increasing manner
+	 */
+	private int myReverseDependenceMatrix[][];
+	/**
+	 * for each element, the bit mask of its dependent elements in a location
+	 * id, where element j is bit N-1-j; null when N > 64, since a location id
+	 * is a long
+	 */
+	private long myDependenceMasks[];
+	/**
+	 * the connected components of the dependence graph, ignoring the
+	 * direction of dependence; each block consists of element indices in an
+	 * increasing manner, and the blocks are ordered by their first element
+	 */
+	private int myBlocks[][];
 
 	/**
 	 * If the input matrix is a valid influence matrix, then extract the value
@@ -104,6 +124,9 @@ public class InfluenceMatrix {
 				}
 			}
 		}
+		this.buildReverseDependenceMatrix();
+		this.buildDependenceMasks();
+		this.buildBlocks();
 	}
 
 	/**
@@ -115,11 +138,123 @@ public class InfluenceMatrix {
 	public InfluenceMatrix(InfluenceMatrix inf) {
 		this.myN = inf.getN();
 		this.myK = inf.getK();
-		this.myRawMatrix = inf.getRawMatrix();
-		this.myDependenceMatrix = new int[this.myN][this.myK];
+		if (this.myK == 0) { // save some space
+			this.myRawMatrix = null;
+			this.myDependenceMatrix = null;
+		} else {
+			this.myRawMatrix = inf.getRawMatrix();
+			this.myDependenceMatrix = new int[this.myN][this.myK];
+			for (int i = 0; i < this.myN; i++) {
+				this.myDependenceMatrix[i] = inf.getDependentElementsOf(i);
+			}
+		}
+		this.buildReverseDependenceMatrix();
+		this.buildDependenceMasks();
+		this.buildBlocks();
+	}
+
+	/**
+	 * Build the reverse dependence matrix from the dependence matrix, i.e.
+	 * for each element, find the elements whose fitness contributions depend
+	 * on it.
+	 */
+	private void buildReverseDependenceMatrix() {
+		int counts[] = new int[this.myN];
+		for (int i = 0; i < this.myN; i++) {
+			counts[i]++;
+			for (int j = 0; j < this.myK; j++) {
+				counts[this.myDependenceMatrix[i][j]]++;
+			}
+		}
+		this.myReverseDependenceMatrix = new int[this.myN][];
+		for (int i = 0; i < this.myN; i++) {
+			this.myReverseDependenceMatrix[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		// rows are visited in an increasing manner, so each row of the
+		// reverse dependence matrix is sorted
+		for (int i = 0; i < this.myN; i++) {
+			for (int j = 0; j < this.myK; j++) {
+				int element = this.myDependenceMatrix[i][j];
+				this.myReverseDependenceMatrix[element][counts[element]++] = i;
+			}
+			this.myReverseDependenceMatrix[i][counts[i]++] = i;
+		}
+	}
+
+	/**
+	 * Build the bit mask of the dependent elements of each element from the
+	 * dependence matrix.
+	 */
+	private void buildDependenceMasks() {
+		if (this.myN > 64) {
+			this.myDependenceMasks = null;
+			return;
+		}
+		this.myDependenceMasks = new long[this.myN];
+		for (int i = 0; i < this.myN; i++) {
+			for (int j = 0; j < this.myK; j++) {
+				this.myDependenceMasks[i] |= 1L << (this.myN - 1
+						- this.myDependenceMatrix[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Build the blocks, i.e. the connected components of the dependence
+	 * graph, by union-find over all dependences.
+	 */
+	private void buildBlocks() {
+		int roots[] = new int[this.myN];
 		for (int i = 0; i < this.myN; i++) {
-			this.myDependenceMatrix[i] = inf.getDependentElementsOf(i);
+			roots[i] = i;
+		}
+		for (int i = 0; i < this.myN; i++) {
+			for (int j = 0; j < this.myK; j++) {
+				int root1 = findRoot(roots, i);
+				int root2 = findRoot(roots, this.myDependenceMatrix[i][j]);
+				// the smaller element becomes the root, so the root of a
+				// block is its first element
+				roots[Math.max(root1, root2)] = Math.min(root1, root2);
+			}
+		}
+		int blockOfRoot[] = new int[this.myN];
+		int sizes[] = new int[this.myN];
+		int blocks = 0;
+		for (int i = 0; i < this.myN; i++) {
+			int root = findRoot(roots, i);
+			if (root == i) {
+				blockOfRoot[i] = blocks++;
+			}
+			sizes[blockOfRoot[root]]++;
+		}
+		this.myBlocks = new int[blocks][];
+		for (int b = 0; b < blocks; b++) {
+			this.myBlocks[b] = new int[sizes[b]];
+			sizes[b] = 0;
+		}
+		for (int i = 0; i < this.myN; i++) {
+			int block = blockOfRoot[findRoot(roots, i)];
+			this.myBlocks[block][sizes[block]++] = i;
+		}
+	}
+
+	/**
+	 * Return the root of the given element in the given union-find forest,
+	 * halving the path on the way.
+	 * 
+	 * @param roots
+	 *            the parent of each element, itself for a root
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @return the root of the given element
+	 */
+	private static int findRoot(int roots[], int element) {
+		while (roots[element] != element) {
+			roots[element] = roots[roots[element]];
+			element = roots[element];
 		}
+		return element;
 	}
 
 	/**
@@ -168,6 +303,111 @@ public class InfluenceMatrix {
 		return Arrays.copyOf(this.myDependenceMatrix[element], this.myK);
 	}
 
+	/**
+	 * Return the bit mask of the dependent elements of the given element in a
+	 * location id, where element j is bit N-1-j. Since the dependent elements
+	 * are in an increasing manner, extracting the bits of this mask from a
+	 * location id and packing them in order gives the index3 of the element in
+	 * the fitness contribution table. Only defined when N <= 64.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @return the bit mask of the dependent elements of the given element
+	 */
+	public long getDependenceMaskOf(int element) {
+		return this.myDependenceMasks[element];
+	}
+
+	/**
+	 * Return an array of elements whose fitness contributions depend on the
+	 * given element, including the given element itself. These are the only
+	 * fitness contributions that change when the given element changes.
+	 * 
+	 * E.g., when the dependent elements of element 0 are 2 and 3, and the
+	 * dependent elements of element 1 are 0 and 3, the elements that depend on
+	 * element 3 include 0 and 1.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @return an array of elements whose fitness contributions depend on the
+	 *         given element
+	 */
+	public int[] getDependingElementsOf(int element) {
+		return Arrays.copyOf(this.myReverseDependenceMatrix[element],
+				this.myReverseDependenceMatrix[element].length);
+	}
+
+	/**
+	 * Return the number of blocks, i.e. of independent groups of elements. An
+	 * element depends only on elements of its own block, so the fitness value
+	 * of a location is the sum of the fitness values of its blocks, and every
+	 * block can be optimized on its own.
+	 * 
+	 * E.g., input matrix [1, 1, 0, 0] [1, 1, 0, 0] [0, 0, 1, 1] [0, 0, 1, 1]
+	 * has 2 blocks, {0, 1} and {2, 3}.
+	 * 
+	 * @return the number of blocks, between 1 and N (inclusive)
+	 */
+	public int getBlockCount() {
+		return this.myBlocks.length;
+	}
+
+	/**
+	 * Return the elements of the given block in an increasing manner. The
+	 * blocks are ordered by their first element.
+	 * 
+	 * @param block
+	 *            an integer between 0 and InfluenceMatrix.getBlockCount()-1
+	 *            (inclusive)
+	 * @return an array of the elements of the given block
+	 */
+	public int[] getBlock(int block) {
+		return Arrays.copyOf(this.myBlocks[block], this.myBlocks[block].length);
+	}
+
+	/**
+	 * Return the number of elements of the largest block.
+	 * 
+	 * @return the number of elements of the largest block
+	 */
+	public int getLargestBlockSize() {
+		int result = 0;
+		for (int block[] : this.myBlocks) {
+			result = Math.max(result, block.length);
+		}
+		return result;
+	}
+
+	/**
+	 * Return a fingerprint of the influence matrix, which is the hexadecimal
+	 * SHA-256 digest of N, K and the dependent elements of every element. Two
+	 * influence matrices have the same fingerprint if and only if they are the
+	 * same (barring hash collisions).
+	 * 
+	 * @return a fingerprint of the influence matrix
+	 */
+	public String getFingerprint() {
+		String result = "";
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocate(4 * (2 + this.myN
+					* this.myK));
+			buffer.putInt(this.myN);
+			buffer.putInt(this.myK);
+			for (int i = 0; i < this.myN; i++) {
+				for (int element : this.getDependentElementsOf(i)) {
+					buffer.putInt(element);
+				}
+			}
+			for (byte b : digest.digest(buffer.array())) {
+				result += String.format("%02x", b);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return result;
+	}
+
 	/**
 	 * Return a string representation of the influence matrix
 	 * 
@@ -1,43 +1,252 @@
 package landscape;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
-public class Landscape {
-	private class LRUCache<K, V> extends LinkedHashMap<K, V> {
-
-		private final int capacity;
-
-		public LRUCache(int capacity) {
-			super(capacity, 1.1f, true);
-			this.capacity = capacity;
-		}
-
-		@Override
-		protected boolean removeEldestEntry(Map.Entry eldest) {
-			return size() > capacity;
-		}
-	}
+import landscape.ScoreEvaluator.EvaluatorType;
+import random.MersenneTwisterFast;
+import util.BitCompressor;
+import util.Globals;
 
+public class Landscape {
 	private InfluenceMatrix myInf;
 	private FitnessContributionTable myFit;
-	private LRUCache<Long, Float> myCache;
-	private final int myCacheCapacity = 1 << 10;
+	private FitnessCache myCache;
+	/**
+	 * an evaluator generated for the influence matrix, or null for the
+	 * generic evaluation
+	 */
+	private ScoreEvaluator myEvaluator;
+	/**
+	 * a dense memo of the fitness values of all 2^N locations, NaN for a
+	 * location that has not been scored yet, or null when 2^N values do not
+	 * fit the memory budget
+	 */
+	private float myMemo[];
+	private long myMemoMask;
+	/**
+	 * the epoch in which each memo value was computed, allocated on the first
+	 * shock; null before that, when every value is from epoch 0
+	 */
+	private char myMemoEpochs[];
+	/**
+	 * the current epoch, which is 0 for the landscape without shocks and a
+	 * new number after every shock
+	 */
+	private int myEpoch;
+	private int myLastEpoch;
+	private int myShockPeriod;
+	private int myShockRows;
+	/**
+	 * for each element, the compressor of its dependence mask, which turns a
+	 * location id into the index3 of the element in one pass
+	 */
+	private BitCompressor myIndexCompressors[];
+	/**
+	 * for each element, the bit mask of the elements whose fitness
+	 * contributions depend on it, where element i is bit i
+	 */
+	private long myDependingElementMasks[];
+	private FlipPatternTable myFlipPatterns;
+	/**
+	 * for each block of the influence matrix, the compressor of its elements,
+	 * which turns a location id into the index of the block's configuration;
+	 * null unless the fitness values are evaluated by blocks
+	 */
+	private BitCompressor myBlockCompressors[];
+	/**
+	 * for each block of the influence matrix, the sums of the fitness
+	 * contributions of its elements in all its configurations; null unless
+	 * the fitness values are evaluated by blocks
+	 */
+	private float myBlockSums[][];
+	/**
+	 * the location id of the global maximum, solved once per epoch on
+	 * demand, and the epoch in which it was solved, or -1
+	 */
+	private long myOptimumLocId;
+	private int myOptimumEpoch;
+	private boolean myIsNormalizedScoresOn;
+	/**
+	 * the largest N whose locations fit in a long location id; larger
+	 * landscapes need WideLandscape
+	 */
+	public final static int MAX_N = 64;
+	/**
+	 * the largest block whose configurations still fit in an array
+	 */
+	public final static int MAX_BLOCK_SIZE = 30;
+	/**
+	 * the largest N whose dense memo still fits in an array
+	 */
+	private final static int MAX_MEMO_N = 30;
 
 	/**
-	 * Internally create a LRU cache of the fitness values. The cache size is
-	 * 2^10.
+	 * Internally create a fitness contribution table and a cache of the
+	 * fitness values with the default settings, i.e. an eager table and a LRU
+	 * cache of size 2^10.
 	 * 
 	 * @param inf
 	 *            an influence matrix object
 	 */
 	public Landscape(InfluenceMatrix inf) {
+		this(inf, new LandscapeSettings());
+	}
+
+	/**
+	 * Internally create a fitness contribution table and a cache of the
+	 * fitness values according to the given settings. If the fitness values of
+	 * all 2^N locations fit the memo budget of the settings, a dense memo is
+	 * used instead of the cache; it is filled on first touch and shared by all
+	 * simulations on this landscape. If the influence matrix splits into
+	 * several blocks, whose configurations all fit the memo budget together,
+	 * the contribution sums of every configuration of every block are kept,
+	 * and a fitness value is evaluated by one lookup per block. If N is larger
+	 * than Landscape.MAX_N, the program will exit. The table is drawn from
+	 * Globals.randomGen for the current run.
+	 * 
+	 * @param inf
+	 *            an influence matrix object
+	 * @param settings
+	 *            a landscape settings object
+	 */
+	public Landscape(InfluenceMatrix inf, LandscapeSettings settings) {
+		this(inf, settings, Globals.getSeed(), Globals.randomGen);
+	}
+
+	/**
+	 * Internally create a fitness contribution table of the given run and a
+	 * cache of the fitness values according to the given settings, as
+	 * Landscape(InfluenceMatrix, LandscapeSettings) does. The table is drawn
+	 * from the given random generator instead of Globals.randomGen, so a
+	 * landscape can be built on another thread ahead of its run.
+	 * 
+	 * @param inf
+	 *            an influence matrix object
+	 * @param settings
+	 *            a landscape settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param random
+	 *            the random generator of the run
+	 */
+	public Landscape(InfluenceMatrix inf, LandscapeSettings settings,
+			int seed, MersenneTwisterFast random) {
+		if (inf.getN() > MAX_N) {
+			System.out.println("ERROR : N = " + inf.getN()
+					+ " does not fit a location id of " + MAX_N
+					+ " bits, use WideLandscape instead");
+			System.exit(1);
+		}
+		if (settings.getShockRows() > inf.getN()) {
+			System.out.println("ERROR : cannot shock "
+					+ settings.getShockRows() + " of " + inf.getN()
+					+ " elements");
+			System.exit(1);
+		}
 		// assign private fields
 		this.myInf = inf;
-		this.myFit = new FitnessContributionTable(this.myInf);
-		this.myCache = new LRUCache<Long, Float>(this.myCacheCapacity);
+		this.myEpoch = 0;
+		this.myLastEpoch = 0;
+		this.myMemoEpochs = null;
+		this.myShockPeriod = settings.getShockPeriod();
+		this.myShockRows = settings.getShockRows();
+		this.myOptimumLocId = -1L;
+		this.myOptimumEpoch = -1;
+		this.myIsNormalizedScoresOn = settings.isNormalizedScoresOn();
+		switch (settings.getTableType()) {
+		case EAGER:
+			this.myFit = new EagerFitnessContributionTable(this.myInf,
+					settings, seed, random);
+			break;
+		case LAZY:
+			this.myFit = new LazyFitnessContributionTable(this.myInf, random);
+			break;
+		}
+		this.myEvaluator = null;
+		if (settings.getEvaluatorType() == EvaluatorType.GENERATED) {
+			this.myEvaluator = ScoreEvaluator.generate(this.myInf, this.myFit);
+		}
+		switch (settings.getEvictionPolicy()) {
+		case LRU:
+			this.myCache = new LruFitnessCache(settings.getCacheCapacity());
+			break;
+		case CLOCK:
+			this.myCache = new ClockFitnessCache(settings.getCacheCapacity());
+			break;
+		case TINY_LFU:
+			this.myCache = new TinyLfuFitnessCache(settings.getCacheCapacity());
+			break;
+		}
+		int n = this.myInf.getN();
+		if (n <= MAX_MEMO_N && (4L << n) <= settings.getMemoBudget()) {
+			this.myMemo = new float[1 << n];
+			Arrays.fill(this.myMemo, Float.NaN);
+			this.myMemoMask = (1L << n) - 1;
+		} else {
+			this.myMemo = null;
+			this.myMemoMask = 0L;
+		}
+		this.myFlipPatterns = new FlipPatternTable(n);
+		this.myIndexCompressors = new BitCompressor[this.myInf.getN()];
+		this.myDependingElementMasks = new long[this.myInf.getN()];
+		for (int i = 0; i < this.myInf.getN(); i++) {
+			this.myIndexCompressors[i] = new BitCompressor(
+					this.myInf.getDependenceMaskOf(i));
+			for (int element : this.myInf.getDependingElementsOf(i)) {
+				this.myDependingElementMasks[i] |= (1L << element);
+			}
+		}
+		this.myBlockCompressors = null;
+		this.myBlockSums = null;
+		if (this.myEvaluator == null
+				&& this.fitsBlockSums(settings.getMemoBudget())) {
+			int blocks = this.myInf.getBlockCount();
+			this.myBlockCompressors = new BitCompressor[blocks];
+			this.myBlockSums = new float[blocks][];
+			for (int b = 0; b < blocks; b++) {
+				this.myBlockCompressors[b] = new BitCompressor(
+						this.getElementMaskOfBlock(b));
+				this.myBlockSums[b] = new float[1 << this.getBlockSize(b)];
+			}
+			this.updateBlockSums(-1L);
+		}
+	}
+
+	/**
+	 * Return true if the influence matrix has more than one block, and the
+	 * contribution sums of all configurations of all blocks fit the given
+	 * memory budget.
+	 * 
+	 * @param budget
+	 *            a memory budget in bytes
+	 * @return true if the fitness values should be evaluated by blocks
+	 */
+	private boolean fitsBlockSums(long budget) {
+		if (this.myInf.getBlockCount() < 2
+				|| this.myInf.getLargestBlockSize() > MAX_BLOCK_SIZE) {
+			return false;
+		}
+		long bytes = 0L;
+		for (int b = 0; b < this.myInf.getBlockCount(); b++) {
+			bytes += 4L << this.getBlockSize(b);
+		}
+		return bytes <= budget;
+	}
+
+	/**
+	 * Recompute the contribution sums of every block that has an element of
+	 * the given mask, e.g. after its rows have been shocked.
+	 * 
+	 * @param elementMask
+	 *            a bit mask of elements in a location id
+	 */
+	private void updateBlockSums(long elementMask) {
+		for (int b = 0; b < this.myBlockSums.length; b++) {
+			if ((this.myBlockCompressors[b].getMask() & elementMask) != 0) {
+				this.computeBlockSums(b, this.myBlockSums[b]);
+			}
+		}
 	}
 
 	/**
@@ -58,6 +267,299 @@ public class Landscape {
 		return this.myInf.getK();
 	}
 
+	/**
+	 * Return the current epoch of the landscape, which is 0 when no shock is
+	 * in effect and changes with every shock. A fitness value computed in
+	 * another epoch is stale.
+	 * 
+	 * @return the current epoch of the landscape
+	 */
+	public int getEpoch() {
+		return this.myEpoch;
+	}
+
+	/**
+	 * Return the number of simulation rounds between two shocks, or 0 if the
+	 * landscape is never shocked.
+	 * 
+	 * @return the number of rounds between two shocks, or 0
+	 */
+	public int getShockPeriod() {
+		return this.myShockPeriod;
+	}
+
+	/**
+	 * Shock the landscape: draw new fitness contributions for the configured
+	 * number of distinct elements, chosen uniformly at random, from the given
+	 * random generator, and start a new epoch. Memoized and cached fitness
+	 * values are not flushed; they become stale by their epoch tags, so a
+	 * shock costs O(shocked rows x 2^K) regardless of the cache size.
+	 * 
+	 * @param random
+	 *            a random generator
+	 */
+	public void shock(MersenneTwisterFast random) {
+		// partial Fisher-Yates shuffle of the rows
+		int rows[] = new int[this.myInf.getN()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+		for (int i = 0; i < this.myShockRows; i++) {
+			int j = i + random.nextInt(rows.length - i);
+			int row = rows[j];
+			rows[j] = rows[i];
+			rows[i] = row;
+			this.myFit.shockRow(row, random);
+		}
+		if (this.myBlockSums != null) {
+			long shocked = 0L;
+			for (int i = 0; i < this.myShockRows; i++) {
+				shocked |= 1L << (this.myInf.getN() - 1 - rows[i]);
+			}
+			this.updateBlockSums(shocked);
+		}
+		if (this.myMemo != null) {
+			if (this.myMemoEpochs == null) {
+				this.myMemoEpochs = new char[this.myMemo.length];
+			} else if (this.myLastEpoch == Character.MAX_VALUE) {
+				// the tags are about to wrap around, so start afresh
+				Arrays.fill(this.myMemo, Float.NaN);
+				Arrays.fill(this.myMemoEpochs, (char) 0);
+				this.myLastEpoch = 0;
+			}
+		}
+		this.setEpoch(++this.myLastEpoch);
+	}
+
+	/**
+	 * Undo all shocks, so that the landscape is the same as when it was
+	 * built, e.g. before the next strategy is simulated on it. The values
+	 * memoized or cached before the first shock become valid again.
+	 */
+	public void undoShocks() {
+		if (this.myEpoch != 0) {
+			this.myFit.undoShocks();
+			if (this.myBlockSums != null) {
+				this.updateBlockSums(-1L);
+			}
+			this.setEpoch(0);
+		}
+	}
+
+	/**
+	 * Move the landscape and its cache to the given epoch.
+	 * 
+	 * @param epoch
+	 *            an integer, which identifies the state of the landscape
+	 */
+	private void setEpoch(int epoch) {
+		this.myEpoch = epoch;
+		this.myCache.setEpoch(epoch);
+	}
+
+	/**
+	 * Return the location id of the global maximum of the landscape in its
+	 * current epoch. It is solved exactly by GlobalOptimumSolver on the first
+	 * call in each epoch, and kept until the next shock.
+	 * 
+	 * @return the location id of the global maximum
+	 */
+	public long getGlobalMaxLocId() {
+		if (this.myOptimumEpoch != this.myEpoch) {
+			this.myOptimumLocId = new GlobalOptimumSolver(this.myInf, this)
+					.solve();
+			this.myOptimumEpoch = this.myEpoch;
+		}
+		return this.myOptimumLocId;
+	}
+
+	/**
+	 * Return the fitness value of the global maximum of the landscape in its
+	 * current epoch; see Landscape.getGlobalMaxLocId().
+	 * 
+	 * @return the fitness value of the global maximum
+	 */
+	public float getGlobalMax() {
+		return this.computeScore(this.getGlobalMaxLocId());
+	}
+
+	/**
+	 * Return true if the simulation output should also give every fitness
+	 * value divided by the global maximum.
+	 * 
+	 * @return true if normalized fitness values are written
+	 */
+	public boolean isNormalizedScoresOn() {
+		return this.myIsNormalizedScoresOn;
+	}
+
+	/**
+	 * Return the number of blocks of the influence matrix; see
+	 * InfluenceMatrix.getBlockCount().
+	 * 
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return this.myInf.getBlockCount();
+	}
+
+	/**
+	 * Return the number of elements of the given block.
+	 * 
+	 * @param block
+	 *            an integer between 0 and Landscape.getBlockCount()-1
+	 *            (inclusive)
+	 * @return the number of elements of the given block
+	 */
+	public int getBlockSize(int block) {
+		return this.myInf.getBlock(block).length;
+	}
+
+	/**
+	 * Return the fitness values of all configurations of the given block,
+	 * indexed by the bits of the block's elements packed in the order of the
+	 * location id, i.e. the last element of the block is bit 0 of the index.
+	 * The fitness value of a block is the sum of the fitness contributions of
+	 * its elements divided by N, so the fitness value of a location is the sum
+	 * of the fitness values of its blocks, up to rounding.
+	 * 
+	 * The values are computed into a new array on every call, which is not
+	 * kept by the landscape, in O(2^|block| x K) lookups unless the landscape
+	 * evaluates fitness values by blocks. Calls for different blocks may be
+	 * made from several threads at once.
+	 * 
+	 * If the block has more than Landscape.MAX_BLOCK_SIZE elements, the
+	 * program will exit.
+	 * 
+	 * @param block
+	 *            an integer between 0 and Landscape.getBlockCount()-1
+	 *            (inclusive)
+	 * @return the fitness values of all configurations of the given block
+	 */
+	public float[] getBlockScores(int block) {
+		int size = this.getBlockSize(block);
+		if (size > MAX_BLOCK_SIZE) {
+			System.out.println("ERROR : block of " + size
+					+ " elements is too large to enumerate");
+			System.exit(1);
+		}
+		float result[] = new float[1 << size];
+		if (this.myBlockSums != null) {
+			System.arraycopy(this.myBlockSums[block], 0, result, 0,
+					result.length);
+		} else {
+			this.computeBlockSums(block, result);
+		}
+		int n = this.myInf.getN();
+		for (int i = 0; i < result.length; i++) {
+			result[i] /= n;
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the sum of the fitness contributions of the elements of the
+	 * given block, in the order of the elements, for every configuration of
+	 * the block, and store them in the given array, indexed as
+	 * Landscape.getBlockScores() is. The configurations are visited in
+	 * Gray-code order, so only the contributions that depend on the one
+	 * flipped element are looked up again.
+	 * 
+	 * @param block
+	 *            an integer between 0 and Landscape.getBlockCount()-1
+	 *            (inclusive)
+	 * @param result
+	 *            an array of size 2^|block|, which receives the sums
+	 */
+	private void computeBlockSums(int block, float result[]) {
+		int elements[] = this.myInf.getBlock(block);
+		int n = this.myInf.getN();
+		float contributions[] = new float[n];
+		long locId = 0L;
+		float sum = 0.0f;
+		for (int element : elements) {
+			contributions[element] = this.computeContributionOf(element, locId);
+			sum += contributions[element];
+		}
+		result[0] = sum;
+		for (int i = 1; i < result.length; i++) {
+			// bit j of the index is the j-th last element of the block
+			int flipped = elements[elements.length - 1
+					- Integer.numberOfTrailingZeros(i)];
+			locId ^= 1L << (n - 1 - flipped);
+			sum = 0.0f;
+			for (int element : elements) {
+				if ((this.myDependingElementMasks[flipped] & (1L << element)) != 0) {
+					contributions[element] = this.computeContributionOf(
+							element, locId);
+				}
+				sum += contributions[element];
+			}
+			result[i ^ (i >>> 1)] = sum;
+		}
+	}
+
+	/**
+	 * Return the bit mask of the elements of the given block in a location id.
+	 * 
+	 * @param block
+	 *            an integer between 0 and Landscape.getBlockCount()-1
+	 *            (inclusive)
+	 * @return the bit mask of the elements of the given block
+	 */
+	private long getElementMaskOfBlock(int block) {
+		int n = this.myInf.getN();
+		long result = 0L;
+		for (int element : this.myInf.getBlock(block)) {
+			result |= 1L << (n - 1 - element);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the location id whose elements of the given block are set as in
+	 * the given index of Landscape.getBlockScores(), and whose other elements
+	 * are all 0. Location ids of different blocks can be combined by OR.
+	 * 
+	 * @param block
+	 *            an integer between 0 and Landscape.getBlockCount()-1
+	 *            (inclusive)
+	 * @param index
+	 *            an index of the block's configurations
+	 * @return the location id of the given configuration of the block
+	 */
+	public long getLocIdOfBlockIndex(int block, int index) {
+		int elements[] = this.myInf.getBlock(block);
+		int n = this.myInf.getN();
+		long result = 0L;
+		for (int j = 0; j < elements.length; j++) {
+			if ((index & (1 << j)) != 0) {
+				result |= 1L << (n - 1 - elements[elements.length - 1 - j]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the cache of the fitness values, e.g. for its hit rate. The cache
+	 * is not used if the landscape has a dense memo.
+	 * 
+	 * @return the cache of the fitness values
+	 */
+	public FitnessCache getCache() {
+		return this.myCache;
+	}
+
+	/**
+	 * Return true if the landscape keeps a dense memo of all 2^N fitness
+	 * values instead of using the cache.
+	 * 
+	 * @return true if the landscape keeps a dense memo
+	 */
+	public boolean hasMemo() {
+		return this.myMemo != null;
+	}
+
 	/**
 	 * Return the fitness value of the given location id. If the performance
 	 * value was cached, return the cached value. Otherwise, compute and cache
@@ -68,14 +570,221 @@ public class Landscape {
 	 * @return the fitness value of the given location id
 	 */
 	public float getScoreOfLocId(long locId) {
-		if (this.myCache.containsKey(locId)) {
-			return this.myCache.get(locId);
+		float value = this.lookUp(locId);
+		if (!Float.isNaN(value)) {
+			return value;
+		}
+		value = this.computeScoceForLocId(locId);
+		this.store(locId, value);
+		return value;
+	}
+
+	/**
+	 * Return the memoized or cached fitness value of the given location id, or
+	 * NaN if it is neither memoized nor cached.
+	 * 
+	 * @param locId
+	 *            a non-negative long, which represents a configuration/location
+	 * @return the memoized or cached fitness value, or NaN
+	 */
+	private float lookUp(long locId) {
+		if (this.myMemo != null) {
+			int index = (int) (locId & this.myMemoMask);
+			if (this.myMemoEpochs != null
+					&& this.myMemoEpochs[index] != this.myEpoch) {
+				return Float.NaN;
+			}
+			return this.myMemo[index];
+		}
+		return this.myCache.get(locId);
+	}
+
+	/**
+	 * Memoize or cache the fitness value of the given location id. Concurrent
+	 * writes to the dense memo are racy but idempotent, since every thread
+	 * computes the same value for the same location.
+	 * 
+	 * @param locId
+	 *            a non-negative long, which represents a configuration/location
+	 * @param value
+	 *            the fitness value of the location id
+	 */
+	private void store(long locId, float value) {
+		if (this.myMemo != null) {
+			int index = (int) (locId & this.myMemoMask);
+			this.myMemo[index] = value;
+			if (this.myMemoEpochs != null) {
+				this.myMemoEpochs[index] = (char) this.myEpoch;
+			}
+		} else {
+			this.myCache.put(locId, value);
+		}
+	}
+
+	/**
+	 * Compute the fitness contribution of each element at the given location
+	 * id and store them in the given array. Return the fitness value of the
+	 * given location id, which is the same as Landscape.getScoreOfLocId().
+	 * 
+	 * @param locId
+	 *            a non-negative long, which represents a configuration/location
+	 * @param contributions
+	 *            an array of size N, which receives the fitness contributions
+	 * @return the fitness value of the given location id
+	 */
+	public float computeContributions(long locId, float contributions[]) {
+		float result = 0.0f;
+		for (int i = 0; i < this.myInf.getN(); i++) {
+			contributions[i] = this.computeContributionOf(i, locId);
+			result += contributions[i];
+		}
+		if (this.myBlockSums != null) {
+			return this.computeScoreOfBlocks(locId);
+		}
+		return result / this.myInf.getN();
+	}
+
+	/**
+	 * Return the fitness value of the location id that differs from the given
+	 * base location id in the bits of the given flip mask. If the performance
+	 * value was cached, return the cached value. Otherwise, compute and cache
+	 * the performance value, then return.
+	 * 
+	 * Only the fitness contributions of the elements that depend on a flipped
+	 * element are looked up again; the others are taken from the given base
+	 * contributions. The contributions are summed up in the same order as
+	 * Landscape.getScoreOfLocId() does, so the result is exactly the same.
+	 * 
+	 * @param baseLocId
+	 *            a non-negative long, which represents a configuration/location
+	 * @param baseContributions
+	 *            the fitness contributions of the base location id, as
+	 *            computed by Landscape.computeContributions()
+	 * @param flipMask
+	 *            a long, whose bits indicate the bits to be toggled in the base
+	 *            location id
+	 * @return the fitness value of the location id baseLocId ^ flipMask
+	 */
+	public float getScoreOfFlip(long baseLocId, float baseContributions[],
+			long flipMask) {
+		long locId = baseLocId ^ flipMask;
+		float cached = this.lookUp(locId);
+		if (!Float.isNaN(cached)) {
+			return cached;
 		}
-		float value = this.computeScoceForLocId(locId);
-		this.myCache.put(locId, value);
+		float value = this.computeScoreOfFlip(baseLocId, baseContributions,
+				flipMask);
+		this.store(locId, value);
 		return value;
 	}
 
+	/**
+	 * Compute and return the fitness value of the given location id without
+	 * looking it up in or adding it to the memo or the cache. Unlike
+	 * Landscape.getScoreOfLocId(), this method may be called from several
+	 * threads at once.
+	 * 
+	 * @param locId
+	 *            a non-negative long, which represents a configuration/location
+	 * @return the fitness value of the given location id
+	 */
+	public float computeScore(long locId) {
+		return this.computeScoceForLocId(locId);
+	}
+
+	/**
+	 * Compute and return the fitness value of the location id that differs
+	 * from the given base location id in the bits of the given flip mask,
+	 * without looking it up in or adding it to the memo or the cache. The
+	 * result is the same as Landscape.getScoreOfFlip(). This method may be
+	 * called from several threads at once.
+	 * 
+	 * @param baseLocId
+	 *            a non-negative long, which represents a configuration/location
+	 * @param baseContributions
+	 *            the fitness contributions of the base location id, as
+	 *            computed by Landscape.computeContributions()
+	 * @param flipMask
+	 *            a long, whose bits indicate the bits to be toggled in the base
+	 *            location id
+	 * @return the fitness value of the location id baseLocId ^ flipMask
+	 */
+	public float computeScoreOfFlip(long baseLocId, float baseContributions[],
+			long flipMask) {
+		long locId = baseLocId ^ flipMask;
+		if (this.myBlockSums != null) {
+			return this.computeScoreOfBlocks(locId);
+		}
+		long changed = this.getChangedElementsOf(flipMask);
+		int n = this.myInf.getN();
+		float result = 0.0f;
+		for (int i = 0; i < n; i++) {
+			if ((changed & (1L << i)) != 0) {
+				result += this.computeContributionOf(i, locId);
+			} else {
+				result += baseContributions[i];
+			}
+		}
+		return result / n;
+	}
+
+	/**
+	 * Update the given fitness contributions of the given base location id in
+	 * place, so that they become the fitness contributions of the location id
+	 * baseLocId ^ flipMask, and return the fitness value of that location id.
+	 * Only the contributions of the elements that depend on a flipped element
+	 * are looked up again, so a walk that flips a few bits per step costs
+	 * O(K) lookups per step. The memo and the cache are not used.
+	 * 
+	 * @param baseLocId
+	 *            a non-negative long, which represents a configuration/location
+	 * @param contributions
+	 *            the fitness contributions of the base location id, which are
+	 *            overwritten with those of baseLocId ^ flipMask
+	 * @param flipMask
+	 *            a long, whose bits indicate the bits to be toggled in the base
+	 *            location id
+	 * @return the fitness value of the location id baseLocId ^ flipMask
+	 */
+	public float moveContributions(long baseLocId, float contributions[],
+			long flipMask) {
+		long locId = baseLocId ^ flipMask;
+		long changed = this.getChangedElementsOf(flipMask);
+		int n = this.myInf.getN();
+		float result = 0.0f;
+		for (int i = 0; i < n; i++) {
+			if ((changed & (1L << i)) != 0) {
+				contributions[i] = this.computeContributionOf(i, locId);
+			}
+			result += contributions[i];
+		}
+		if (this.myBlockSums != null) {
+			return this.computeScoreOfBlocks(locId);
+		}
+		return result / n;
+	}
+
+	/**
+	 * Return the bit mask of the elements whose fitness contributions change
+	 * when the bits of the given flip mask are toggled, where element i is bit
+	 * i. Bits of the flip mask beyond N are ignored.
+	 * 
+	 * @param flipMask
+	 *            a long, whose bits indicate the bits to be toggled in a
+	 *            location id
+	 * @return the bit mask of the elements whose contributions change
+	 */
+	private long getChangedElementsOf(long flipMask) {
+		int n = this.myInf.getN();
+		long result = 0L;
+		long bits = flipMask & (-1L >>> (64 - n));
+		for (; bits != 0; bits &= bits - 1) {
+			int element = n - 1 - Long.numberOfTrailingZeros(bits);
+			result |= this.myDependingElementMasks[element];
+		}
+		return result;
+	}
+
 	/**
 	 * Define the distance between two configurations/locations to be the number
 	 * of different element values.
@@ -113,25 +822,67 @@ public class Landscape {
 	 */
 	public HashSet<Long> getNeighboursInclusive(long locId,
 			HashSet<Integer> elements, int processingPower) {
+		long patterns[] = this.getFlipPatterns(elements, processingPower);
 		HashSet<Long> result = new HashSet<Long>();
-		// base case
-		if (processingPower == 0 || elements.isEmpty()) {
-			result.add(locId);
-			return result;
-		}
-		// recursion
-		HashSet<Integer> reducedElements = new HashSet<Integer>(elements);
-		Iterator<Integer> itr = reducedElements.iterator();
-		long toggledLocId = this.toggleElementInLocId(locId, itr.next());
-		itr.remove();
-
-		result = this.getNeighboursInclusive(toggledLocId, reducedElements,
-				processingPower - 1);
-		result.addAll(this.getNeighboursInclusive(locId, reducedElements,
-				processingPower));
+		for (long pattern : patterns) {
+			result.add(locId ^ pattern);
+		}
+		result.add(locId);
+		return result;
+	}
+
+	/**
+	 * Return the bit mask of the given elements in a location id, i.e. the
+	 * bits that a search in the given elements may change.
+	 * 
+	 * @param elements
+	 *            a set of element indices
+	 * @return the bit mask of the given elements
+	 */
+	public long getElementMask(HashSet<Integer> elements) {
+		return this.myFlipPatterns.getMaskOf(elements);
+	}
+
+	/**
+	 * Return the set of the element indices of the given bit mask, i.e. the
+	 * inverse of Landscape.getElementMask().
+	 * 
+	 * @param elementMask
+	 *            a bit mask of element indices
+	 * @return the set of the element indices
+	 */
+	public HashSet<Integer> getElements(long elementMask) {
+		HashSet<Integer> result = new HashSet<Integer>();
+		int n = this.myInf.getN();
+		for (int i = 0; i < n; i++) {
+			if ((elementMask & (1L << (n - 1 - i))) != 0) {
+				result.add(i);
+			}
+		}
 		return result;
 	}
 
+	/**
+	 * Return the XOR masks of all location ids, other than the given location
+	 * id itself, whose distances to a location id w.r.t. the given elements
+	 * are smaller or equal to the given processing power; see
+	 * Landscape.getNeighboursInclusive(). The masks are enumerated anew into
+	 * a new array on every call.
+	 * 
+	 * @param elements
+	 *            a set of element indices, which indicates the changeable
+	 *            elements in a configuration
+	 * @param processingPower
+	 *            a non-negative integer, which indicates the maximum number of
+	 *            changes to a configuration
+	 * @return the flip patterns of the given elements and processing power
+	 */
+	public long[] getFlipPatterns(HashSet<Integer> elements,
+			int processingPower) {
+		return this.myFlipPatterns.getPatterns(
+				this.myFlipPatterns.getMaskOf(elements), processingPower);
+	}
+
 	/**
 	 * Compute and return the fitness value of the given location id.
 	 * 
@@ -140,65 +891,55 @@ public class Landscape {
 	 * @return the fitness value of the given location id
 	 */
 	private float computeScoceForLocId(long locId) {
-		// convert location id to configuration
-		int location[] = this.locIdToLocation(locId);
-		// compute fitness value based on the configuration using fitness
-		// contribution table
+		if (this.myEvaluator != null) {
+			return this.myEvaluator.computeScore(locId);
+		}
+		if (this.myBlockSums != null) {
+			return this.computeScoreOfBlocks(locId);
+		}
+		// compute fitness value directly from the bits of the location id
+		// using fitness contribution table, without any allocation
 		float result = 0.0f;
 		for (int i = 0; i < this.myInf.getN(); i++) {
-			// indices in fitness contribution table
-			int index1 = i;
-			int index2 = location[i];
-			int index3 = 0;
-			int dependence[] = this.myInf.getDependentElementsOf(i);
-			for (int j = 0; j < this.myInf.getK(); j++) {
-				index3 <<= 1;
-				index3 += location[dependence[j]];
-			}
-			result += this.myFit.getValueOf(index1, index2, index3);
+			result += this.computeContributionOf(i, locId);
 		}
 		return result / this.myInf.getN();
 	}
 
 	/**
-	 * Return an integer array that "looks" like the binary form of the given
-	 * location id. E.g., when N = 4, location id = 13, then the array is
-	 * [1,1,0,1]
+	 * Compute and return the fitness value of the given location id as the sum
+	 * of the contribution sums of its blocks, with one lookup per block. If
+	 * every block has a single element, the contributions are summed up in the
+	 * same order as the generic loop does, so the fitness value is exactly the
+	 * same; otherwise it is the same up to rounding.
 	 * 
 	 * @param locId
 	 *            a non-negative long, which represents a configuration/location
-	 * @return an integer array that "looks" like the binary form of the given
-	 *         location id
+	 * @return the fitness value of the given location id
 	 */
-	private int[] locIdToLocation(long locId) {
-		int location[] = new int[this.myInf.getN()];
-		for (int j = 0; j < this.myInf.getN(); j++) {
-			location[j] = (int) ((locId >> (this.myInf.getN() - 1 - j)) % 2);
+	private float computeScoreOfBlocks(long locId) {
+		float result = 0.0f;
+		for (int b = 0; b < this.myBlockSums.length; b++) {
+			result += this.myBlockSums[b][(int) this.myBlockCompressors[b]
+					.compress(locId)];
 		}
-		return location;
+		return result / this.myInf.getN();
 	}
 
 	/**
-	 * Return a location id whose binary form is one bit different from the
-	 * given location id, and the position of the different bit is determined by
-	 * the given element index.
-	 * 
-	 * E.g., when N = 4, location id = 13, element index = 1, then the binary
-	 * form is [1,1,0,1]. The new binary form is [1,0,0,1] and the new location
-	 * id is 9.
+	 * Compute and return the fitness contribution of the given element at the
+	 * given location id.
 	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
 	 * @param locId
 	 *            a non-negative long, which represents a configuration/location
-	 * @param elementIdx
-	 *            a non-negative integer, which indicates the position of the
-	 *            bit to be toggled
-	 * @return a location id whose binary form is one bit different from the
-	 *         given location id, and the position of the different bit is
-	 *         determined by the given element index.
-	 */
-	private long toggleElementInLocId(long locId, int elementIdx) {
-		int shiftAmount = this.myInf.getN() - 1 - elementIdx;
-		return locId + (1 << shiftAmount)
-				* ((locId >> shiftAmount) % 2 == 0 ? 1 : -1);
+	 * @return the fitness contribution of the given element
+	 */
+	float computeContributionOf(int element, long locId) {
+		int n = this.myInf.getN();
+		int index2 = (int) ((locId >> (n - 1 - element)) & 1);
+		int index3 = (int) this.myIndexCompressors[element].compress(locId);
+		return this.myFit.getValueOf(element, index2, index3);
 	}
 }
@@ -0,0 +1,257 @@
+package landscape;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import landscape.FitnessContributionTable.GenerationOrder;
+import random.MersenneTwisterFast;
+
+/**
+ * An on-disk store of eager fitness contribution tables, shared by runs, cases
+ * and processes. A table is keyed by the fingerprint of its influence matrix,
+ * the run seed and its generation order, and is stored as a header followed
+ * by the values in the layout of EagerFitnessContributionTable, so that it
+ * can be memory-mapped without any copying.
+ *
+ * The header keeps the state of the random generator right before and right
+ * after the table was generated. A stored table is reused only if the current
+ * random generator is in exactly the "before" state, i.e. only if generation
+ * would have produced the very same values; the random generator is then moved
+ * to the "after" state, so the rest of the run is not affected by the reuse.
+ */
+public class LandscapeLibrary {
+	private final static int MAGIC = 0x4e4b4c53; // "NKLS"
+	private final static int VERSION = 1;
+	/**
+	 * the byte offset of the values, which leaves room for the header and keeps
+	 * the values page-aligned
+	 */
+	private final static long DATA_OFFSET = 8192;
+
+	private File myDir;
+
+	/**
+	 * Create a landscape library in the given directory. The directory is
+	 * created if it does not exist.
+	 *
+	 * @param dir
+	 *            a directory
+	 */
+	public LandscapeLibrary(File dir) {
+		this.myDir = dir;
+		if (!this.myDir.isDirectory() && !this.myDir.mkdirs()) {
+			System.out.println("ERROR : cannot create landscape library "
+					+ dir);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Return the directory of the library.
+	 *
+	 * @return the directory of the library
+	 */
+	public File getDir() {
+		return this.myDir;
+	}
+
+	/**
+	 * Return the file in which the table of the given influence matrix, the
+	 * given run seed and the given generation order is stored. Legacy tables
+	 * keep the file names of older libraries.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param order
+	 *            the generation order of the table
+	 * @return the file of the table
+	 */
+	public File getFileOf(InfluenceMatrix inf, int seed,
+			GenerationOrder order) {
+		return new File(this.myDir, "n" + inf.getN() + "k" + inf.getK() + "_"
+				+ inf.getFingerprint().substring(0, 16) + "_s" + seed
+				+ (order == GenerationOrder.LEGACY ? "" : "_parallel")
+				+ ".ldscp");
+	}
+
+	/**
+	 * Return a read-only mapped storage of the stored table of the given
+	 * influence matrix and the given run seed, and move the given random
+	 * generator to the state right after generating that table. Return null,
+	 * and leave the random generator untouched, if no such table is stored or
+	 * if the stored table is not bit-identical to what generation would
+	 * produce from the current state of the random generator.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param order
+	 *            the generation order of the table
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 * @param random
+	 *            the random generator that would generate the table
+	 * @return a read-only mapped storage of the stored table, or null
+	 */
+	public ContributionStorage load(InfluenceMatrix inf, int seed,
+			GenerationOrder order, long size, MersenneTwisterFast random) {
+		File file = this.getFileOf(inf, seed, order);
+		if (!file.isFile() || file.length() < DATA_OFFSET + size * 4) {
+			return null;
+		}
+		byte after[] = null;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION
+						|| !in.readUTF().equals(inf.getFingerprint())
+						|| in.readInt() != seed || in.readLong() != size
+						|| in.readBoolean() != isBigEndian()) {
+					return null;
+				}
+				byte before[] = new byte[in.readInt()];
+				in.readFully(before);
+				if (!Arrays.equals(before, stateOf(random))) {
+					return null;
+				}
+				after = new byte[in.readInt()];
+				in.readFully(after);
+			} finally {
+				in.close();
+			}
+			random.readState(new DataInputStream(new ByteArrayInputStream(
+					after)));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		return new MappedContributionStorage(file, DATA_OFFSET, size,
+				MapMode.READ_ONLY);
+	}
+
+	/**
+	 * Return a writable mapped storage in a new temporary file of the library,
+	 * in which a table of the given size can be generated and then stored by
+	 * LandscapeLibrary.save().
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 * @return a writable mapped storage in a new temporary file
+	 */
+	public MappedContributionStorage create(long size) {
+		File file = null;
+		try {
+			file = File.createTempFile("ldscp", ".tmp", this.myDir);
+			file.deleteOnExit();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out
+					.println("ERROR : cannot create file in landscape library "
+							+ this.myDir);
+			System.exit(1);
+		}
+		return new MappedContributionStorage(file, DATA_OFFSET, size,
+				MapMode.READ_WRITE);
+	}
+
+	/**
+	 * Write the header of the generated table in the given storage, which must
+	 * come from LandscapeLibrary.create(), and publish it as the stored table
+	 * of the given influence matrix and the given run seed. The file is renamed
+	 * atomically, so other processes either see the complete table or none.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param order
+	 *            the generation order of the table
+	 * @param storage
+	 *            a mapped storage, which holds the generated table
+	 * @param before
+	 *            the state of the random generator right before generating
+	 *            the table, as returned by LandscapeLibrary.stateOf()
+	 * @param random
+	 *            the random generator that generated the table
+	 */
+	public void save(InfluenceMatrix inf, int seed, GenerationOrder order,
+			MappedContributionStorage storage, byte before[],
+			MersenneTwisterFast random) {
+		try {
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(header);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(inf.getFingerprint());
+			out.writeInt(seed);
+			out.writeLong(storage.getSize());
+			out.writeBoolean(isBigEndian());
+			out.writeInt(before.length);
+			out.write(before);
+			byte after[] = stateOf(random);
+			out.writeInt(after.length);
+			out.write(after);
+			out.close();
+			if (header.size() > DATA_OFFSET) {
+				System.out
+						.println("ERROR : landscape library header is too large");
+				System.exit(1);
+			}
+			storage.force();
+			RandomAccessFile raf = new RandomAccessFile(storage.getFile(), "rw");
+			raf.write(header.toByteArray());
+			raf.getFD().sync();
+			raf.close();
+			Files.move(storage.getFile().toPath(), this.getFileOf(inf, seed,
+					order).toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (Exception e) {
+			// the table is still usable by this run, just not stored
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Return the complete state of the given random generator.
+	 *
+	 * @param random
+	 *            a random generator
+	 * @return the complete state of the given random generator
+	 */
+	public static byte[] stateOf(MersenneTwisterFast random) {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(result);
+			random.writeState(out);
+			out.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * Return true if the values are stored in big-endian byte order on this
+	 * machine.
+	 *
+	 * @return true if the values are stored in big-endian byte order
+	 */
+	private static boolean isBigEndian() {
+		return ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+	}
+}
@@ -0,0 +1,130 @@
+package landscape;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import random.MersenneTwisterFast;
+import util.Globals;
+
+/**
+ * Provides the landscape of each run of a case. With more than one resident
+ * landscape allowed, a background thread builds the landscapes of the next
+ * runs while the current run simulates; at most that many landscapes are in
+ * memory at once, counting the one being simulated and the one being built.
+ * Otherwise every landscape is built right before its run, as before.
+ * 
+ * A landscape is built with a random generator of its own run, which then
+ * becomes Globals.randomGen of the run in the state right after building.
+ * So the results are the same whether a landscape is built ahead or not.
+ */
+public class LandscapePipeline {
+	private InfluenceMatrix myInf;
+	private LandscapeSettings mySettings;
+	/**
+	 * the built landscapes and the random generators of their runs, in the
+	 * order of the runs; null when landscapes are not built ahead
+	 */
+	private BlockingQueue<Landscape> myLandscapes;
+	private BlockingQueue<MersenneTwisterFast> myRandomGens;
+	/**
+	 * one permit per landscape that may be resident
+	 */
+	private Semaphore myResidentPermits;
+
+	/**
+	 * Create a pipeline of the landscapes of the given number of runs. If the
+	 * settings allow more than one resident landscape, start building them on
+	 * a background thread.
+	 * 
+	 * @param inf
+	 *            an influence matrix object
+	 * @param settings
+	 *            a landscape settings object
+	 * @param runs
+	 *            a non-negative integer, which is the number of runs
+	 */
+	public LandscapePipeline(InfluenceMatrix inf, LandscapeSettings settings,
+			final int runs) {
+		this.myInf = inf;
+		this.mySettings = settings;
+		int resident = settings.getResidentLandscapes();
+		if (resident <= 1 || runs <= 1) {
+			this.myLandscapes = null;
+			this.myRandomGens = null;
+			this.myResidentPermits = null;
+			return;
+		}
+		this.myLandscapes = new ArrayBlockingQueue<Landscape>(resident);
+		this.myRandomGens = new ArrayBlockingQueue<MersenneTwisterFast>(
+				resident);
+		this.myResidentPermits = new Semaphore(resident);
+		Thread builder = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				LandscapePipeline.this.buildAll(runs);
+			}
+		}, "landscape-pipeline");
+		builder.setDaemon(true);
+		builder.start();
+	}
+
+	/**
+	 * Build the landscapes of the given number of runs in order, each one
+	 * after a resident permit is available. If building fails, the program
+	 * will exit, since the runs would wait forever.
+	 * 
+	 * @param runs
+	 *            a non-negative integer, which is the number of runs
+	 */
+	private void buildAll(int runs) {
+		try {
+			for (int i = 0; i < runs; i++) {
+				this.myResidentPermits.acquire();
+				MersenneTwisterFast random = Globals.createRandomGen(i);
+				Landscape landscape = new Landscape(this.myInf,
+						this.mySettings, i, random);
+				this.myRandomGens.put(random);
+				this.myLandscapes.put(landscape);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("ERROR : cannot build landscape ahead");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Start the given run, which must be the next one: set the seed and the
+	 * global random generator of the run, and return its landscape. This
+	 * waits until the landscape is built.
+	 * 
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @return the landscape of the run
+	 */
+	public Landscape startRun(int seed) {
+		if (this.myLandscapes == null) {
+			Globals.setSeed(seed);
+			return new Landscape(this.myInf, this.mySettings);
+		}
+		try {
+			Globals.setSeed(seed, this.myRandomGens.take());
+			return this.myLandscapes.take();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Finish the current run, whose landscape must no longer be referenced,
+	 * so that another landscape may be built in its place.
+	 */
+	public void finishRun() {
+		if (this.myResidentPermits != null) {
+			this.myResidentPermits.release();
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package landscape;
+
+import landscape.ContributionStorage.StorageType;
+import landscape.FitnessCache.EvictionPolicy;
+import landscape.FitnessContributionTable.GenerationOrder;
+import landscape.FitnessContributionTable.TableType;
+import landscape.ScoreEvaluator.EvaluatorType;
+
+/**
+ * The settings of how a landscape is built and evaluated. One settings object
+ * is read per case from the config xml file; every setting has a default, so
+ * an empty settings object reproduces the original behaviour.
+ */
+public class LandscapeSettings {
+	private TableType myTableType;
+	private GenerationOrder myGenerationOrder;
+	private StorageType myStorageType;
+	private LandscapeLibrary myLibrary;
+	private int myCacheCapacity;
+	private EvictionPolicy myEvictionPolicy;
+	private boolean myIsCacheStatisticsOn;
+	private long myMemoBudget;
+	private int myResidentLandscapes;
+	private int myShockPeriod;
+	private int myShockRows;
+	private EvaluatorType myEvaluatorType;
+	private boolean myIsNormalizedScoresOn;
+
+	/**
+	 * Create a settings object with the default settings: an eager table in
+	 * heap storage generated in the legacy order, without a landscape library, and a LRU cache of size 2^10
+	 * without statistics output. Landscapes whose fitness values fit in 64 MiB
+	 * (i.e. N <= 24) use a dense memo instead of the cache. Each landscape is
+	 * built right before its run, and it is never shocked. Fitness values are
+	 * computed by the generic evaluation, and they are written as they are,
+	 * not normalized by the global maximum.
+	 */
+	public LandscapeSettings() {
+		this.myTableType = TableType.EAGER;
+		this.myGenerationOrder = GenerationOrder.LEGACY;
+		this.myStorageType = StorageType.HEAP;
+		this.myLibrary = null;
+		this.myCacheCapacity = 1 << 10;
+		this.myEvictionPolicy = EvictionPolicy.LRU;
+		this.myIsCacheStatisticsOn = false;
+		this.myMemoBudget = 64L << 20;
+		this.myResidentLandscapes = 1;
+		this.myShockPeriod = 0;
+		this.myShockRows = 1;
+		this.myEvaluatorType = EvaluatorType.GENERIC;
+		this.myIsNormalizedScoresOn = false;
+	}
+
+	/**
+	 * Return the type of fitness contribution table.
+	 *
+	 * @return the type of fitness contribution table
+	 */
+	public TableType getTableType() {
+		return this.myTableType;
+	}
+
+	/**
+	 * Set the type of fitness contribution table.
+	 *
+	 * @param tableType
+	 *            a table type, EAGER or LAZY
+	 */
+	public void setTableType(TableType tableType) {
+		this.myTableType = tableType;
+	}
+
+	/**
+	 * Return the order in which an eager fitness contribution table is
+	 * generated.
+	 *
+	 * @return the generation order of an eager fitness contribution table
+	 */
+	public GenerationOrder getGenerationOrder() {
+		return this.myGenerationOrder;
+	}
+
+	/**
+	 * Set the order in which an eager fitness contribution table is
+	 * generated.
+	 *
+	 * @param generationOrder
+	 *            a generation order, LEGACY or PARALLEL
+	 */
+	public void setGenerationOrder(GenerationOrder generationOrder) {
+		this.myGenerationOrder = generationOrder;
+	}
+
+	/**
+	 * Return the type of storage of an eager fitness contribution table.
+	 *
+	 * @return the type of storage of an eager fitness contribution table
+	 */
+	public StorageType getStorageType() {
+		return this.myStorageType;
+	}
+
+	/**
+	 * Set the type of storage of an eager fitness contribution table.
+	 *
+	 * @param storageType
+	 *            a storage type, HEAP, OFF_HEAP or MAPPED
+	 */
+	public void setStorageType(StorageType storageType) {
+		this.myStorageType = storageType;
+	}
+
+	/**
+	 * Return the landscape library, or null if eager tables are not stored.
+	 *
+	 * @return the landscape library, or null
+	 */
+	public LandscapeLibrary getLibrary() {
+		return this.myLibrary;
+	}
+
+	/**
+	 * Set the landscape library, in which eager tables are stored and from
+	 * which they are reused. The storage type has no effect when a library is
+	 * set, since stored tables are always memory-mapped.
+	 *
+	 * @param library
+	 *            a landscape library object, or null
+	 */
+	public void setLibrary(LandscapeLibrary library) {
+		this.myLibrary = library;
+	}
+
+	/**
+	 * Return the maximum number of fitness values in the cache.
+	 *
+	 * @return the maximum number of fitness values in the cache
+	 */
+	public int getCacheCapacity() {
+		return this.myCacheCapacity;
+	}
+
+	/**
+	 * Set the maximum number of fitness values in the cache.
+	 *
+	 * @param cacheCapacity
+	 *            a positive integer
+	 */
+	public void setCacheCapacity(int cacheCapacity) {
+		this.myCacheCapacity = cacheCapacity;
+	}
+
+	/**
+	 * Return the eviction policy of the cache.
+	 *
+	 * @return the eviction policy of the cache
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return this.myEvictionPolicy;
+	}
+
+	/**
+	 * Set the eviction policy of the cache.
+	 *
+	 * @param evictionPolicy
+	 *            an eviction policy, LRU, CLOCK or TINY_LFU
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		this.myEvictionPolicy = evictionPolicy;
+	}
+
+	/**
+	 * Return true if the cache statistics are printed after each run.
+	 *
+	 * @return true if the cache statistics are printed after each run
+	 */
+	public boolean isCacheStatisticsOn() {
+		return this.myIsCacheStatisticsOn;
+	}
+
+	/**
+	 * Set whether the cache statistics are printed after each run.
+	 *
+	 * @param isCacheStatisticsOn
+	 *            a boolean
+	 */
+	public void setCacheStatisticsOn(boolean isCacheStatisticsOn) {
+		this.myIsCacheStatisticsOn = isCacheStatisticsOn;
+	}
+
+	/**
+	 * Return the memory budget in bytes of a dense memo of all 2^N fitness
+	 * values.
+	 *
+	 * @return the memory budget in bytes of a dense memo
+	 */
+	public long getMemoBudget() {
+		return this.myMemoBudget;
+	}
+
+	/**
+	 * Set the memory budget in bytes of a dense memo of all 2^N fitness
+	 * values. A landscape uses a dense memo, which takes 4 * 2^N bytes, instead
+	 * of the cache if the memo fits the budget. Zero disables the dense memo.
+	 *
+	 * @param memoBudget
+	 *            a non-negative long, which indicates the number of bytes
+	 */
+	public void setMemoBudget(long memoBudget) {
+		this.myMemoBudget = memoBudget;
+	}
+
+	/**
+	 * Return the maximum number of landscapes in memory at once.
+	 *
+	 * @return the maximum number of resident landscapes
+	 */
+	public int getResidentLandscapes() {
+		return this.myResidentLandscapes;
+	}
+
+	/**
+	 * Set the maximum number of landscapes in memory at once. With more than
+	 * one, the landscapes of the next runs are built on a background thread
+	 * while the current run simulates (see LandscapePipeline).
+	 *
+	 * @param residentLandscapes
+	 *            a positive integer
+	 */
+	public void setResidentLandscapes(int residentLandscapes) {
+		this.myResidentLandscapes = residentLandscapes;
+	}
+
+	/**
+	 * Return the number of simulation rounds between two shocks, or 0 if the
+	 * landscape is never shocked.
+	 *
+	 * @return the number of rounds between two shocks, or 0
+	 */
+	public int getShockPeriod() {
+		return this.myShockPeriod;
+	}
+
+	/**
+	 * Set the number of simulation rounds between two shocks; 0 disables
+	 * shocks.
+	 *
+	 * @param shockPeriod
+	 *            a non-negative integer
+	 */
+	public void setShockPeriod(int shockPeriod) {
+		this.myShockPeriod = shockPeriod;
+	}
+
+	/**
+	 * Return the number of elements whose fitness contributions are drawn anew
+	 * by one shock.
+	 *
+	 * @return the number of elements shocked at once
+	 */
+	public int getShockRows() {
+		return this.myShockRows;
+	}
+
+	/**
+	 * Set the number of elements whose fitness contributions are drawn anew by
+	 * one shock.
+	 *
+	 * @param shockRows
+	 *            a positive integer, which is at most N
+	 */
+	public void setShockRows(int shockRows) {
+		this.myShockRows = shockRows;
+	}
+
+	/**
+	 * Return the type of evaluator of the fitness values.
+	 *
+	 * @return the type of evaluator of the fitness values
+	 */
+	public EvaluatorType getEvaluatorType() {
+		return this.myEvaluatorType;
+	}
+
+	/**
+	 * Set the type of evaluator of the fitness values.
+	 *
+	 * @param evaluatorType
+	 *            GENERIC or GENERATED
+	 */
+	public void setEvaluatorType(EvaluatorType evaluatorType) {
+		this.myEvaluatorType = evaluatorType;
+	}
+
+	/**
+	 * Return true if the fitness values are also written divided by the global
+	 * maximum of the landscape.
+	 *
+	 * @return true if normalized fitness values are written
+	 */
+	public boolean isNormalizedScoresOn() {
+		return this.myIsNormalizedScoresOn;
+	}
+
+	/**
+	 * Set whether the fitness values are also written divided by the global
+	 * maximum of the landscape, which is then solved exactly for every run
+	 * (see GlobalOptimumSolver).
+	 *
+	 * @param isNormalizedScoresOn
+	 *            a boolean
+	 */
+	public void setNormalizedScoresOn(boolean isNormalizedScoresOn) {
+		this.myIsNormalizedScoresOn = isNormalizedScoresOn;
+	}
+}
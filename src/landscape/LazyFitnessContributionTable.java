@@ -0,0 +1,103 @@
+package landscape;
+
+import java.util.Arrays;
+
+import random.CounterBasedRandom;
+import random.MersenneTwisterFast;
+
+public class LazyFitnessContributionTable extends FitnessContributionTable {
+	/**
+	 * the landscape seed, which is drawn from the random generator of the run
+	 */
+	private long mySeed;
+	/**
+	 * one counter-based random stream per (row, choice), the size is
+	 *
+	 * N rows x 2 choices
+	 */
+	private long myStreamKeys[];
+	/**
+	 * a copy of myStreamKeys from before the first shock, or null if no row
+	 * has been shocked
+	 */
+	private long myUnshockedStreamKeys[];
+
+	/**
+	 * Create a table by N by 2 by 2^K without storing any of its values. Each
+	 * value is computed on demand as a deterministic hash of the landscape
+	 * seed, the row, the choice and the dependency bits, using a counter-based
+	 * generator. Only one long is drawn from the given random generator, so
+	 * the table takes O(N) memory and returns identical values across runs
+	 * and threads.
+	 * ({@inheritDoc})
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param random
+	 *            the random generator of the run
+	 */
+	public LazyFitnessContributionTable(InfluenceMatrix inf,
+			MersenneTwisterFast random) {
+		super(inf);
+		this.mySeed = random.nextLong();
+		this.myStreamKeys = new long[this.myDim1 * this.myDim2];
+		for (int i = 0; i < this.myDim1; i++) {
+			for (int j = 0; j < this.myDim2; j++) {
+				this.myStreamKeys[i * this.myDim2 + j] = CounterBasedRandom
+						.split(this.mySeed, i * this.myDim2 + j);
+			}
+		}
+	}
+
+	/**
+	 * Return the landscape seed.
+	 *
+	 * @return the landscape seed
+	 */
+	public long getSeed() {
+		return this.mySeed;
+	}
+
+	/**
+	 * Compute and return the fitness contribution value with the given
+	 * indices.
+	 *
+	 * @return the fitness contribution value with the given indices
+	 */
+	@Override
+	public float getValueOf(int index1, int index2, int index3) {
+		return CounterBasedRandom.floatAt(this.myStreamKeys[index1
+				* this.myDim2 + index2], index3);
+	}
+
+	/**
+	 * Draw a new landscape seed for the given row from the given random
+	 * generator and split new streams off it, one per choice.
+	 * ({@inheritDoc})
+	 *
+	 * @param row
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param random
+	 *            a random generator
+	 */
+	@Override
+	public void shockRow(int row, MersenneTwisterFast random) {
+		if (this.myUnshockedStreamKeys == null) {
+			this.myUnshockedStreamKeys = Arrays.copyOf(this.myStreamKeys,
+					this.myStreamKeys.length);
+		}
+		long seed = random.nextLong();
+		for (int j = 0; j < this.myDim2; j++) {
+			this.myStreamKeys[row * this.myDim2 + j] = CounterBasedRandom
+					.split(seed, row * this.myDim2 + j);
+		}
+	}
+
+	@Override
+	public void undoShocks() {
+		if (this.myUnshockedStreamKeys != null) {
+			this.myStreamKeys = this.myUnshockedStreamKeys;
+			this.myUnshockedStreamKeys = null;
+		}
+	}
+}
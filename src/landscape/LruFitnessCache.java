@@ -0,0 +1,98 @@
+package landscape;
+
+/**
+ * A fitness cache that evicts the least recently used entry. The recency order
+ * is a doubly linked list threaded through two int arrays.
+ */
+public class LruFitnessCache extends FitnessCache {
+	private int myPrev[];
+	private int myNext[];
+	/**
+	 * the least recently used entry, or -1
+	 */
+	private int myHead;
+	/**
+	 * the most recently used entry, or -1
+	 */
+	private int myTail;
+
+	/**
+	 * Create an empty LRU cache with the given capacity.
+	 *
+	 * @param capacity
+	 *            a positive integer, which is the maximum number of entries
+	 */
+	public LruFitnessCache(int capacity) {
+		super(capacity);
+		this.myPrev = new int[capacity];
+		this.myNext = new int[capacity];
+		this.myHead = -1;
+		this.myTail = -1;
+	}
+
+	@Override
+	public EvictionPolicy getPolicy() {
+		return EvictionPolicy.LRU;
+	}
+
+	@Override
+	protected void recordHit(int entry) {
+		if (entry != this.myTail) {
+			this.unlink(entry);
+			this.append(entry);
+		}
+	}
+
+	@Override
+	protected void recordInsert(int entry) {
+		this.append(entry);
+	}
+
+	@Override
+	protected void recordRemove(int entry) {
+		this.unlink(entry);
+	}
+
+	@Override
+	protected int selectVictim() {
+		return this.myHead;
+	}
+
+	/**
+	 * Append the given entry to the most recently used end of the list.
+	 *
+	 * @param entry
+	 *            an entry id, which is not in the list
+	 */
+	private void append(int entry) {
+		this.myPrev[entry] = this.myTail;
+		this.myNext[entry] = -1;
+		if (this.myTail < 0) {
+			this.myHead = entry;
+		} else {
+			this.myNext[this.myTail] = entry;
+		}
+		this.myTail = entry;
+	}
+
+	/**
+	 * Remove the given entry from the list.
+	 *
+	 * @param entry
+	 *            an entry id, which is in the list
+	 */
+	private void unlink(int entry) {
+		int prev = this.myPrev[entry];
+		int next = this.myNext[entry];
+		if (prev < 0) {
+			this.myHead = next;
+		} else {
+			this.myNext[prev] = next;
+		}
+		if (next < 0) {
+			this.myTail = prev;
+		} else {
+			this.myPrev[next] = prev;
+		}
+	}
+}
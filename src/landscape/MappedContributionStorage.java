@@ -0,0 +1,133 @@
+package landscape;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A storage backed by a memory-mapped file. The operating system pages the
+ * values in and out on demand, so the storage can be larger than the physical
+ * memory.
+ */
+public class MappedContributionStorage extends BufferContributionStorage {
+	private File myFile;
+	/**
+	 * the mapped byte buffers, of which myChunks are views
+	 */
+	private MappedByteBuffer myBuffers[];
+
+	/**
+	 * Create a storage with the given number of float values in a temporary
+	 * file. The file is deleted as soon as it is mapped: the mapping stays
+	 * valid, and the disk space is released when the storage is garbage
+	 * collected, so the tables of earlier runs do not pile up on disk in a
+	 * long process. Where a mapped file cannot be deleted, it is deleted when
+	 * the program exits.
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 */
+	public MappedContributionStorage(long size) {
+		this(createTempFile(), 0, size, MapMode.READ_WRITE);
+		this.myFile.delete();
+	}
+
+	/**
+	 * Create a storage with the given number of float values in the given
+	 * file, starting from the given byte offset. In READ_WRITE mode the file is
+	 * created or extended when necessary. In READ_ONLY mode the file must
+	 * already hold all the values, and the storage cannot be written.
+	 *
+	 * @param file
+	 *            a file object
+	 * @param offset
+	 *            a non-negative long, which is the byte offset of the first
+	 *            value in the file
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 * @param mode
+	 *            a map mode, READ_WRITE or READ_ONLY
+	 */
+	public MappedContributionStorage(File file, long offset, long size,
+			MapMode mode) {
+		super(size);
+		this.myFile = file;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(this.myFile,
+					mode == MapMode.READ_ONLY ? "r" : "rw");
+			if (mode != MapMode.READ_ONLY && raf.length() < offset + size * 4) {
+				raf.setLength(offset + size * 4);
+			}
+			this.map(raf.getChannel(), offset, mode);
+			raf.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("ERROR : cannot map fitness contribution table");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Create a temporary file, which is deleted when the program exits.
+	 *
+	 * @return a temporary file object
+	 */
+	private static File createTempFile() {
+		File file = null;
+		try {
+			file = File.createTempFile("fitness", ".tbl");
+			file.deleteOnExit();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out
+					.println("ERROR : cannot create fitness contribution table file");
+			System.exit(1);
+		}
+		return file;
+	}
+
+	/**
+	 * Flush all the values to the file.
+	 */
+	public void force() {
+		for (int i = 0; i < this.myChunks.length; i++) {
+			this.myBuffers[i].force();
+		}
+	}
+
+	/**
+	 * Return the file that backs the storage, which no longer exists for a
+	 * temporary storage.
+	 *
+	 * @return the file that backs the storage
+	 */
+	public File getFile() {
+		return this.myFile;
+	}
+
+	/**
+	 * Map all chunks from the given channel, starting from the given byte
+	 * offset. The mappings stay valid after the channel is closed.
+	 *
+	 * @param channel
+	 *            an open file channel
+	 * @param offset
+	 *            a non-negative long, which is the byte offset of the first
+	 *            value in the file
+	 * @param mode
+	 *            a map mode
+	 */
+	private void map(FileChannel channel, long offset, MapMode mode)
+			throws Exception {
+		this.myBuffers = new MappedByteBuffer[this.myChunks.length];
+		for (int i = 0; i < this.myChunks.length; i++) {
+			this.myBuffers[i] = channel.map(mode, offset
+					+ (i * CHUNK_SIZE * 4), this.getChunkSize(i) * 4L);
+			this.myChunks[i] = this.myBuffers[i]
+					.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+	}
+}
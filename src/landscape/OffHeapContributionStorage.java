@@ -0,0 +1,26 @@
+package landscape;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A storage backed by direct (off-heap) memory. The values do not count
+ * against -Xmx but against -XX:MaxDirectMemorySize.
+ */
+public class OffHeapContributionStorage extends BufferContributionStorage {
+
+	/**
+	 * Create a storage with the given number of float values in direct memory.
+	 *
+	 * @param size
+	 *            a non-negative long, which indicates the number of values
+	 */
+	public OffHeapContributionStorage(long size) {
+		super(size);
+		for (int i = 0; i < this.myChunks.length; i++) {
+			this.myChunks[i] = ByteBuffer
+					.allocateDirect(this.getChunkSize(i) * 4)
+					.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+	}
+}
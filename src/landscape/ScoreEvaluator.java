@@ -0,0 +1,325 @@
+package landscape;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import util.BitCompressor;
+
+/**
+ * An evaluator of the fitness value of a location id, specialized for one
+ * influence matrix. Its only implementation is generated at run time: the
+ * source of a class with one unrolled statement per element, in which the bit
+ * positions of the element and of its dependent elements are constants, is
+ * compiled in memory and defined as a hidden class. Adjacent dependent
+ * elements are extracted together by one shift and mask, and the JIT may
+ * inline the whole evaluation into its caller.
+ *
+ * The contributions are summed up in the same order as the generic loop of
+ * Landscape does, so the fitness values are exactly the same. Generated
+ * classes are kept per fingerprint of the influence matrix, so the compiler
+ * runs once per matrix, not once per run.
+ */
+public abstract class ScoreEvaluator {
+	public enum EvaluatorType {
+		GENERIC, GENERATED
+	}
+
+	private final static String PACKAGE = "landscape";
+	private final static String CLASS_NAME = "GeneratedScoreEvaluator";
+	/**
+	 * the estimated bytecode size up to which elements are summed up in one
+	 * method, which keeps every method small enough to be inlined
+	 */
+	private final static int METHOD_BYTES = 300;
+
+	/**
+	 * fingerprint of an influence matrix -> constructor of its generated
+	 * class, or null if the generation failed
+	 */
+	private final static HashMap<String, MethodHandle> CONSTRUCTORS = new HashMap<String, MethodHandle>();
+
+	/**
+	 * Compute and return the fitness value of the given location id.
+	 *
+	 * @param locId
+	 *            a non-negative long, which represents a configuration/location
+	 * @return the fitness value of the given location id
+	 */
+	public abstract float computeScore(long locId);
+
+	/**
+	 * Return a generated evaluator of the given influence matrix, which reads
+	 * its fitness contributions from the given table, or null if no evaluator
+	 * can be generated, e.g. when the program runs without a Java compiler.
+	 * Then the generic evaluation should be used.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @param fit
+	 *            the fitness contribution table of the landscape
+	 * @return a generated evaluator, or null
+	 */
+	public static ScoreEvaluator generate(InfluenceMatrix inf,
+			FitnessContributionTable fit) {
+		MethodHandle constructor = getConstructorOf(inf);
+		if (constructor == null) {
+			return null;
+		}
+		try {
+			return (ScoreEvaluator) constructor.invoke(fit);
+		} catch (Throwable e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Return the constructor of the generated class of the given influence
+	 * matrix, generating the class on the first call, or null if the class
+	 * cannot be generated.
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @return the constructor of the generated class, or null
+	 */
+	private static synchronized MethodHandle getConstructorOf(
+			InfluenceMatrix inf) {
+		String fingerprint = inf.getFingerprint();
+		if (CONSTRUCTORS.containsKey(fingerprint)) {
+			return CONSTRUCTORS.get(fingerprint);
+		}
+		MethodHandle result = null;
+		byte bytes[] = compile(constructSource(inf));
+		if (bytes != null) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup()
+						.defineHiddenClass(bytes, true);
+				result = lookup.findConstructor(lookup.lookupClass(),
+						MethodType.methodType(void.class,
+								FitnessContributionTable.class));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		if (result == null) {
+			System.out
+					.println("WARNING : cannot generate evaluator, using the generic one");
+		}
+		CONSTRUCTORS.put(fingerprint, result);
+		return result;
+	}
+
+	/**
+	 * Return the source of the evaluator class of the given influence matrix.
+	 * The fitness value is summed up in a chain of methods, each of which adds
+	 * the contributions of some elements to the sum so far.
+	 *
+	 * E.g., for element 0 of N = 4, whose dependent elements are 2 and 3, the
+	 * statement is
+	 * r += table.getValueOf(0, (int) (locId >>> 3) & 1, (int) (locId & 0x3L));
+	 *
+	 * @param inf
+	 *            an influence matrix object
+	 * @return the source of the evaluator class
+	 */
+	private static String constructSource(InfluenceMatrix inf) {
+		int n = inf.getN();
+		StringBuilder methods = new StringBuilder();
+		int method = 0;
+		int bytes = METHOD_BYTES;
+		for (int i = 0; i < n; i++) {
+			StringBuilder statement = new StringBuilder();
+			int cost = constructIndex3(inf.getDependenceMaskOf(i), statement);
+			cost += 20;
+			if (bytes + cost > METHOD_BYTES) {
+				if (method > 0) {
+					methods.append("\t\treturn r;\n\t}\n\n");
+				}
+				methods.append("\tprivate float s").append(method++)
+						.append("(long locId, float r) {\n");
+				methods.append("\t\tlong x, y;\n");
+				bytes = 0;
+			}
+			bytes += cost;
+			methods.append(statement);
+			methods.append("\t\tr += table.getValueOf(").append(i)
+					.append(", (int) (locId >>> ").append(n - 1 - i)
+					.append(") & 1, (int) x);\n");
+		}
+		methods.append("\t\treturn r;\n\t}\n");
+
+		StringBuilder result = new StringBuilder();
+		result.append("package ").append(PACKAGE).append(";\n\n");
+		result.append("final class ").append(CLASS_NAME)
+				.append(" extends ScoreEvaluator {\n");
+		result.append("\tprivate final FitnessContributionTable table;\n\n");
+		result.append("\t").append(CLASS_NAME)
+				.append("(FitnessContributionTable table) {\n");
+		result.append("\t\tthis.table = table;\n\t}\n\n");
+		result.append("\t@Override\n");
+		result.append("\tpublic float computeScore(long locId) {\n");
+		result.append("\t\tfloat r = 0.0f;\n");
+		for (int m = 0; m < method; m++) {
+			result.append("\t\tr = s").append(m).append("(locId, r);\n");
+		}
+		result.append("\t\treturn r / ").append(n).append(";\n\t}\n\n");
+		result.append(methods).append("}\n");
+		return result.toString();
+	}
+
+	/**
+	 * Append the statements that set x to the bits of locId selected by the
+	 * given dependence mask, packed in order, to the given source, and return
+	 * their estimated bytecode size. Each run of adjacent bits is moved by one
+	 * shift and mask; when there are many runs, the constant steps of
+	 * BitCompressor are used instead.
+	 *
+	 * @param mask
+	 *            the dependence mask of an element
+	 * @param source
+	 *            the source, which receives the statements
+	 * @return the estimated bytecode size of the statements
+	 */
+	private static int constructIndex3(long mask, StringBuilder source) {
+		BitCompressor compressor = new BitCompressor(mask);
+		int steps = 0;
+		for (int step = 0; step < 6; step++) {
+			steps += (compressor.getMove(step) == 0 ? 0 : 1);
+		}
+		int runs = Long.bitCount(mask & ~(mask << 1));
+		if (1 + 5 * steps < 3 * runs) {
+			source.append("\t\tx = locId & 0x").append(Long.toHexString(mask))
+					.append("L;\n");
+			for (int step = 0; step < 6; step++) {
+				long move = compressor.getMove(step);
+				if (move != 0) {
+					source.append("\t\ty = x & 0x")
+							.append(Long.toHexString(move))
+							.append("L;\n\t\tx = (x ^ y) | (y >>> ")
+							.append(1 << step).append(");\n");
+				}
+			}
+			return 12 + 14 * steps;
+		}
+		source.append("\t\tx = ");
+		if (runs == 0) {
+			source.append("0L");
+		}
+		int packed = 0;
+		for (long bits = mask; bits != 0;) {
+			// the lowest run of set bits goes to the next packed bits
+			int from = Long.numberOfTrailingZeros(bits);
+			int length = Long.numberOfTrailingZeros(~(bits >>> from));
+			long run = (length == 64 ? -1L : (1L << length) - 1) << packed;
+			source.append(packed == 0 ? "" : " | ").append("(locId")
+					.append(from == packed ? "" : " >>> " + (from - packed))
+					.append(" & 0x").append(Long.toHexString(run))
+					.append("L)");
+			packed += length;
+			bits &= (from + length == 64 ? 0L : -1L << (from + length));
+		}
+		source.append(";\n");
+		return 4 + 10 * runs;
+	}
+
+	/**
+	 * Compile the given source of the evaluator class in memory and return
+	 * its class file, or null if there is no compiler or the compilation
+	 * fails.
+	 *
+	 * @param source
+	 *            the source of the evaluator class
+	 * @return the class file, or null
+	 */
+	private static byte[] compile(String source) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			return null;
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		ClassFile classFile = new ClassFile();
+		JavaFileManager manager = new ClassFileManager(
+				compiler.getStandardFileManager(diagnostics, null, null),
+				classFile);
+		boolean isCompiled = compiler.getTask(null, manager, diagnostics,
+				Arrays.asList("-classpath",
+						System.getProperty("java.class.path")), null,
+				Arrays.asList(new SourceFile(source))).call();
+		if (!isCompiled) {
+			System.out.println(diagnostics.getDiagnostics());
+			return null;
+		}
+		return classFile.myBytes.toByteArray();
+	}
+
+	/**
+	 * The source of the evaluator class, held in memory.
+	 */
+	private static class SourceFile extends SimpleJavaFileObject {
+		private String mySource;
+
+		SourceFile(String source) {
+			super(URI.create("string:///" + PACKAGE + "/" + CLASS_NAME
+					+ Kind.SOURCE.extension), Kind.SOURCE);
+			this.mySource = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return this.mySource;
+		}
+	}
+
+	/**
+	 * The class file of the evaluator class, written to memory.
+	 */
+	private static class ClassFile extends SimpleJavaFileObject {
+		private ByteArrayOutputStream myBytes;
+
+		ClassFile() {
+			super(URI.create("bytes:///" + PACKAGE + "/" + CLASS_NAME
+					+ Kind.CLASS.extension), Kind.CLASS);
+			this.myBytes = new ByteArrayOutputStream();
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return this.myBytes;
+		}
+	}
+
+	/**
+	 * A file manager that writes the class file to memory instead of disk.
+	 */
+	private static class ClassFileManager extends
+			ForwardingJavaFileManager<JavaFileManager> {
+		private ClassFile myClassFile;
+
+		ClassFileManager(JavaFileManager manager, ClassFile classFile) {
+			super(manager);
+			this.myClassFile = classFile;
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location,
+				String className, Kind kind, FileObject sibling) {
+			return this.myClassFile;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package landscape;
+
+import random.CounterBasedRandom;
+
+/**
+ * A fitness cache that evicts in LRU order but admits a new entry only if it
+ * has been looked up more often than the entry it would evict (TinyLFU
+ * admission). Lookup frequencies are estimated by a count-min sketch of 4-bit
+ * counters, which is halved periodically so that old popularity fades.
+ * Locations visited once in passing thus do not flush out locations that
+ * agents keep coming back to.
+ */
+public class TinyLfuFitnessCache extends LruFitnessCache {
+	private final static int DEPTH = 4;
+	private final static int MAX_COUNT = 15;
+
+	/**
+	 * DEPTH rows of counters, each row has a power of 2 counters
+	 */
+	private byte myCounters[];
+	private int myRowMask;
+	private int myAdditions;
+	/**
+	 * the number of additions after which all counters are halved
+	 */
+	private int mySampleSize;
+
+	/**
+	 * Create an empty TinyLFU cache with the given capacity.
+	 *
+	 * @param capacity
+	 *            a positive integer, which is the maximum number of entries
+	 */
+	public TinyLfuFitnessCache(int capacity) {
+		super(capacity);
+		int width = Integer.highestOneBit(capacity) << 1;
+		this.myCounters = new byte[DEPTH * width];
+		this.myRowMask = width - 1;
+		this.myAdditions = 0;
+		this.mySampleSize = 10 * capacity;
+	}
+
+	@Override
+	public EvictionPolicy getPolicy() {
+		return EvictionPolicy.TINY_LFU;
+	}
+
+	@Override
+	protected void recordAccess(long locId) {
+		long hash = CounterBasedRandom.mix(locId);
+		for (int i = 0; i < DEPTH; i++) {
+			int counter = this.counterOf(hash, i);
+			if (this.myCounters[counter] < MAX_COUNT) {
+				this.myCounters[counter]++;
+			}
+		}
+		if (++this.myAdditions >= this.mySampleSize) {
+			for (int i = 0; i < this.myCounters.length; i++) {
+				this.myCounters[i] >>= 1;
+			}
+			this.myAdditions = 0;
+		}
+	}
+
+	@Override
+	protected boolean admit(long locId, int victim) {
+		return this.frequencyOf(locId) > this.frequencyOf(this.myKeys[victim]);
+	}
+
+	/**
+	 * Return the estimated number of recent lookups of the given location id.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @return the estimated number of recent lookups
+	 */
+	private int frequencyOf(long locId) {
+		long hash = CounterBasedRandom.mix(locId);
+		int result = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++) {
+			result = Math.min(result, this.myCounters[this.counterOf(hash, i)]);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the position of the counter of the given hash in the given row.
+	 * The rows use independent positions by double hashing.
+	 *
+	 * @param hash
+	 *            a mixed location id
+	 * @param row
+	 *            an integer between 0 and DEPTH-1 (inclusive)
+	 * @return the position of the counter in myCounters
+	 */
+	private int counterOf(long hash, int row) {
+		int h = (int) hash + row * (int) (hash >>> 32);
+		return row * (this.myRowMask + 1) + (h & this.myRowMask);
+	}
+}
@@ -0,0 +1,242 @@
+package landscape;
+
+import util.Globals;
+
+/**
+ * A landscape of any number of elements, whose locations are WideLocation
+ * objects instead of long location ids. It is meant for large products with
+ * low interdependence, i.e. N in the hundreds or thousands and a small K, so
+ * the fitness contribution table still has only N x 2 x 2^K values.
+ * 
+ * There is no memo or cache, since with 2^N locations a location is hardly
+ * ever visited twice. Instead, a search keeps the fitness contributions of
+ * its location, and flipping an element recomputes only the contributions
+ * that depend on it, i.e. 1+K on average. The contributions are summed in
+ * blocks of BLOCK_SIZE elements and then over the blocks, so a flip also
+ * re-adds only the blocks it touched instead of all N contributions.
+ */
+public class WideLandscape {
+	/**
+	 * the number of contributions summed per block; with N <= BLOCK_SIZE the
+	 * sum is the same as that of Landscape
+	 */
+	public final static int BLOCK_SIZE = 64;
+	private final static int BLOCK_BITS = 6;
+
+	private InfluenceMatrix myInf;
+	private FitnessContributionTable myFit;
+	/**
+	 * the dependent elements of each element, copied once from the influence
+	 * matrix
+	 */
+	private int myDependence[][];
+	/**
+	 * the elements whose fitness contributions depend on each element,
+	 * including the element itself
+	 */
+	private int myDepending[][];
+
+	/**
+	 * Internally create a fitness contribution table according to the given
+	 * settings, drawn from Globals.randomGen for the current run. The cache
+	 * and memo settings are ignored.
+	 * 
+	 * @param inf
+	 *            an influence matrix object
+	 * @param settings
+	 *            a landscape settings object
+	 */
+	public WideLandscape(InfluenceMatrix inf, LandscapeSettings settings) {
+		this.myInf = inf;
+		switch (settings.getTableType()) {
+		case EAGER:
+			this.myFit = new EagerFitnessContributionTable(this.myInf,
+					settings, Globals.getSeed(), Globals.randomGen);
+			break;
+		case LAZY:
+			this.myFit = new LazyFitnessContributionTable(this.myInf,
+					Globals.randomGen);
+			break;
+		}
+		this.myDependence = new int[this.myInf.getN()][];
+		this.myDepending = new int[this.myInf.getN()][];
+		for (int i = 0; i < this.myInf.getN(); i++) {
+			this.myDependence[i] = this.myInf.getDependentElementsOf(i);
+			this.myDepending[i] = this.myInf.getDependingElementsOf(i);
+		}
+	}
+
+	/**
+	 * Return N of the influence matrix.
+	 * 
+	 * @return N of the influence matrix
+	 */
+	public int getInfN() {
+		return this.myInf.getN();
+	}
+
+	/**
+	 * Return K of the influence matrix.
+	 * 
+	 * @return K of the influence matrix
+	 */
+	public int getInfK() {
+		return this.myInf.getK();
+	}
+
+	/**
+	 * Compute and return the fitness value of the given location. For N <=
+	 * BLOCK_SIZE, this is the same value as Landscape.computeScore() of the
+	 * same configuration on the same table.
+	 * 
+	 * @param location
+	 *            a location of N elements
+	 * @return the fitness value of the given location
+	 */
+	public float computeScore(WideLocation location) {
+		int n = this.myInf.getN();
+		float result = 0.0f;
+		for (int from = 0; from < n; from += BLOCK_SIZE) {
+			float block = 0.0f;
+			for (int i = from; i < Math.min(from + BLOCK_SIZE, n); i++) {
+				block += this.computeContributionOf(i, location);
+			}
+			result += block;
+		}
+		return result / n;
+	}
+
+	/**
+	 * Return the length of an array of fitness contributions of this
+	 * landscape, which holds the N contributions followed by the sum of each
+	 * block of BLOCK_SIZE contributions.
+	 * 
+	 * @return the length of an array of fitness contributions
+	 */
+	public int getContributionsLength() {
+		int n = this.myInf.getN();
+		return n + ((n + BLOCK_SIZE - 1) >>> BLOCK_BITS);
+	}
+
+	/**
+	 * Compute the fitness contribution of each element at the given location
+	 * and the sum of each block of them, and store them in the given array.
+	 * Return the fitness value of the given location, which is the same as
+	 * WideLandscape.computeScore().
+	 * 
+	 * @param location
+	 *            a location of N elements
+	 * @param contributions
+	 *            an array of WideLandscape.getContributionsLength() floats,
+	 *            which receives the fitness contributions
+	 * @return the fitness value of the given location
+	 */
+	public float computeContributions(WideLocation location,
+			float contributions[]) {
+		int n = this.myInf.getN();
+		for (int i = 0; i < n; i++) {
+			contributions[i] = this.computeContributionOf(i, location);
+		}
+		for (int from = 0; from < n; from += BLOCK_SIZE) {
+			this.sumBlockOf(from, contributions);
+		}
+		return this.sumBlocks(contributions);
+	}
+
+	/**
+	 * Flip the given elements of the given location in place, update the
+	 * given fitness contributions of that location accordingly and return the
+	 * fitness value of the new location. Only the contributions that depend on
+	 * a flipped element are looked up again and only their blocks are summed
+	 * again, and nothing is allocated. Flipping the same elements again
+	 * restores both the location and the contributions exactly. The result is
+	 * the same as WideLandscape.computeScore() of the new location.
+	 * 
+	 * @param location
+	 *            a location of N elements, which is modified
+	 * @param contributions
+	 *            the fitness contributions of the location, as computed by
+	 *            WideLandscape.computeContributions(), which are updated
+	 * @param elements
+	 *            an array of distinct element indices
+	 * @param count
+	 *            the number of elements at the start of the array to flip
+	 * @return the fitness value of the new location
+	 */
+	public float moveContributions(WideLocation location,
+			float contributions[], int elements[], int count) {
+		for (int i = 0; i < count; i++) {
+			location.flip(elements[i]);
+		}
+		// an element or a block that depends on several flipped elements is
+		// recomputed more than once, which gives the same value
+		for (int i = 0; i < count; i++) {
+			for (int element : this.myDepending[elements[i]]) {
+				contributions[element] = this.computeContributionOf(element,
+						location);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			for (int element : this.myDepending[elements[i]]) {
+				this.sumBlockOf(element, contributions);
+			}
+		}
+		return this.sumBlocks(contributions);
+	}
+
+	/**
+	 * Sum up the contributions of the block of the given element, in
+	 * increasing order, and store the sum after the N contributions.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param contributions
+	 *            an array of WideLandscape.getContributionsLength() floats
+	 */
+	private void sumBlockOf(int element, float contributions[]) {
+		int n = this.myInf.getN();
+		int block = element >>> BLOCK_BITS;
+		int from = block << BLOCK_BITS;
+		int to = Math.min(from + BLOCK_SIZE, n);
+		float sum = 0.0f;
+		for (int i = from; i < to; i++) {
+			sum += contributions[i];
+		}
+		contributions[n + block] = sum;
+	}
+
+	/**
+	 * Return the fitness value given by the block sums of the given
+	 * contributions, summed up in increasing order.
+	 * 
+	 * @param contributions
+	 *            an array of WideLandscape.getContributionsLength() floats
+	 * @return the fitness value
+	 */
+	private float sumBlocks(float contributions[]) {
+		int n = this.myInf.getN();
+		float result = 0.0f;
+		for (int i = n; i < this.getContributionsLength(); i++) {
+			result += contributions[i];
+		}
+		return result / n;
+	}
+
+	/**
+	 * Compute and return the fitness contribution of the given element at the
+	 * given location.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @param location
+	 *            a location of N elements
+	 * @return the fitness contribution of the given element
+	 */
+	private float computeContributionOf(int element, WideLocation location) {
+		int index3 = 0;
+		for (int dependentElement : this.myDependence[element]) {
+			index3 = (index3 << 1) | location.get(dependentElement);
+		}
+		return this.myFit.getValueOf(element, location.get(element), index3);
+	}
+}
@@ -0,0 +1,143 @@
+package landscape;
+
+import java.util.Arrays;
+
+import random.MersenneTwisterFast;
+
+/**
+ * A configuration/location of any number of elements, stored in multiple
+ * words, for landscapes whose N exceeds Landscape.MAX_N. Element e is bit
+ * 63-(e%64) of word e/64, so for N = 64 the single word is the same as the
+ * long location id of Landscape. A location is mutable, so a search can flip
+ * elements in place without allocating.
+ */
+public class WideLocation {
+	private int myN;
+	private long myWords[];
+
+	/**
+	 * Create a location of the given number of elements, all of which are 0.
+	 * 
+	 * @param n
+	 *            a positive integer, which is the number of elements
+	 */
+	public WideLocation(int n) {
+		this.myN = n;
+		this.myWords = new long[(n + 63) >>> 6];
+	}
+
+	/**
+	 * Create a location which is a copy of the given location.
+	 * 
+	 * @param location
+	 *            a location
+	 */
+	public WideLocation(WideLocation location) {
+		this.myN = location.myN;
+		this.myWords = Arrays.copyOf(location.myWords, location.myWords.length);
+	}
+
+	/**
+	 * Return the number of elements.
+	 * 
+	 * @return the number of elements
+	 */
+	public int getN() {
+		return this.myN;
+	}
+
+	/**
+	 * Return the value of the given element.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 * @return the value of the given element, 0 or 1
+	 */
+	public int get(int element) {
+		long word = this.myWords[element >>> 6];
+		return (int) (word >>> (63 - (element & 63))) & 1;
+	}
+
+	/**
+	 * Toggle the value of the given element.
+	 * 
+	 * @param element
+	 *            an integer between 0 and N-1 (inclusive)
+	 */
+	public void flip(int element) {
+		this.myWords[element >>> 6] ^= Long.MIN_VALUE >>> (element & 63);
+	}
+
+	/**
+	 * Copy the elements of the given location, which has the same N, into
+	 * this location.
+	 * 
+	 * @param location
+	 *            a location
+	 */
+	public void copyFrom(WideLocation location) {
+		System.arraycopy(location.myWords, 0, this.myWords, 0,
+				this.myWords.length);
+	}
+
+	/**
+	 * Set every element to a uniformly random value drawn from the given
+	 * random generator, one long per word.
+	 * 
+	 * @param random
+	 *            a random generator
+	 */
+	public void randomize(MersenneTwisterFast random) {
+		for (int i = 0; i < this.myWords.length; i++) {
+			this.myWords[i] = random.nextLong();
+		}
+		// clear the bits beyond N in the last word
+		int unused = 63 - ((this.myN - 1) & 63);
+		this.myWords[this.myWords.length - 1] &= -1L << unused;
+	}
+
+	/**
+	 * Return the number of elements in which this location differs from the
+	 * given location, which has the same N.
+	 * 
+	 * @param location
+	 *            a location
+	 * @return the distance between the two locations
+	 */
+	public int getDistance(WideLocation location) {
+		int result = 0;
+		for (int i = 0; i < this.myWords.length; i++) {
+			result += Long.bitCount(this.myWords[i] ^ location.myWords[i]);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof WideLocation)) {
+			return false;
+		}
+		WideLocation location = (WideLocation) other;
+		return this.myN == location.myN
+				&& Arrays.equals(this.myWords, location.myWords);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.myWords);
+	}
+
+	/**
+	 * Return the values of the elements as a string of 0's and 1's.
+	 * 
+	 * @return a string representation of the location
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(this.myN);
+		for (int i = 0; i < this.myN; i++) {
+			result.append(this.get(i));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,191 @@
+package landscape.analysis;
+
+import landscape.Landscape;
+import landscape.analysis.LandscapeAnalyzer.AnalysisMode;
+
+/**
+ * The settings of the landscape analysis of a case. One settings object is
+ * read per case from the config xml file; every setting has a default.
+ */
+public class AnalysisSettings {
+	private AnalysisMode myMode;
+	private int myFlips;
+	private int mySamples;
+	private int myClimbs;
+	private int myWalkLength;
+	private int myLags;
+
+	/**
+	 * Create a settings object with the default settings: the mode is chosen
+	 * by N, local optima are counted under 1-flip and 2-flip neighbourhoods,
+	 * and the sampled mode takes 100000 sample points and 1000 hill climbs.
+	 * The random walk has 10000 steps and its autocorrelation is reported up
+	 * to lag 10.
+	 */
+	public AnalysisSettings() {
+		this.myMode = AnalysisMode.AUTO;
+		this.myFlips = 2;
+		this.mySamples = 100000;
+		this.myClimbs = 1000;
+		this.myWalkLength = 10000;
+		this.myLags = 10;
+	}
+
+	/**
+	 * Return the analysis mode.
+	 *
+	 * @return the analysis mode
+	 */
+	public AnalysisMode getMode() {
+		return this.myMode;
+	}
+
+	/**
+	 * Set the analysis mode.
+	 *
+	 * @param mode
+	 *            an analysis mode, AUTO, EXHAUSTIVE, BLOCK or SAMPLED
+	 */
+	public void setMode(AnalysisMode mode) {
+		this.myMode = mode;
+	}
+
+	/**
+	 * Return the analysis mode to be used on the given landscape. AUTO
+	 * becomes EXHAUSTIVE if N <= LandscapeAnalyzer.AUTO_EXHAUSTIVE_N and the
+	 * 2^N fitness values and successors fit in half of the maximum heap size.
+	 * Otherwise it becomes BLOCK if the influence matrix splits into blocks
+	 * that meet the same conditions, and SAMPLED if it does not.
+	 *
+	 * @param ldscp
+	 *            a landscape object
+	 * @return EXHAUSTIVE, BLOCK or SAMPLED
+	 */
+	public AnalysisMode getModeFor(Landscape ldscp) {
+		if (this.myMode != AnalysisMode.AUTO) {
+			return this.myMode;
+		}
+		if (fitsExhaustive(ldscp.getInfN())) {
+			return AnalysisMode.EXHAUSTIVE;
+		}
+		if (ldscp.getBlockCount() > 1) {
+			int largest = 0;
+			for (int b = 0; b < ldscp.getBlockCount(); b++) {
+				largest = Math.max(largest, ldscp.getBlockSize(b));
+			}
+			if (fitsExhaustive(largest)) {
+				return AnalysisMode.BLOCK;
+			}
+		}
+		return AnalysisMode.SAMPLED;
+	}
+
+	/**
+	 * Return true if 2^n fitness values and successors may be enumerated,
+	 * i.e. if n <= LandscapeAnalyzer.AUTO_EXHAUSTIVE_N and they fit in half of
+	 * the maximum heap size.
+	 *
+	 * @param n
+	 *            the number of elements to be enumerated
+	 * @return true if 2^n locations may be enumerated
+	 */
+	private static boolean fitsExhaustive(int n) {
+		return n <= LandscapeAnalyzer.AUTO_EXHAUSTIVE_N
+				&& (8L << n) <= Runtime.getRuntime().maxMemory() / 2;
+	}
+
+	/**
+	 * Return the largest number of flipped bits of the k-flip neighbourhood.
+	 *
+	 * @return k of the k-flip neighbourhood
+	 */
+	public int getFlips() {
+		return this.myFlips;
+	}
+
+	/**
+	 * Set the largest number of flipped bits of the k-flip neighbourhood.
+	 *
+	 * @param flips
+	 *            a positive integer, which is k of the k-flip neighbourhood
+	 */
+	public void setFlips(int flips) {
+		this.myFlips = flips;
+	}
+
+	/**
+	 * Return the number of sample points of the sampled mode.
+	 *
+	 * @return the number of sample points
+	 */
+	public int getSamples() {
+		return this.mySamples;
+	}
+
+	/**
+	 * Set the number of sample points of the sampled mode.
+	 *
+	 * @param samples
+	 *            a positive integer, which is the number of sample points
+	 */
+	public void setSamples(int samples) {
+		this.mySamples = samples;
+	}
+
+	/**
+	 * Return the number of hill climbs of the sampled mode.
+	 *
+	 * @return the number of hill climbs
+	 */
+	public int getClimbs() {
+		return this.myClimbs;
+	}
+
+	/**
+	 * Set the number of hill climbs of the sampled mode.
+	 *
+	 * @param climbs
+	 *            a positive integer, which is the number of hill climbs
+	 */
+	public void setClimbs(int climbs) {
+		this.myClimbs = climbs;
+	}
+
+	/**
+	 * Return the number of steps of the random walk.
+	 *
+	 * @return the number of steps of the random walk
+	 */
+	public int getWalkLength() {
+		return this.myWalkLength;
+	}
+
+	/**
+	 * Set the number of steps of the random walk.
+	 *
+	 * @param walkLength
+	 *            a positive integer, which is the number of steps
+	 */
+	public void setWalkLength(int walkLength) {
+		this.myWalkLength = walkLength;
+	}
+
+	/**
+	 * Return the largest lag of the reported random-walk autocorrelation.
+	 *
+	 * @return the largest lag
+	 */
+	public int getLags() {
+		return this.myLags;
+	}
+
+	/**
+	 * Set the largest lag of the reported random-walk autocorrelation.
+	 *
+	 * @param lags
+	 *            a positive integer, which is the largest lag
+	 */
+	public void setLags(int lags) {
+		this.myLags = lags;
+	}
+}
@@ -0,0 +1,234 @@
+package landscape.analysis;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import landscape.Landscape;
+
+/**
+ * An analyzer for landscapes whose influence matrix splits into independent
+ * blocks. The fitness value of a location is the sum of the fitness values of
+ * its blocks, so each block is analyzed exhaustively on its own, in
+ * O(2^|block|) rather than O(2^N), and the statistics are combined exactly:
+ * <ul>
+ * <li>the global maximum combines the best configuration of every block;</li>
+ * <li>a location is a 1-flip or k-flip local optimum if and only if each of
+ * its blocks is one, so the numbers of local optima multiply;</li>
+ * <li>a steepest ascent moves every block along the block's own steepest
+ * ascent, so the basin of a local optimum is the product of the basins of
+ * its blocks;</li>
+ * <li>the blocks are independent under the uniform distribution, so the
+ * covariances and variances of the distance and the fitness value add up.</li>
+ * </ul>
+ * Modular landscapes of large N, e.g. N = 60 made of ten blocks of 6, are
+ * thus analyzed exactly in milliseconds. Comparisons are made on the block
+ * fitness values, so near-ties may be resolved differently than by
+ * ExhaustiveAnalyzer, up to rounding.
+ */
+public class BlockAnalyzer extends LandscapeAnalyzer {
+	private int myBlocks;
+
+	/**
+	 * Create a block analyzer of the given landscape. If a block has more
+	 * than ExhaustiveAnalyzer.MAX_N elements, the program will exit.
+	 *
+	 * @param ldscp
+	 *            a landscape object
+	 * @param settings
+	 *            an analysis settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 */
+	public BlockAnalyzer(Landscape ldscp, AnalysisSettings settings, int seed) {
+		super(ldscp, settings, seed);
+		this.myBlocks = ldscp.getBlockCount();
+		for (int b = 0; b < this.myBlocks; b++) {
+			if (ldscp.getBlockSize(b) > ExhaustiveAnalyzer.MAX_N) {
+				System.out.println("ERROR : block of "
+						+ ldscp.getBlockSize(b)
+						+ " elements is too large for block analysis");
+				System.exit(1);
+			}
+		}
+	}
+
+	@Override
+	public AnalysisMode getMode() {
+		return AnalysisMode.BLOCK;
+	}
+
+	@Override
+	public LandscapeReport analyze() {
+		LandscapeReport report = new LandscapeReport(this.mySeed,
+				this.getMode());
+		ArrayList<BlockResult> blocks = this.runInParallel(new BlockPass(),
+				this.myBlocks);
+
+		long best = 0L;
+		long optima = 1L;
+		long flipOptima = 1L;
+		double covariance = 0.0, varianceX = 0.0, varianceY = 0.0;
+		double largest = 1.0;
+		double bestBasin = 1.0;
+		Map<Long, Long> basins = new HashMap<Long, Long>();
+		basins.put(1L, 1L);
+		for (int b = 0; b < this.myBlocks; b++) {
+			BlockResult block = blocks.get(b);
+			best |= this.myLdscp.getLocIdOfBlockIndex(b, block.myBest);
+			optima *= block.myOptima;
+			flipOptima *= block.myFlipOptima;
+			covariance += block.myFitnessDistance.getCovariance();
+			varianceX += block.myFitnessDistance.getVarianceX();
+			varianceY += block.myFitnessDistance.getVarianceY();
+			double size = 1 << block.mySize;
+			largest *= block.myLargestBasin / size;
+			bestBasin *= block.myBestBasin / size;
+			Map<Long, Long> product = new HashMap<Long, Long>();
+			for (Map.Entry<Long, Long> left : basins.entrySet()) {
+				for (Map.Entry<Long, Long> right : block.myBasins.entrySet()) {
+					Long key = left.getKey() * right.getKey();
+					Long count = product.get(key);
+					product.put(key, (count == null ? 0L : count)
+							+ left.getValue() * right.getValue());
+				}
+			}
+			basins = product;
+		}
+
+		report.add("POINTS", BigInteger.ONE.shiftLeft(this.myN));
+		report.add("BLOCKS", this.myBlocks);
+		report.add("GLOBAL_MAX", this.myLdscp.computeScore(best));
+		report.add("GLOBAL_MAX_LOCID", best);
+		int flips = this.mySettings.getFlips();
+		report.add("LOCAL_OPTIMA_1FLIP", optima);
+		if (flips > 1) {
+			report.add("LOCAL_OPTIMA_" + flips + "FLIP", flipOptima);
+		}
+		report.add("FDC", (varianceX <= 0.0 || varianceY <= 0.0 ? Double.NaN
+				: covariance / Math.sqrt(varianceX * varianceY)));
+		report.add("BASINS", optima);
+		report.add("LARGEST_BASIN", largest);
+		report.add("GLOBAL_MAX_BASIN", bestBasin);
+		// basin sizes are unsigned, and 0 stands for 2^64
+		long histogram[] = new long[65];
+		for (Map.Entry<Long, Long> basin : basins.entrySet()) {
+			long size = basin.getKey();
+			histogram[size == 0 ? 64 : 63 - Long.numberOfLeadingZeros(size)] += basin
+					.getValue();
+		}
+		for (int i = 0; i <= 64; i++) {
+			if (histogram[i] > 0) {
+				report.add("BASIN_SIZE_" + BigInteger.ONE.shiftLeft(i) + "_"
+						+ BigInteger.ONE.shiftLeft(i + 1).subtract(
+								BigInteger.ONE), histogram[i]);
+			}
+		}
+
+		this.analyzeRandomWalk(report);
+		return report;
+	}
+
+	private static class BlockResult {
+		private int mySize;
+		/**
+		 * the index of the best configuration, the lowest one on ties
+		 */
+		private int myBest;
+		private long myOptima;
+		private long myFlipOptima;
+		private RunningMoments myFitnessDistance = new RunningMoments();
+		/**
+		 * basin size -> number of local optima with a basin of that size
+		 */
+		private HashMap<Long, Long> myBasins = new HashMap<Long, Long>();
+		private long myLargestBasin;
+		private long myBestBasin;
+	}
+
+	/**
+	 * Analyzes one block exhaustively on its configuration fitness values, in
+	 * the same way as ExhaustiveAnalyzer analyzes a whole landscape.
+	 */
+	private class BlockPass extends Pass<ArrayList<BlockResult>> {
+		@Override
+		protected ArrayList<BlockResult> visit(int block) {
+			BlockResult result = new BlockResult();
+			float scores[] = myLdscp.getBlockScores(block);
+			int bits = myLdscp.getBlockSize(block);
+			result.mySize = bits;
+			int best = 0;
+			for (int i = 1; i < scores.length; i++) {
+				if (scores[i] > scores[best]) {
+					best = i;
+				}
+			}
+			result.myBest = best;
+
+			int flips = Math.min(mySettings.getFlips(), bits);
+			long flipMasks[] = (flips < 2 ? new long[0] : getFlipMasks(bits,
+					2, flips));
+			int successors[] = new int[scores.length];
+			for (int i = 0; i < scores.length; i++) {
+				int successor = i;
+				for (int bit = 0; bit < bits; bit++) {
+					if (scores[i ^ (1 << bit)] > scores[successor]) {
+						successor = i ^ (1 << bit);
+					}
+				}
+				successors[i] = successor;
+				if (successor == i) {
+					result.myOptima++;
+					boolean isOptimum = true;
+					for (int j = 0; j < flipMasks.length && isOptimum; j++) {
+						isOptimum = scores[i ^ (int) flipMasks[j]] <= scores[i];
+					}
+					if (isOptimum) {
+						result.myFlipOptima++;
+					}
+				}
+				result.myFitnessDistance.add(Integer.bitCount(i ^ best),
+						scores[i]);
+			}
+
+			// follow every ascent to its end by pointer jumping
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (int i = 0; i < successors.length; i++) {
+					int next = successors[successors[i]];
+					if (next != successors[i]) {
+						successors[i] = next;
+						changed = true;
+					}
+				}
+			}
+			long sizes[] = new long[scores.length];
+			for (int i = 0; i < successors.length; i++) {
+				sizes[successors[i]]++;
+			}
+			for (int i = 0; i < sizes.length; i++) {
+				if (sizes[i] > 0) {
+					Long count = result.myBasins.get(sizes[i]);
+					result.myBasins.put(sizes[i], (count == null ? 1L
+							: count + 1));
+					result.myLargestBasin = Math.max(result.myLargestBasin,
+							sizes[i]);
+				}
+			}
+			result.myBestBasin = sizes[successors[best]];
+
+			ArrayList<BlockResult> results = new ArrayList<BlockResult>();
+			results.add(result);
+			return results;
+		}
+
+		@Override
+		protected ArrayList<BlockResult> combine(ArrayList<BlockResult> left,
+				ArrayList<BlockResult> right) {
+			left.addAll(right);
+			return left;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package landscape.analysis;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import landscape.Landscape;
+
+/**
+ * An analyzer that scores every one of the 2^N locations, so all statistics
+ * but the random-walk autocorrelation are exact. It needs 8 x 2^N bytes, for
+ * the fitness values and the steepest-ascent successor of every location.
+ *
+ * The space is split into blocks of 2^14 locations, which are processed by
+ * fork-join tasks. Within a block the locations are scored in Gray-code order,
+ * so consecutive locations differ in one bit and each is scored from the
+ * previous one in O(K) lookups (Landscape.moveContributions()).
+ */
+public class ExhaustiveAnalyzer extends LandscapeAnalyzer {
+	/**
+	 * the largest N whose 2^N values still fit in an array
+	 */
+	public final static int MAX_N = 30;
+	private final static int BLOCK_BITS = 14;
+	private final static VarHandle SUCCESSOR = MethodHandles
+			.arrayElementVarHandle(int[].class);
+
+	private int myBlockBits;
+	private int myBlocks;
+	private float myScores[];
+	/**
+	 * the steepest-ascent successor of each location, itself for a local
+	 * optimum; later the local optimum at the end of the ascent, and then,
+	 * for a local optimum, the negated size of its basin
+	 */
+	private int mySuccessors[];
+
+	/**
+	 * Create an exhaustive analyzer of the given landscape. If N is larger
+	 * than ExhaustiveAnalyzer.MAX_N, the program will exit.
+	 *
+	 * @param ldscp
+	 *            a landscape object
+	 * @param settings
+	 *            an analysis settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 */
+	public ExhaustiveAnalyzer(Landscape ldscp, AnalysisSettings settings,
+			int seed) {
+		super(ldscp, settings, seed);
+		if (this.myN > MAX_N) {
+			System.out.println("ERROR : N = " + this.myN
+					+ " is too large for exhaustive analysis");
+			System.exit(1);
+		}
+		this.myBlockBits = Math.min(this.myN, BLOCK_BITS);
+		this.myBlocks = 1 << (this.myN - this.myBlockBits);
+	}
+
+	@Override
+	public AnalysisMode getMode() {
+		return AnalysisMode.EXHAUSTIVE;
+	}
+
+	@Override
+	public LandscapeReport analyze() {
+		LandscapeReport report = new LandscapeReport(this.mySeed,
+				this.getMode());
+		int size = 1 << this.myN;
+		this.myScores = new float[size];
+		this.mySuccessors = new int[size];
+
+		int best = this.runInParallel(new ScorePass(), this.myBlocks);
+		report.add("POINTS", size);
+		report.add("GLOBAL_MAX", this.myScores[best]);
+		report.add("GLOBAL_MAX_LOCID", best);
+
+		int flips = this.mySettings.getFlips();
+		NeighbourhoodResult neighbourhood = this.runInParallel(
+				new NeighbourhoodPass(best, this.getFlipMasks(2, flips)),
+				this.myBlocks);
+		report.add("LOCAL_OPTIMA_1FLIP", neighbourhood.myOptima);
+		if (flips > 1) {
+			report.add("LOCAL_OPTIMA_" + flips + "FLIP",
+					neighbourhood.myFlipOptima);
+		}
+		report.add("FDC", neighbourhood.myFitnessDistance.getCorrelation());
+
+		// follow every ascent to its end by pointer jumping
+		while (this.runInParallel(new JumpPass(), this.myBlocks) > 0) {
+		}
+		this.runInParallel(new MarkPass(), this.myBlocks);
+		this.runInParallel(new CountPass(), this.myBlocks);
+		long histogram[] = this.runInParallel(new BasinPass(), this.myBlocks);
+		report.add("BASINS", neighbourhood.myOptima);
+		report.add("LARGEST_BASIN", (double) histogram[64] / size);
+		report.add("GLOBAL_MAX_BASIN", (double) -this.mySuccessors[best]
+				/ size);
+		for (int i = 0; i < 64; i++) {
+			if (histogram[i] > 0) {
+				report.add("BASIN_SIZE_" + (1L << i) + "_"
+						+ ((2L << i) - 1), histogram[i]);
+			}
+		}
+		this.myScores = null;
+		this.mySuccessors = null;
+
+		this.analyzeRandomWalk(report);
+		return report;
+	}
+
+	/**
+	 * Scores the locations of each block in Gray-code order and returns the
+	 * location with the highest fitness value (the lowest such location on
+	 * ties).
+	 */
+	private class ScorePass extends Pass<Integer> {
+		@Override
+		protected Integer visit(int block) {
+			float contributions[] = new float[myN];
+			int locId = block << myBlockBits;
+			myScores[locId] = myLdscp.computeContributions(locId,
+					contributions);
+			int best = locId;
+			for (int i = 1; i < (1 << myBlockBits); i++) {
+				int flipMask = i & -i;
+				float score = myLdscp.moveContributions(locId, contributions,
+						flipMask);
+				locId ^= flipMask;
+				myScores[locId] = score;
+				if (score > myScores[best]
+						|| (score == myScores[best] && locId < best)) {
+					best = locId;
+				}
+			}
+			return best;
+		}
+
+		@Override
+		protected Integer combine(Integer left, Integer right) {
+			return (myScores[right] > myScores[left] ? right : left);
+		}
+	}
+
+	private static class NeighbourhoodResult {
+		private long myOptima;
+		private long myFlipOptima;
+		private RunningMoments myFitnessDistance = new RunningMoments();
+	}
+
+	/**
+	 * Finds the steepest-ascent successor of each location and counts the
+	 * local optima under the 1-flip and the k-flip neighbourhoods. It also
+	 * accumulates the Hamming distance to the global maximum against the
+	 * fitness value.
+	 */
+	private class NeighbourhoodPass extends Pass<NeighbourhoodResult> {
+		private int myBest;
+		/**
+		 * the flip masks of 2 to k bits; a k-flip local optimum must be a
+		 * 1-flip local optimum, so they are only checked for those
+		 */
+		private long myFlipMasks[];
+
+		NeighbourhoodPass(int best, long flipMasks[]) {
+			this.myBest = best;
+			this.myFlipMasks = flipMasks;
+		}
+
+		@Override
+		protected NeighbourhoodResult visit(int block) {
+			NeighbourhoodResult result = new NeighbourhoodResult();
+			int from = block << myBlockBits;
+			int to = from + (1 << myBlockBits);
+			for (int locId = from; locId < to; locId++) {
+				float score = myScores[locId];
+				int successor = locId;
+				for (int bit = 0; bit < myN; bit++) {
+					int neighbour = locId ^ (1 << bit);
+					if (myScores[neighbour] > myScores[successor]) {
+						successor = neighbour;
+					}
+				}
+				mySuccessors[locId] = successor;
+				if (successor == locId) {
+					result.myOptima++;
+					boolean isOptimum = true;
+					for (int i = 0; i < this.myFlipMasks.length && isOptimum; i++) {
+						isOptimum = myScores[locId ^ (int) this.myFlipMasks[i]] <= score;
+					}
+					if (isOptimum) {
+						result.myFlipOptima++;
+					}
+				}
+				result.myFitnessDistance.add(
+						Integer.bitCount(locId ^ this.myBest), score);
+			}
+			return result;
+		}
+
+		@Override
+		protected NeighbourhoodResult combine(NeighbourhoodResult left,
+				NeighbourhoodResult right) {
+			left.myOptima += right.myOptima;
+			left.myFlipOptima += right.myFlipOptima;
+			left.myFitnessDistance.merge(right.myFitnessDistance);
+			return left;
+		}
+	}
+
+	/**
+	 * Replaces the successor of each location by the successor of its
+	 * successor and returns the number of changed successors. Concurrent
+	 * updates are harmless, since every value read is still a location on the
+	 * same ascent.
+	 */
+	private class JumpPass extends Pass<Long> {
+		@Override
+		protected Long visit(int block) {
+			long result = 0;
+			int from = block << myBlockBits;
+			int to = from + (1 << myBlockBits);
+			for (int locId = from; locId < to; locId++) {
+				int successor = mySuccessors[locId];
+				int next = mySuccessors[successor];
+				if (next != successor) {
+					mySuccessors[locId] = next;
+					result++;
+				}
+			}
+			return result;
+		}
+
+		@Override
+		protected Long combine(Long left, Long right) {
+			return left + right;
+		}
+	}
+
+	/**
+	 * Marks each local optimum by setting its entry to -1, i.e. a basin that
+	 * contains only the local optimum.
+	 */
+	private class MarkPass extends Pass<Long> {
+		@Override
+		protected Long visit(int block) {
+			int from = block << myBlockBits;
+			int to = from + (1 << myBlockBits);
+			for (int locId = from; locId < to; locId++) {
+				if (mySuccessors[locId] == locId) {
+					mySuccessors[locId] = -1;
+				}
+			}
+			return 0L;
+		}
+
+		@Override
+		protected Long combine(Long left, Long right) {
+			return 0L;
+		}
+	}
+
+	/**
+	 * Adds each location that is not a local optimum to the basin of the
+	 * local optimum its ascent ends at.
+	 */
+	private class CountPass extends Pass<Long> {
+		@Override
+		protected Long visit(int block) {
+			int from = block << myBlockBits;
+			int to = from + (1 << myBlockBits);
+			for (int locId = from; locId < to; locId++) {
+				int optimum = mySuccessors[locId];
+				if (optimum >= 0) {
+					SUCCESSOR.getAndAdd(mySuccessors, optimum, -1);
+				}
+			}
+			return 0L;
+		}
+
+		@Override
+		protected Long combine(Long left, Long right) {
+			return 0L;
+		}
+	}
+
+	/**
+	 * Returns the number of basins of size 2^i to 2^(i+1)-1 at index i, and
+	 * the size of the largest basin at index 64.
+	 */
+	private class BasinPass extends Pass<long[]> {
+		@Override
+		protected long[] visit(int block) {
+			long result[] = new long[65];
+			int from = block << myBlockBits;
+			int to = from + (1 << myBlockBits);
+			for (int locId = from; locId < to; locId++) {
+				int size = -mySuccessors[locId];
+				if (size > 0) {
+					result[31 - Integer.numberOfLeadingZeros(size)]++;
+					result[64] = Math.max(result[64], size);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		protected long[] combine(long left[], long right[]) {
+			for (int i = 0; i < 64; i++) {
+				left[i] += right[i];
+			}
+			left[64] = Math.max(left[64], right[64]);
+			return left;
+		}
+	}
+}
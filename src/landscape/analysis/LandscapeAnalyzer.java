@@ -0,0 +1,320 @@
+package landscape.analysis;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import landscape.Landscape;
+import random.CounterBasedRandom;
+
+/**
+ * An analyzer computes the statistics of a landscape: global maximum, number
+ * of local optima under 1-flip and k-flip neighbourhoods, basin sizes under
+ * steepest-ascent hill climbing, fitness-distance correlation and random-walk
+ * autocorrelation.
+ *
+ * The analysis uses only the uncached evaluation methods of the landscape, so
+ * it may run on many threads and never touches the global random generator;
+ * the simulations of a run produce the same output with or without it. Its
+ * own random numbers are drawn from counter-based streams keyed by the run
+ * number, so a report does not depend on the number of threads either.
+ */
+public abstract class LandscapeAnalyzer {
+	public enum AnalysisMode {
+		AUTO, EXHAUSTIVE, BLOCK, SAMPLED
+	}
+
+	/**
+	 * the largest N that the AUTO mode analyzes exhaustively
+	 */
+	public final static int AUTO_EXHAUSTIVE_N = 28;
+	/**
+	 * the largest number of k-flip neighbours checked per location
+	 */
+	private final static long MAX_FLIP_MASKS = 1 << 20;
+	private final static long MAGIC_KEY = 900111;
+	protected final static long WALK_STREAM = 0;
+	protected final static long CLIMB_STREAM = 1;
+	protected final static long SAMPLE_STREAM = 2;
+
+	protected Landscape myLdscp;
+	protected AnalysisSettings mySettings;
+	protected int mySeed;
+	protected int myN;
+	/**
+	 * the key of all random streams of the analysis
+	 */
+	protected long myKey;
+
+	/**
+	 * Create an analyzer of the given landscape. If a setting is not positive
+	 * or k of the k-flip neighbourhood is larger than N, the program will
+	 * exit.
+	 *
+	 * @param ldscp
+	 *            a landscape object
+	 * @param settings
+	 *            an analysis settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 */
+	public LandscapeAnalyzer(Landscape ldscp, AnalysisSettings settings,
+			int seed) {
+		this.myLdscp = ldscp;
+		this.mySettings = settings;
+		this.mySeed = seed;
+		this.myN = ldscp.getInfN();
+		this.myKey = CounterBasedRandom.split(MAGIC_KEY, seed);
+		if (settings.getFlips() <= 0 || settings.getFlips() > this.myN) {
+			System.out.println("ERROR : invalid analysis flips "
+					+ settings.getFlips());
+			System.exit(1);
+		}
+		if (settings.getSamples() <= 0 || settings.getClimbs() <= 0
+				|| settings.getWalkLength() <= settings.getLags()
+				|| settings.getLags() <= 0) {
+			System.out.println("ERROR : invalid analysis settings");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Return the mode of the analyzer.
+	 *
+	 * @return EXHAUSTIVE, BLOCK or SAMPLED
+	 */
+	public abstract AnalysisMode getMode();
+
+	/**
+	 * Analyze the landscape and return its report.
+	 *
+	 * @return the report of the landscape
+	 */
+	public abstract LandscapeReport analyze();
+
+	/**
+	 * Return a string, which is the output file name of the reports.
+	 *
+	 * @return a string, which is the output file name
+	 */
+	public String constructOutputFileName() {
+		return "a_n" + this.myN + "k" + this.myLdscp.getInfK() + ".txt";
+	}
+
+	/**
+	 * Walk randomly over the landscape, flipping one uniformly chosen bit per
+	 * step, and add the autocorrelation of the fitness values at lags 1 to
+	 * AnalysisSettings.getLags() and the correlation length -1/ln|r(1)| to the
+	 * given report.
+	 *
+	 * @param report
+	 *            a report, which receives the statistics
+	 */
+	protected void analyzeRandomWalk(LandscapeReport report) {
+		int length = this.mySettings.getWalkLength();
+		long key = CounterBasedRandom.split(this.myKey, WALK_STREAM);
+		float walk[] = new float[length];
+		float contributions[] = new float[this.myN];
+		long locId = this.randomLocId(key, 0);
+		walk[0] = this.myLdscp.computeContributions(locId, contributions);
+		for (int t = 1; t < length; t++) {
+			long flipMask = 1L << this.randomBit(key, t);
+			walk[t] = this.myLdscp.moveContributions(locId, contributions,
+					flipMask);
+			locId ^= flipMask;
+		}
+		double mean = 0.0;
+		for (int t = 0; t < length; t++) {
+			mean += walk[t];
+		}
+		mean /= length;
+		double variance = 0.0;
+		for (int t = 0; t < length; t++) {
+			variance += (walk[t] - mean) * (walk[t] - mean);
+		}
+		double lag1 = Double.NaN;
+		for (int lag = 1; lag <= this.mySettings.getLags(); lag++) {
+			double covariance = 0.0;
+			for (int t = 0; t + lag < length; t++) {
+				covariance += (walk[t] - mean) * (walk[t + lag] - mean);
+			}
+			double r = covariance / variance;
+			if (lag == 1) {
+				lag1 = r;
+			}
+			report.add("AUTOCORRELATION_" + lag, r);
+		}
+		report.add("CORRELATION_LENGTH", -1.0 / Math.log(Math.abs(lag1)));
+	}
+
+	/**
+	 * Return all flip masks of N bits with at least minBits and at most
+	 * maxBits set bits, ordered by the number of set bits. If there are more
+	 * than 2^20 such masks, the program will exit.
+	 *
+	 * @param minBits
+	 *            a positive integer
+	 * @param maxBits
+	 *            an integer between minBits and N (inclusive)
+	 * @return the flip masks
+	 */
+	protected long[] getFlipMasks(int minBits, int maxBits) {
+		return getFlipMasks(this.myN, minBits, maxBits);
+	}
+
+	/**
+	 * Return all flip masks of n bits with at least minBits and at most
+	 * maxBits set bits, ordered by the number of set bits. If there are more
+	 * than 2^20 such masks, the program will exit.
+	 *
+	 * @param n
+	 *            a positive integer, which is the number of bits
+	 * @param minBits
+	 *            a positive integer
+	 * @param maxBits
+	 *            an integer between minBits and n (inclusive)
+	 * @return the flip masks
+	 */
+	protected static long[] getFlipMasks(int n, int minBits, int maxBits) {
+		long count = 0;
+		for (int bits = minBits; bits <= maxBits; bits++) {
+			count += binomial(n, bits);
+			if (count > MAX_FLIP_MASKS) {
+				System.out.println("ERROR : too many " + maxBits
+						+ "-flip neighbours for N = " + n);
+				System.exit(1);
+			}
+		}
+		long result[] = new long[(int) count];
+		int index = 0;
+		for (int bits = minBits; bits <= maxBits; bits++) {
+			long mask = (1L << bits) - 1;
+			for (long i = binomial(n, bits); i > 0; i--) {
+				result[index++] = mask;
+				// next larger mask with the same number of set bits
+				long lowest = mask & -mask;
+				long ripple = mask + lowest;
+				mask = (((ripple ^ mask) >>> 2) / lowest) | ripple;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return a uniformly random location id of N bits at the given counter of
+	 * the given stream.
+	 *
+	 * @param key
+	 *            a long, which identifies the stream
+	 * @param counter
+	 *            a long, which is the position in the stream
+	 * @return a random location id
+	 */
+	protected long randomLocId(long key, long counter) {
+		return CounterBasedRandom.longAt(key, counter)
+				& (-1L >>> (64 - this.myN));
+	}
+
+	/**
+	 * Return a uniformly random bit index between 0 and N-1 (inclusive) at the
+	 * given counter of the given stream.
+	 *
+	 * @param key
+	 *            a long, which identifies the stream
+	 * @param counter
+	 *            a long, which is the position in the stream
+	 * @return a random bit index
+	 */
+	protected int randomBit(long key, long counter) {
+		return (int) (((CounterBasedRandom.longAt(key, counter) >>> 32) * this.myN) >>> 32);
+	}
+
+	/**
+	 * Run the given pass over the given number of chunks on the common
+	 * fork-join pool and return the combined result. The chunks are split in
+	 * halves recursively, so results are always combined in the same order.
+	 *
+	 * @param pass
+	 *            a pass
+	 * @param chunks
+	 *            a positive integer, which is the number of chunks
+	 * @return the combined result of all chunks
+	 */
+	protected <T> T runInParallel(Pass<T> pass, int chunks) {
+		return ForkJoinPool.commonPool().invoke(
+				new PassTask<T>(pass, 0, chunks));
+	}
+
+	/**
+	 * Return the number of ways to choose k out of n, or MAX_FLIP_MASKS + 1 if
+	 * it is larger than MAX_FLIP_MASKS. The partial products C(n-k+i, i) grow
+	 * with i, so the computation stops before it could overflow.
+	 *
+	 * @param n
+	 *            a non-negative integer
+	 * @param k
+	 *            an integer between 0 and n (inclusive)
+	 * @return n choose k, at most MAX_FLIP_MASKS + 1
+	 */
+	private static long binomial(int n, int k) {
+		long result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+			if (result > MAX_FLIP_MASKS) {
+				return MAX_FLIP_MASKS + 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A computation over chunks of the work, whose results are combined
+	 * pairwise.
+	 */
+	protected static abstract class Pass<T> {
+		/**
+		 * Process the given chunk and return its result.
+		 *
+		 * @param chunk
+		 *            a non-negative integer, which identifies the chunk
+		 * @return the result of the chunk
+		 */
+		protected abstract T visit(int chunk);
+
+		/**
+		 * Return the combined result of two adjacent ranges of chunks.
+		 *
+		 * @param left
+		 *            the result of the lower range
+		 * @param right
+		 *            the result of the upper range
+		 * @return the combined result
+		 */
+		protected abstract T combine(T left, T right);
+	}
+
+	private static class PassTask<T> extends RecursiveTask<T> {
+		private static final long serialVersionUID = 1L;
+		private Pass<T> myPass;
+		private int myFrom, myTo;
+
+		PassTask(Pass<T> pass, int from, int to) {
+			this.myPass = pass;
+			this.myFrom = from;
+			this.myTo = to;
+		}
+
+		@Override
+		protected T compute() {
+			if (this.myTo - this.myFrom == 1) {
+				return this.myPass.visit(this.myFrom);
+			}
+			int middle = (this.myFrom + this.myTo) >>> 1;
+			PassTask<T> left = new PassTask<T>(this.myPass, this.myFrom,
+					middle);
+			left.fork();
+			T right = new PassTask<T>(this.myPass, middle, this.myTo)
+					.compute();
+			return this.myPass.combine(left.join(), right);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package landscape.analysis;
+
+import java.util.ArrayList;
+
+import landscape.analysis.LandscapeAnalyzer.AnalysisMode;
+import util.OutputWriter;
+
+/**
+ * The statistics of one landscape, i.e. of one run of a case, in the order in
+ * which they were computed.
+ */
+public class LandscapeReport {
+	private int mySeed;
+	private AnalysisMode myMode;
+	private ArrayList<String> myStatistics;
+	private ArrayList<String> myValues;
+
+	/**
+	 * Create an empty report of the landscape of the given run.
+	 *
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 * @param mode
+	 *            the mode in which the statistics are computed
+	 */
+	public LandscapeReport(int seed, AnalysisMode mode) {
+		this.mySeed = seed;
+		this.myMode = mode;
+		this.myStatistics = new ArrayList<String>();
+		this.myValues = new ArrayList<String>();
+	}
+
+	/**
+	 * Add a statistic to the report.
+	 *
+	 * @param statistic
+	 *            a string, which names the statistic
+	 * @param value
+	 *            the value of the statistic
+	 */
+	public void add(String statistic, Object value) {
+		this.myStatistics.add(statistic);
+		this.myValues.add(String.valueOf(value));
+	}
+
+	/**
+	 * Return the value of the given statistic, or null if it is not in the
+	 * report.
+	 *
+	 * @param statistic
+	 *            a string, which names the statistic
+	 * @return the value of the statistic, or null
+	 */
+	public String get(String statistic) {
+		int index = this.myStatistics.indexOf(statistic);
+		return (index < 0 ? null : this.myValues.get(index));
+	}
+
+	/**
+	 * Append the report to the given file, one statistic per line: SEED, MODE,
+	 * STATISTIC, VALUE.
+	 *
+	 * @param fileName
+	 *            a string, which directs to the file to be written (append) to
+	 */
+	public void write(String fileName) {
+		OutputWriter writer = new OutputWriter();
+		writer.setOutputFile(fileName);
+		for (int i = 0; i < this.myStatistics.size(); i++) {
+			writer.writeLine(this.mySeed + "\t" + this.myMode + "\t"
+					+ this.myStatistics.get(i) + "\t" + this.myValues.get(i));
+		}
+		writer.close();
+	}
+}
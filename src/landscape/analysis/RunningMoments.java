@@ -0,0 +1,173 @@
+package landscape.analysis;
+
+/**
+ * Streaming estimator of the means, variances and covariance of pairs (x, y),
+ * updated one pair at a time in O(1) memory (Welford's algorithm). Two
+ * estimators of disjoint parts of a stream can be merged (Chan et al.), so
+ * each fork-join task keeps its own estimator and the results are merged up
+ * the task tree. The merge order is fixed by the task tree, so the result does
+ * not depend on the number of threads.
+ */
+public class RunningMoments {
+	private long myCount;
+	private double myMeanX, myMeanY;
+	/**
+	 * sums of squared deviations from the mean, and of products of deviations
+	 */
+	private double mySxx, mySyy, mySxy;
+
+	/**
+	 * Create an empty estimator.
+	 */
+	public RunningMoments() {
+		this.myCount = 0;
+		this.myMeanX = 0.0;
+		this.myMeanY = 0.0;
+		this.mySxx = 0.0;
+		this.mySyy = 0.0;
+		this.mySxy = 0.0;
+	}
+
+	/**
+	 * Add a pair to the estimator.
+	 *
+	 * @param x
+	 *            a double
+	 * @param y
+	 *            a double
+	 */
+	public void add(double x, double y) {
+		this.myCount++;
+		double dx = x - this.myMeanX;
+		this.myMeanX += dx / this.myCount;
+		double dy = y - this.myMeanY;
+		this.myMeanY += dy / this.myCount;
+		this.mySxx += dx * (x - this.myMeanX);
+		this.mySyy += dy * (y - this.myMeanY);
+		this.mySxy += dx * (y - this.myMeanY);
+	}
+
+	/**
+	 * Add all pairs of the given estimator to this estimator.
+	 *
+	 * @param other
+	 *            an estimator of a disjoint part of the stream
+	 */
+	public void merge(RunningMoments other) {
+		if (other.myCount == 0) {
+			return;
+		}
+		if (this.myCount == 0) {
+			this.myCount = other.myCount;
+			this.myMeanX = other.myMeanX;
+			this.myMeanY = other.myMeanY;
+			this.mySxx = other.mySxx;
+			this.mySyy = other.mySyy;
+			this.mySxy = other.mySxy;
+			return;
+		}
+		long count = this.myCount + other.myCount;
+		double dx = other.myMeanX - this.myMeanX;
+		double dy = other.myMeanY - this.myMeanY;
+		double weight = (double) this.myCount * other.myCount / count;
+		this.mySxx += other.mySxx + dx * dx * weight;
+		this.mySyy += other.mySyy + dy * dy * weight;
+		this.mySxy += other.mySxy + dx * dy * weight;
+		this.myMeanX += dx * other.myCount / count;
+		this.myMeanY += dy * other.myCount / count;
+		this.myCount = count;
+	}
+
+	/**
+	 * Return the number of pairs.
+	 *
+	 * @return the number of pairs
+	 */
+	public long getCount() {
+		return this.myCount;
+	}
+
+	/**
+	 * Return the mean of x.
+	 *
+	 * @return the mean of x
+	 */
+	public double getMeanX() {
+		return this.myMeanX;
+	}
+
+	/**
+	 * Return the mean of y.
+	 *
+	 * @return the mean of y
+	 */
+	public double getMeanY() {
+		return this.myMeanY;
+	}
+
+	/**
+	 * Return the standard error of the mean of x, i.e. the sample standard
+	 * deviation of x divided by the square root of the number of pairs.
+	 *
+	 * @return the standard error of the mean of x
+	 */
+	public double getStandardErrorX() {
+		if (this.myCount < 2) {
+			return Double.NaN;
+		}
+		return Math.sqrt(this.mySxx / (this.myCount - 1) / this.myCount);
+	}
+
+	/**
+	 * Return the standard error of the mean of y.
+	 *
+	 * @return the standard error of the mean of y
+	 */
+	public double getStandardErrorY() {
+		if (this.myCount < 2) {
+			return Double.NaN;
+		}
+		return Math.sqrt(this.mySyy / (this.myCount - 1) / this.myCount);
+	}
+
+	/**
+	 * Return the population variance of x, i.e. the mean squared deviation
+	 * from the mean of x, or NaN if there is no pair.
+	 *
+	 * @return the population variance of x
+	 */
+	public double getVarianceX() {
+		return this.mySxx / this.myCount;
+	}
+
+	/**
+	 * Return the population variance of y, or NaN if there is no pair.
+	 *
+	 * @return the population variance of y
+	 */
+	public double getVarianceY() {
+		return this.mySyy / this.myCount;
+	}
+
+	/**
+	 * Return the population covariance of x and y, or NaN if there is no pair.
+	 *
+	 * @return the population covariance of x and y
+	 */
+	public double getCovariance() {
+		return this.mySxy / this.myCount;
+	}
+
+	/**
+	 * Return the Pearson correlation coefficient of x and y, or NaN if x or y
+	 * is constant.
+	 *
+	 * @return the correlation coefficient of x and y
+	 */
+	public double getCorrelation() {
+		if (this.mySxx <= 0.0 || this.mySyy <= 0.0) {
+			return Double.NaN;
+		}
+		return this.mySxy / Math.sqrt(this.mySxx * this.mySyy);
+	}
+}
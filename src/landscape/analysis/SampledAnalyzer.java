@@ -0,0 +1,229 @@
+package landscape.analysis;
+
+import java.util.HashMap;
+
+import landscape.Landscape;
+import random.CounterBasedRandom;
+
+/**
+ * An analyzer for landscapes too large to enumerate. Statistics are
+ * estimated from independent hill climbs and uniformly random sample points,
+ * processed by fork-join tasks with streaming estimators:
+ * <ul>
+ * <li>the global maximum is the best local optimum found by the climbs, i.e.
+ * a lower bound;</li>
+ * <li>a basin size is the fraction of climbs that ended at its local
+ * optimum;</li>
+ * <li>the number of local optima is the fraction of sample points that are
+ * local optima times 2^N, with its standard error;</li>
+ * <li>the fitness-distance correlation is taken over the sample points,
+ * w.r.t. the best local optimum found.</li>
+ * </ul>
+ */
+public class SampledAnalyzer extends LandscapeAnalyzer {
+	private final static int CLIMBS_PER_CHUNK = 8;
+	private final static int SAMPLES_PER_CHUNK = 1024;
+
+	private long myOptima[];
+	private float myOptimumScores[];
+
+	/**
+	 * Create a sampled analyzer of the given landscape.
+	 *
+	 * @param ldscp
+	 *            a landscape object
+	 * @param settings
+	 *            an analysis settings object
+	 * @param seed
+	 *            a non-negative integer, which is the run number
+	 */
+	public SampledAnalyzer(Landscape ldscp, AnalysisSettings settings,
+			int seed) {
+		super(ldscp, settings, seed);
+	}
+
+	@Override
+	public AnalysisMode getMode() {
+		return AnalysisMode.SAMPLED;
+	}
+
+	@Override
+	public LandscapeReport analyze() {
+		LandscapeReport report = new LandscapeReport(this.mySeed,
+				this.getMode());
+
+		int climbs = this.mySettings.getClimbs();
+		this.myOptima = new long[climbs];
+		this.myOptimumScores = new float[climbs];
+		this.runInParallel(new ClimbPass(), (climbs + CLIMBS_PER_CHUNK - 1)
+				/ CLIMBS_PER_CHUNK);
+		int best = 0;
+		HashMap<Long, Integer> hits = new HashMap<Long, Integer>();
+		for (int i = 0; i < climbs; i++) {
+			if (this.myOptimumScores[i] > this.myOptimumScores[best]) {
+				best = i;
+			}
+			Integer count = hits.get(this.myOptima[i]);
+			hits.put(this.myOptima[i], (count == null ? 1 : count + 1));
+		}
+		long bestLocId = this.myOptima[best];
+		report.add("CLIMBS", climbs);
+		report.add("GLOBAL_MAX", this.myOptimumScores[best]);
+		report.add("GLOBAL_MAX_LOCID", bestLocId);
+		report.add("DISTINCT_OPTIMA", hits.size());
+		long histogram[] = new long[32];
+		int largest = 0;
+		for (int count : hits.values()) {
+			histogram[31 - Integer.numberOfLeadingZeros(count)]++;
+			largest = Math.max(largest, count);
+		}
+		report.add("LARGEST_BASIN", (double) largest / climbs);
+		report.add("GLOBAL_MAX_BASIN", (double) hits.get(bestLocId) / climbs);
+		for (int i = 0; i < 32; i++) {
+			if (histogram[i] > 0) {
+				report.add("BASIN_HITS_" + (1L << i) + "_" + ((2L << i) - 1),
+						histogram[i]);
+			}
+		}
+		this.myOptima = null;
+		this.myOptimumScores = null;
+
+		int samples = this.mySettings.getSamples();
+		int flips = this.mySettings.getFlips();
+		SampleResult sample = this.runInParallel(new SamplePass(bestLocId,
+				this.getFlipMasks(2, flips)),
+				(samples + SAMPLES_PER_CHUNK - 1) / SAMPLES_PER_CHUNK);
+		double size = Math.pow(2, this.myN);
+		report.add("POINTS", samples);
+		report.add("LOCAL_OPTIMA_1FLIP", sample.myOptima.getMeanX() * size);
+		report.add("LOCAL_OPTIMA_1FLIP_STDERR",
+				sample.myOptima.getStandardErrorX() * size);
+		if (flips > 1) {
+			report.add("LOCAL_OPTIMA_" + flips + "FLIP",
+					sample.myOptima.getMeanY() * size);
+			report.add("LOCAL_OPTIMA_" + flips + "FLIP_STDERR",
+					sample.myOptima.getStandardErrorY() * size);
+		}
+		report.add("FDC", sample.myFitnessDistance.getCorrelation());
+
+		this.analyzeRandomWalk(report);
+		return report;
+	}
+
+	/**
+	 * Return the fitness value of the best location that differs from the
+	 * given location in one bit, and store its flip mask in the given array.
+	 * The lowest bit is taken on ties.
+	 *
+	 * @param locId
+	 *            a location id
+	 * @param contributions
+	 *            the fitness contributions of the location id
+	 * @param bestFlipMask
+	 *            an array of size 1, which receives the flip mask
+	 * @return the fitness value of the best 1-flip neighbour
+	 */
+	private float getBestNeighbour(long locId, float contributions[],
+			long bestFlipMask[]) {
+		float result = Float.NEGATIVE_INFINITY;
+		for (int bit = 0; bit < this.myN; bit++) {
+			float score = this.myLdscp.computeScoreOfFlip(locId,
+					contributions, 1L << bit);
+			if (score > result) {
+				result = score;
+				bestFlipMask[0] = 1L << bit;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs steepest-ascent hill climbs from random locations and stores the
+	 * local optimum and its fitness value of each climb.
+	 */
+	private class ClimbPass extends Pass<Long> {
+		@Override
+		protected Long visit(int chunk) {
+			long key = CounterBasedRandom.split(myKey, CLIMB_STREAM);
+			float contributions[] = new float[myN];
+			long flipMask[] = new long[1];
+			int from = chunk * CLIMBS_PER_CHUNK;
+			int to = Math.min(from + CLIMBS_PER_CHUNK, myOptima.length);
+			for (int i = from; i < to; i++) {
+				long locId = randomLocId(key, i);
+				float score = myLdscp.computeContributions(locId,
+						contributions);
+				while (getBestNeighbour(locId, contributions, flipMask) > score) {
+					score = myLdscp.moveContributions(locId, contributions,
+							flipMask[0]);
+					locId ^= flipMask[0];
+				}
+				myOptima[i] = locId;
+				myOptimumScores[i] = score;
+			}
+			return 0L;
+		}
+
+		@Override
+		protected Long combine(Long left, Long right) {
+			return 0L;
+		}
+	}
+
+	private static class SampleResult {
+		/**
+		 * x is 1 for a 1-flip local optimum, y is 1 for a k-flip local optimum
+		 */
+		private RunningMoments myOptima = new RunningMoments();
+		private RunningMoments myFitnessDistance = new RunningMoments();
+	}
+
+	/**
+	 * Checks whether random locations are local optima under the 1-flip and
+	 * the k-flip neighbourhoods, and accumulates their Hamming distance to the
+	 * best local optimum found against their fitness value.
+	 */
+	private class SamplePass extends Pass<SampleResult> {
+		private long myBest;
+		private long myFlipMasks[];
+
+		SamplePass(long best, long flipMasks[]) {
+			this.myBest = best;
+			this.myFlipMasks = flipMasks;
+		}
+
+		@Override
+		protected SampleResult visit(int chunk) {
+			SampleResult result = new SampleResult();
+			long key = CounterBasedRandom.split(myKey, SAMPLE_STREAM);
+			float contributions[] = new float[myN];
+			long flipMask[] = new long[1];
+			int from = chunk * SAMPLES_PER_CHUNK;
+			int to = Math.min(from + SAMPLES_PER_CHUNK,
+					mySettings.getSamples());
+			for (int i = from; i < to; i++) {
+				long locId = randomLocId(key, i);
+				float score = myLdscp.computeContributions(locId,
+						contributions);
+				boolean isOptimum = getBestNeighbour(locId, contributions,
+						flipMask) <= score;
+				boolean isFlipOptimum = isOptimum;
+				for (int j = 0; j < this.myFlipMasks.length && isFlipOptimum; j++) {
+					isFlipOptimum = myLdscp.computeScoreOfFlip(locId,
+							contributions, this.myFlipMasks[j]) <= score;
+				}
+				result.myOptima.add(isOptimum ? 1 : 0, isFlipOptimum ? 1 : 0);
+				result.myFitnessDistance.add(
+						Long.bitCount(locId ^ this.myBest), score);
+			}
+			return result;
+		}
+
+		@Override
+		protected SampleResult combine(SampleResult left, SampleResult right) {
+			left.myOptima.merge(right.myOptima);
+			left.myFitnessDistance.merge(right.myFitnessDistance);
+			return left;
+		}
+	}
+}
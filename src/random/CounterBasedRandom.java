@@ -0,0 +1,111 @@
+package random;
+
+/**
+ * A stateless, counter-based random number generator. Instead of advancing an
+ * internal state, every value is computed directly from a key and a counter,
+ * so the value at any position of the stream can be obtained in O(1) time,
+ * in any order and from any thread. The mixing function is the SplitMix64
+ * finalizer, i.e. the value at (key, counter) equals the counter-th output of
+ * a SplitMix64 generator seeded with the key.
+ */
+public class CounterBasedRandom {
+	/**
+	 * the odd increment of SplitMix64 (the golden ratio in fixed point)
+	 */
+	private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Return a well-mixed 64-bit value of the given 64-bit value. The function
+	 * is a bijection, so distinct inputs never collide.
+	 *
+	 * @param z
+	 *            a long
+	 * @return a well-mixed 64-bit value of the given value
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Derive a new key from the given key and the given stream index, so that
+	 * independent streams (e.g. one per row of a table) can be split off a
+	 * single key.
+	 *
+	 * @param key
+	 *            a long, which identifies the parent stream
+	 * @param stream
+	 *            a long, which identifies the child stream
+	 * @return a key of the child stream
+	 */
+	public static long split(long key, long stream) {
+		return mix(key ^ mix(stream * GOLDEN_GAMMA + GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Return the 64 random bits at the given counter of the stream identified
+	 * by the given key.
+	 *
+	 * @param key
+	 *            a long, which identifies the stream
+	 * @param counter
+	 *            a long, which is the position in the stream
+	 * @return the 64 random bits at the given position of the stream
+	 */
+	public static long longAt(long key, long counter) {
+		return mix(key + (counter + 1) * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Return a random float in the half-open range [0.0f, 1.0f) at the given
+	 * counter of the stream identified by the given key. Like
+	 * MersenneTwisterFast.nextFloat(), the float is built from 24 random bits.
+	 *
+	 * @param key
+	 *            a long, which identifies the stream
+	 * @param counter
+	 *            a long, which is the position in the stream
+	 * @return a random float in [0.0f, 1.0f) at the given position of the
+	 *         stream
+	 */
+	public static float floatAt(long key, long counter) {
+		return (longAt(key, counter) >>> 40) / ((float) (1 << 24));
+	}
+
+	/**
+	 * Return the image of the given index under a pseudorandom permutation of
+	 * {0, 1, ..., size-1} identified by the given key. As the index runs from
+	 * 0 to size-1, the images visit every integer of the range exactly once,
+	 * in an order that looks uniformly random, without storing the order.
+	 *
+	 * The permutation is an 8-round Feistel network over the smallest domain of
+	 * an even number of bits that holds size; images outside the range are
+	 * mapped again until they fall inside it (cycle walking), which takes
+	 * fewer than 4 mappings on average.
+	 *
+	 * @param index
+	 *            a long between 0 and size-1 (inclusive)
+	 * @param size
+	 *            a positive long, at most 2^62
+	 * @param key
+	 *            a long, which identifies the permutation
+	 * @return the image of the given index
+	 */
+	public static long permute(long index, long size, long key) {
+		int halfBits = Math.max(1, (65 - Long.numberOfLeadingZeros(size - 1)) / 2);
+		long halfMask = (1L << halfBits) - 1;
+		long result = index;
+		do {
+			long left = result >>> halfBits;
+			long right = result & halfMask;
+			for (int round = 0; round < 8; round++) {
+				long next = left ^ (mix(key + round * GOLDEN_GAMMA ^ right) & halfMask);
+				left = right;
+				right = next;
+			}
+			result = (left << halfBits) | right;
+		} while (result >= size);
+		return result;
+	}
+}
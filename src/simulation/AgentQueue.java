@@ -0,0 +1,303 @@
+package simulation;
+
+import java.util.Arrays;
+
+import agent.AgentPopulation;
+
+/**
+ * A work queue of the agents of one population, which take their turns in a
+ * fixed order in every round. Only the active agents are visited: an idle
+ * agent is parked with the round in which it went idle, either for the rest
+ * of the run or until an event wakes it up, and its time stamp is brought up
+ * to date in one step, from the number of rounds it was parked, when it is
+ * woken up or when the run ends.
+ *
+ * Events are identified by integer keys, e.g. the id of a provider whose Q
+ * search has ended. An agent woken up takes its next turn in the next round
+ * of the queue, so events should be raised before the round in which the
+ * waiting agent would notice them.
+ */
+public class AgentQueue {
+	private AgentPopulation myPopulation;
+	/**
+	 * position -> slot, in turn order
+	 */
+	private int myOrder[];
+	/**
+	 * slot -> position, or -1 if the agent is not in the queue
+	 */
+	private int myPositionOf[];
+	/**
+	 * the positions of the active agents of this round, in turn order
+	 */
+	private int myActive[];
+	private int myActiveCount;
+	private int myCursor;
+	/**
+	 * the positions of the agents, which stay active in the next round, in
+	 * turn order
+	 */
+	private int myNext[];
+	private int myNextCount;
+	/**
+	 * the positions of the agents woken up since the round started
+	 */
+	private int myWoken[];
+	private int myWokenCount;
+	/**
+	 * position -> the last round counted in the time stamp of the parked
+	 * agent, or -1 if the agent is active
+	 */
+	private int myParkedRounds[];
+	/**
+	 * key -> the first position waiting for the event, and position -> the
+	 * next position waiting for the same event, or -1
+	 */
+	private int myFirstWaiters[];
+	private int myNextWaiters[];
+	/**
+	 * position -> true if the agent has finished its part of the run, and
+	 * the number of agents, which have not
+	 */
+	private boolean myIsFinished[];
+	private int myUnfinishedCount;
+
+	/**
+	 * Create a queue of all agents of the given population, which take their
+	 * turns in the order of their ids.
+	 *
+	 * @param population
+	 *            a population of agents
+	 * @param keys
+	 *            the number of event keys, which are 0 to keys-1
+	 */
+	public AgentQueue(AgentPopulation population, int keys) {
+		this(population, null, keys);
+	}
+
+	/**
+	 * Create a queue of the given agents of the given population, which take
+	 * their turns in the given order. All agents are active.
+	 *
+	 * @param population
+	 *            a population of agents
+	 * @param order
+	 *            the slots of the agents in turn order, or null for all
+	 *            agents in the order of their ids
+	 * @param keys
+	 *            the number of event keys, which are 0 to keys-1
+	 */
+	public AgentQueue(AgentPopulation population, int order[], int keys) {
+		this.myPopulation = population;
+		if (order == null) {
+			order = new int[population.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+		}
+		this.myOrder = order;
+		this.myPositionOf = new int[population.size()];
+		Arrays.fill(this.myPositionOf, -1);
+		for (int position = 0; position < order.length; position++) {
+			this.myPositionOf[order[position]] = position;
+		}
+		this.myActive = new int[order.length];
+		this.myNext = new int[order.length];
+		for (int position = 0; position < order.length; position++) {
+			this.myNext[position] = position;
+		}
+		this.myNextCount = order.length;
+		this.myWoken = new int[order.length];
+		this.myWokenCount = 0;
+		this.myParkedRounds = new int[order.length];
+		Arrays.fill(this.myParkedRounds, -1);
+		this.myFirstWaiters = new int[keys];
+		Arrays.fill(this.myFirstWaiters, -1);
+		this.myNextWaiters = new int[order.length];
+		this.myIsFinished = new boolean[order.length];
+		this.myUnfinishedCount = order.length;
+	}
+
+	/**
+	 * Return the population of the agents.
+	 *
+	 * @return the population of the agents
+	 */
+	public AgentPopulation getPopulation() {
+		return this.myPopulation;
+	}
+
+	/**
+	 * Start the given round: the agents, which stayed active in the last
+	 * round, and the agents woken up since then take their turns, in turn
+	 * order.
+	 *
+	 * @param round
+	 *            the number of the round, which counts from 1
+	 */
+	public void startRound(int round) {
+		Arrays.sort(this.myWoken, 0, this.myWokenCount);
+		int next = 0, woken = 0;
+		this.myActiveCount = 0;
+		while (next < this.myNextCount || woken < this.myWokenCount) {
+			if (woken == this.myWokenCount
+					|| (next < this.myNextCount && this.myNext[next] < this.myWoken[woken])) {
+				this.myActive[this.myActiveCount++] = this.myNext[next++];
+			} else {
+				int position = this.myWoken[woken++];
+				this.catchUp(position, round - 1);
+				this.myParkedRounds[position] = -1;
+				this.myActive[this.myActiveCount++] = position;
+			}
+		}
+		this.myNextCount = 0;
+		this.myWokenCount = 0;
+		this.myCursor = 0;
+	}
+
+	/**
+	 * Return the slot of the agent, which takes the next turn in this round,
+	 * or -1 if all active agents have taken their turns. The agent stays
+	 * active in the next round unless it is parked in its turn.
+	 *
+	 * @return the slot of the next agent, or -1
+	 */
+	public int next() {
+		if (this.myCursor == this.myActiveCount) {
+			return -1;
+		}
+		int position = this.myActive[this.myCursor++];
+		this.myNext[this.myNextCount++] = position;
+		return this.myOrder[position];
+	}
+
+	/**
+	 * Park the agent, which takes its turn, for the rest of the run. Its time
+	 * stamp must count the given round already.
+	 *
+	 * @param round
+	 *            the current round
+	 */
+	public void park(int round) {
+		int position = this.myNext[--this.myNextCount];
+		this.myParkedRounds[position] = round;
+	}
+
+	/**
+	 * Park the agent, which takes its turn, until the event of the given key.
+	 * Its time stamp must count the given round already.
+	 *
+	 * @param round
+	 *            the current round
+	 * @param key
+	 *            the key of the event, which wakes the agent up
+	 */
+	public void parkUntil(int round, int key) {
+		int position = this.myNext[this.myNextCount - 1];
+		this.park(round);
+		this.myNextWaiters[position] = this.myFirstWaiters[key];
+		this.myFirstWaiters[key] = position;
+	}
+
+	/**
+	 * Wake up all agents, which wait for the event of the given key. They take
+	 * their next turns in the next round of the queue.
+	 *
+	 * @param key
+	 *            the key of an event
+	 */
+	public void wakeUp(int key) {
+		for (int position = this.myFirstWaiters[key]; position >= 0; position = this.myNextWaiters[position]) {
+			this.myWoken[this.myWokenCount++] = position;
+		}
+		this.myFirstWaiters[key] = -1;
+	}
+
+	/**
+	 * Record that the agent of the given slot has finished its part of the
+	 * run. Finishing is for good, so the count of the agents that have not
+	 * finished only goes down, and recording an agent again has no effect.
+	 *
+	 * @param slot
+	 *            an agent id
+	 */
+	public void setFinished(int slot) {
+		int position = this.myPositionOf[slot];
+		if (!this.myIsFinished[position]) {
+			this.myIsFinished[position] = true;
+			this.myUnfinishedCount--;
+		}
+	}
+
+	/**
+	 * Return true if all agents of the queue have finished their part of the
+	 * run, in O(1) time.
+	 *
+	 * @return true if all agents have finished
+	 */
+	public boolean haveAllFinished() {
+		return this.myUnfinishedCount == 0;
+	}
+
+	/**
+	 * Return true if the agent of the given slot is parked.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @return true if the agent of the given slot is parked
+	 */
+	public boolean isParked(int slot) {
+		int position = this.myPositionOf[slot];
+		return position >= 0 && this.myParkedRounds[position] >= 0;
+	}
+
+	/**
+	 * Bring the time stamp of the agent of the given slot up to date with the
+	 * given round if it is parked, i.e. count one tick for every round since
+	 * it was last counted, as if it had waited and done nothing.
+	 *
+	 * @param slot
+	 *            an agent id
+	 * @param round
+	 *            the last round, which has given the agent its turn
+	 */
+	public void updateTimestamp(int slot, int round) {
+		int position = this.myPositionOf[slot];
+		if (position >= 0 && this.myParkedRounds[position] >= 0) {
+			this.catchUp(position, round);
+		}
+	}
+
+	/**
+	 * End the run after the given round: bring the time stamps of all parked
+	 * agents up to date and return their slots in turn order.
+	 *
+	 * @param round
+	 *            the last round of the run
+	 * @return the slots of the parked agents in turn order
+	 */
+	public int[] finish(int round) {
+		int result[] = new int[this.myOrder.length];
+		int count = 0;
+		for (int position = 0; position < this.myOrder.length; position++) {
+			if (this.myParkedRounds[position] >= 0) {
+				this.catchUp(position, round);
+				result[count++] = this.myOrder[position];
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Count the rounds after the last counted one up to the given round in
+	 * the time stamp of the parked agent of the given position.
+	 */
+	private void catchUp(int position, int round) {
+		int rounds = round - this.myParkedRounds[position];
+		if (rounds > 0) {
+			this.myPopulation.get(this.myOrder[position]).waitAndDoNothing(
+					rounds);
+			this.myParkedRounds[position] = round;
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package simulation;
 
 import java.util.HashMap;
-import java.util.HashSet;
 
 import util.Globals;
+import util.IndexedIntSet;
 import agent.Agent;
 import agent.Agent.SearchType;
+import agent.AgentPopulation;
 import agent.Innovator;
 
 /**
@@ -21,8 +22,20 @@ import agent.Innovator;
  * @author ziquan
  */
 public class Alliance extends Simulator {
-	private HashMap<Integer, Integer> myIdPairs;
-	private HashSet<Integer> mySingleSet;
+	private final static int SINGLE = 0;
+	private final static int KEY = 1;
+	private final static int VALUE = 2;
+
+	/**
+	 * agent id -> SINGLE, KEY or VALUE; the partner of a Key or Value
+	 * innovator is its partner id
+	 */
+	private int myRoles[];
+	/**
+	 * the queue of the innovators, in which a Key innovator waits for the end
+	 * of its partner's M search, whose key is the partner id
+	 */
+	private AgentQueue myQueue;
 	private boolean myIsMaxAllianceProcessingPower;
 
 	public Alliance(boolean isMaxAllianceProcessingPower) {
@@ -34,19 +47,24 @@ public class Alliance extends Simulator {
 	public void startSimulation() {
 		Globals.writer.setOutputFile(this.constructOutputFileName());
 		this.randomPairUp();
+		AgentPopulation innovators = Globals.innovators;
+		this.myQueue = new AgentQueue(innovators, innovators.size());
 		while (!this.isDone()) {
-			for (Innovator innovator : Globals.innovatorList) {
+			this.startRound();
+			this.myQueue.startRound(this.getRound());
+			for (int i = this.myQueue.next(); i >= 0; i = this.myQueue.next()) {
+				Innovator innovator = Globals.innovatorList.get(i);
 				// alliance search
-				if (innovator.getSearchType() == SearchType.P) {
+				if (innovators.isSearching(i, SearchType.P)) {
 					// Key innovator:
-					if (this.myIdPairs.containsKey(innovator.getId())) {
-						if (innovator.hasUnvisitedNeighbour()) {
+					if (this.myRoles[i] == KEY) {
+						if (innovators.hasUnvisitedNeighbour(i)) {
 							innovator.continueAllianceSearch();
 						}
 						// P -> Magain
 						else {
 							Innovator partner = Globals.innovatorList
-									.get(this.myIdPairs.get(innovator.getId()));
+									.get(innovators.getPartnerId(i));
 							innovator.startNewSearch(SearchType.Magain);
 							partner.startNewSearch(SearchType.Magain, false);
 						}
@@ -55,22 +73,22 @@ public class Alliance extends Simulator {
 					else {
 						this.writeLog(innovator);
 					}
-				} else if (innovator.hasUnvisitedNeighbour()) {
+				} else if (innovators.hasUnvisitedNeighbour(i)) {
 					innovator.continueSearch();
 					this.writeLog(innovator);
 				}
 				// null -> M
-				else if (innovator.getSearchType() == null) {
+				else if (innovators.isSearching(i, null)) {
 					innovator.startNewSearch(SearchType.M);
 					this.writeLog(innovator);
-				} else if (innovator.getSearchType() == SearchType.M) {
+				} else if (innovators.isSearching(i, SearchType.M)) {
 					// Key innovator:
-					if (this.myIdPairs.containsKey(innovator.getId())) {
-						Innovator partner = Globals.innovatorList
-								.get(this.myIdPairs.get(innovator.getId()));
+					if (this.myRoles[i] == KEY) {
+						int partnerId = innovators.getPartnerId(i);
+						Innovator partner = Globals.innovatorList.get(partnerId);
 						// M -> P
-						if (partner.getSearchType() == SearchType.M
-								&& !partner.hasUnvisitedNeighbour()) {
+						if (innovators.isSearching(partnerId, SearchType.M)
+								&& !innovators.hasUnvisitedNeighbour(partnerId)) {
 							innovator.updateLocIdAndScore(innovator
 									.getLocIdWithOtherLocId(partner.getLocId(),
 											false));
@@ -88,29 +106,47 @@ public class Alliance extends Simulator {
 						}
 						// M -> wait for partner
 						else {
-							innovator.waitAndDoNothing();
+							this.waitFor(this.myQueue, innovator, partnerId);
 						}
 					}
 					// Value innovator: M -> wait for partner
-					else if (this.myIdPairs.containsValue(innovator.getId())) {
+					else if (this.myRoles[i] == VALUE) {
 						innovator.waitAndDoNothing();
 						this.writeLog(innovator);
 					}
 					// Single innovator: M -> wait
 					else {
-						// this.mySingleSet.contains(innovator.getId())
-						innovator.waitAndDoNothing();
-						this.writeLog(innovator);
+						// this.myRoles[i] == SINGLE
+						this.waitIdle(this.myQueue, innovator);
 					}
 				}
 				// Magain -> wait
 				else {
 					// innnovator.getSearchType() == SearchType.Magain
-					innovator.waitAndDoNothing();
-					this.writeLog(innovator);
+					// the log of a Value innovator shows its Key innovator,
+					// so it stays until the Key innovator is idle too
+					if (this.myRoles[i] == KEY
+							|| this.myQueue.isParked(innovators.getPartnerId(i))) {
+						this.waitIdle(this.myQueue, innovator);
+					} else {
+						innovator.waitAndDoNothing();
+						this.writeLog(innovator);
+					}
+				}
+				// Value innovator: the end of M wakes its Key innovator up
+				if (this.myRoles[i] == VALUE
+						&& innovators.isSearching(i, SearchType.M)
+						&& !innovators.hasUnvisitedNeighbour(i)) {
+					this.myQueue.wakeUp(i);
+				}
+				// a Key innovator's turn may finish its partner too
+				this.updateFinished(i);
+				if (this.myRoles[i] == KEY) {
+					this.updateFinished(innovators.getPartnerId(i));
 				}
 			}
 		} // done
+		this.finishQueue(this.myQueue);
 		Globals.writer.close();
 	}
 
@@ -123,21 +159,25 @@ public class Alliance extends Simulator {
 	 */
 	@Override
 	protected boolean isDone() {
-		for (Innovator innovator : Globals.innovatorList) {
-			if ((this.myIdPairs.containsKey(innovator.getId()) || this.myIdPairs
-					.containsValue(innovator.getId()))
-					&& innovator.getSearchType() == SearchType.Magain
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			if (this.mySingleSet.contains(innovator.getId())
-					&& innovator.getSearchType() == SearchType.M
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			return false;
+		return this.myQueue.haveAllFinished();
+	}
+
+	/**
+	 * Record in the queue that the innovator of the given id has finished if
+	 * it is an alliance innovator, which has finished its Magain search, or a
+	 * single innovator, which has finished its M search.
+	 * 
+	 * @param i
+	 *            an innovator id
+	 */
+	private void updateFinished(int i) {
+		AgentPopulation innovators = Globals.innovators;
+		SearchType last = (this.myRoles[i] == SINGLE ? SearchType.M
+				: SearchType.Magain);
+		if (innovators.isSearching(i, last)
+				&& !innovators.hasUnvisitedNeighbour(i)) {
+			this.myQueue.setFinished(i);
 		}
-		return true;
 	}
 
 	@Override
@@ -152,11 +192,13 @@ public class Alliance extends Simulator {
 	protected void writeLog(Agent agt) {
 		// always use passive innovators to write log for alliance
 		// because they have larger ids than their partners have
-		if (this.myIdPairs.containsValue(agt.getId())) {
+		if (this.myRoles[agt.getId()] == VALUE) {
+			this.myQueue.updateTimestamp(((Innovator) agt).getPartnerId(),
+					this.getRound());
 			super.writeLog(Globals.innovatorList.get(((Innovator) agt)
 					.getPartnerId()));
 			super.writeLog(agt);
-		} else if (this.mySingleSet.contains(agt.getId())) {
+		} else if (this.myRoles[agt.getId()] == SINGLE) {
 			super.writeLog(agt);
 		}
 	}
@@ -165,42 +207,58 @@ public class Alliance extends Simulator {
 	 * Randomly pair up partnerships. Two innovators could be paired up only if
 	 * they have the same P. The innovator with smaller id will be the Key
 	 * innovator.
+	 * 
+	 * The innovators are grouped by the mask of their P in one pass. The
+	 * groups are then paired up in the order of their smallest ids, each with
+	 * its members added in increasing order of id, so the random draws are
+	 * the same as when every innovator was compared with every later one.
 	 */
 	private void randomPairUp() {
-		this.myIdPairs = new HashMap<Integer, Integer>();
-		this.mySingleSet = new HashSet<Integer>();
-		for (int i = 0; i < Globals.innovatorList.size(); i++) {
-			if (!this.myIdPairs.containsKey(i)
-					&& !this.myIdPairs.containsValue(i)
-					&& !this.mySingleSet.contains(i)) {
-				HashSet<Integer> candidates = new HashSet<Integer>();
-				candidates.add(i);
-				for (int j = i + 1; j < Globals.innovatorList.size(); j++) {
-					if (Globals.innovatorList.get(i).canPartnerWith(
-							Globals.innovatorList.get(j))) {
-						candidates.add(j);
-					}
-				}
-				if (candidates.size() % 2 == 1) {
-					int unluckyId = Globals
-							.removeRandomElementFromSet(candidates);
-					this.mySingleSet.add(unluckyId);
-					Globals.innovatorList.get(unluckyId).setPartnerId(-1);
-				}
-				while (!candidates.isEmpty()) {
-					int luckyId1 = Globals
-							.removeRandomElementFromSet(candidates);
-					int luckyId2 = Globals
-							.removeRandomElementFromSet(candidates);
-					// use smaller id as key innovator
-					if (luckyId1 < luckyId2) {
-						this.myIdPairs.put(luckyId1, luckyId2);
-					} else {
-						this.myIdPairs.put(luckyId2, luckyId1);
-					}
-					Globals.innovatorList.get(luckyId1).setPartnerId(luckyId2);
-					Globals.innovatorList.get(luckyId2).setPartnerId(luckyId1);
-				}
+		int size = Globals.innovatorList.size();
+		this.myRoles = new int[size];
+		// group index of each innovator, in the order of first appearance
+		HashMap<Long, Integer> groupOfMask = new HashMap<Long, Integer>();
+		int groupOf[] = new int[size];
+		int groupStarts[] = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			long mask = Globals.innovatorList.get(i).getPMask();
+			Integer group = groupOfMask.get(mask);
+			if (group == null) {
+				group = groupOfMask.size();
+				groupOfMask.put(mask, group);
+			}
+			groupOf[i] = group;
+			groupStarts[group + 1]++;
+		}
+		int groups = groupOfMask.size();
+		for (int g = 0; g < groups; g++) {
+			groupStarts[g + 1] += groupStarts[g];
+		}
+		// the members of each group in increasing order of id
+		int members[] = new int[size];
+		int next[] = groupStarts.clone();
+		for (int i = 0; i < size; i++) {
+			members[next[groupOf[i]]++] = i;
+		}
+		IndexedIntSet candidates = new IndexedIntSet(size);
+		for (int g = 0; g < groups; g++) {
+			candidates.clear();
+			for (int m = groupStarts[g]; m < groupStarts[g + 1]; m++) {
+				candidates.add(members[m]);
+			}
+			if (candidates.size() % 2 == 1) {
+				int unluckyId = candidates.removeRandom();
+				this.myRoles[unluckyId] = SINGLE;
+				Globals.innovatorList.get(unluckyId).setPartnerId(-1);
+			}
+			while (!candidates.isEmpty()) {
+				int luckyId1 = candidates.removeRandom();
+				int luckyId2 = candidates.removeRandom();
+				// use smaller id as key innovator
+				this.myRoles[Math.min(luckyId1, luckyId2)] = KEY;
+				this.myRoles[Math.max(luckyId1, luckyId2)] = VALUE;
+				Globals.innovatorList.get(luckyId1).setPartnerId(luckyId2);
+				Globals.innovatorList.get(luckyId2).setPartnerId(luckyId1);
 			}
 		}
 	}
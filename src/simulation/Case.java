@@ -4,39 +4,64 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 import landscape.InfluenceMatrix;
+import landscape.LandscapeSettings;
+import landscape.analysis.AnalysisSettings;
+import simulation.Simulator.ScheduleType;
 import simulation.Simulator.SimulatorType;
+import agent.AgentPopulation;
 import agent.Innovator;
 import agent.Provider;
 
 public class Case {
 	private int myRuns;
 	private InfluenceMatrix myInf;
+	private LandscapeSettings myLandscapeSettings;
+	private AnalysisSettings myAnalysisSettings;
 	private HashSet<SimulatorType> myTypeSet;
+	private ScheduleType myScheduleType;
 	private ArrayList<Innovator> myInnovatorList;
 	private ArrayList<Provider> myProviderList;
+	private AgentPopulation myInnovators;
+	private AgentPopulation myProviders;
 
 	/**
-	 * Create a new Case object with the given parameters.
+	 * Create a new Case object with the given parameters. The agents, whose
+	 * ids must be their indices in their lists, are added to one population
+	 * of innovators and one of providers, which keep their state.
 	 * 
 	 * @param runs
 	 *            an integer, which indicates the total number of runs, each run
 	 *            takes a different seed
 	 * @param inf
 	 *            an influence matrix object
+	 * @param landscapeSettings
+	 *            a landscape settings object
+	 * @param analysisSettings
+	 *            an analysis settings object, or null if the landscapes are
+	 *            not analyzed
 	 * @param types
 	 *            a set of simulator types
+	 * @param scheduleType
+	 *            a schedule type of the simulators
 	 * @param innovators
 	 *            a list of innovator agent objects
 	 * @param providers
 	 *            a list of provider agent objects
 	 */
-	public Case(int runs, InfluenceMatrix inf, HashSet<SimulatorType> types,
-			ArrayList<Innovator> innovators, ArrayList<Provider> providers) {
+	public Case(int runs, InfluenceMatrix inf,
+			LandscapeSettings landscapeSettings,
+			AnalysisSettings analysisSettings, HashSet<SimulatorType> types,
+			ScheduleType scheduleType, ArrayList<Innovator> innovators, ArrayList<Provider> providers) {
 		this.myRuns = runs;
 		this.myInf = inf;
+		this.myLandscapeSettings = landscapeSettings;
+		this.myAnalysisSettings = analysisSettings;
 		this.myTypeSet = types;
+		this.myScheduleType = scheduleType;
 		this.myInnovatorList = innovators;
 		this.myProviderList = providers;
+		this.myInnovators = new AgentPopulation(innovators);
+		this.myProviders = new AgentPopulation(providers);
 	}
 
 	/**
@@ -57,6 +82,25 @@ public class Case {
 		return new InfluenceMatrix(this.myInf);
 	}
 
+	/**
+	 * Return the landscape settings.
+	 * 
+	 * @return the landscape settings
+	 */
+	public LandscapeSettings getLandscapeSettings() {
+		return this.myLandscapeSettings;
+	}
+
+	/**
+	 * Return the analysis settings, or null if the landscapes are not
+	 * analyzed.
+	 * 
+	 * @return the analysis settings, or null
+	 */
+	public AnalysisSettings getAnalysisSettings() {
+		return this.myAnalysisSettings;
+	}
+
 	/**
 	 * Return the set of simulator types.
 	 * 
@@ -66,6 +110,15 @@ public class Case {
 		return this.myTypeSet;
 	}
 
+	/**
+	 * Return the schedule type of the simulators.
+	 * 
+	 * @return the schedule type of the simulators
+	 */
+	public ScheduleType getScheduleType() {
+		return this.myScheduleType;
+	}
+
 	/**
 	 * Return the innovator list.
 	 * 
@@ -83,4 +136,24 @@ public class Case {
 	public ArrayList<Provider> getProviderList() {
 		return new ArrayList<Provider>(this.myProviderList);
 	}
+
+	/**
+	 * Return the population of the innovators, which keeps the state of the
+	 * innovators in the innovator list.
+	 * 
+	 * @return the population of the innovators
+	 */
+	public AgentPopulation getInnovators() {
+		return this.myInnovators;
+	}
+
+	/**
+	 * Return the population of the providers, which keeps the state of the
+	 * providers in the provider list.
+	 * 
+	 * @return the population of the providers
+	 */
+	public AgentPopulation getProviders() {
+		return this.myProviders;
+	}
 }
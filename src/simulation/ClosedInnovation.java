@@ -2,6 +2,7 @@ package simulation;
 
 import util.Globals;
 import agent.Agent.SearchType;
+import agent.AgentPopulation;
 import agent.Innovator;
 
 /**
@@ -11,38 +12,48 @@ import agent.Innovator;
  * @author ziquan
  */
 public class ClosedInnovation extends Simulator {
+	private AgentQueue myQueue;
 
 	@Override
 	public void startSimulation() {
 		Globals.writer.setOutputFile(this.constructOutputFileName());
+		AgentPopulation innovators = Globals.innovators;
+		this.myQueue = new AgentQueue(innovators, 0);
 		while (!this.isDone()) {
-			for (Innovator innovator : Globals.innovatorList) {
-				if (innovator.hasUnvisitedNeighbour()) {
+			this.startRound();
+			this.myQueue.startRound(this.getRound());
+			for (int i = this.myQueue.next(); i >= 0; i = this.myQueue.next()) {
+				Innovator innovator = Globals.innovatorList.get(i);
+				if (innovators.hasUnvisitedNeighbour(i)) {
 					innovator.continueSearch();
 					this.writeLog(innovator);
 				}
 				// null -> M
-				else if (innovator.getSearchType() == null) {
+				else if (innovators.isSearching(i, null)) {
 					innovator.startNewSearch(SearchType.M);
 					this.writeLog(innovator);
 				}
 				// M -> P
-				else if (innovator.getSearchType() == SearchType.M) {
+				else if (innovators.isSearching(i, SearchType.M)) {
 					innovator.startNewSearch(SearchType.P);
 					this.writeLog(innovator);
 				}
 				// P -> MandP
-				else if (innovator.getSearchType() == SearchType.P) {
+				else if (innovators.isSearching(i, SearchType.P)) {
 					innovator.startNewSearch(SearchType.MandP);
 					this.writeLog(innovator);
 				}
 				// MandP -> wait
 				else {
-					innovator.waitAndDoNothing();
-					this.writeLog(innovator);
+					this.waitIdle(this.myQueue, innovator);
+				}
+				if (innovators.isSearching(i, SearchType.MandP)
+						&& !innovators.hasUnvisitedNeighbour(i)) {
+					this.myQueue.setFinished(i);
 				}
 			}
 		} // done
+		this.finishQueue(this.myQueue);
 		Globals.writer.close();
 	}
 
@@ -53,14 +64,7 @@ public class ClosedInnovation extends Simulator {
 	 */
 	@Override
 	protected boolean isDone() {
-		for (Innovator innovator : Globals.innovatorList) {
-			if (innovator.getSearchType() == SearchType.MandP
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			return false;
-		}
-		return true;
+		return this.myQueue.haveAllFinished();
 	}
 
 	@Override
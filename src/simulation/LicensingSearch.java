@@ -2,6 +2,7 @@ package simulation;
 
 import util.Globals;
 import agent.Agent.SearchType;
+import agent.AgentPopulation;
 import agent.Innovator;
 import agent.Provider;
 
@@ -16,39 +17,60 @@ import agent.Provider;
  * @author ziquan
  */
 public class LicensingSearch extends Simulator {
+	private AgentQueue myProviderQueue;
+	private AgentQueue myInnovatorQueue;
 
 	@Override
 	public void startSimulation() {
 		Globals.writer.setOutputFile(this.constructOutputFileName());
+		AgentPopulation providers = Globals.providers;
+		AgentPopulation innovators = Globals.innovators;
+		AgentQueue providerQueue = new AgentQueue(providers, 0);
+		// innovators with partner wait for the end of the partner's Q search
+		AgentQueue innovatorQueue = new AgentQueue(innovators,
+				providers.size());
+		this.myProviderQueue = providerQueue;
+		this.myInnovatorQueue = innovatorQueue;
 		while (!this.isDone()) {
-			for (Provider provider : Globals.providerList) {
-				if (provider.hasUnvisitedNeighbour()) {
+			this.startRound();
+			providerQueue.startRound(this.getRound());
+			for (int i = providerQueue.next(); i >= 0; i = providerQueue
+					.next()) {
+				Provider provider = Globals.providerList.get(i);
+				if (providers.hasUnvisitedNeighbour(i)) {
 					provider.continueSearch();
 					this.writeLog(provider);
 				}
 				// null -> Q
-				else if (provider.getSearchType() == null) {
+				else if (providers.isSearching(i, null)) {
 					provider.startNewSearch(SearchType.Q);
 					this.writeLog(provider);
 				}
 				// Q -> wait
 				else {
 					// provider.getSearchType() == SearchType.Q
-					provider.waitAndDoNothing();
-					this.writeLog(provider);
+					this.waitIdle(providerQueue, provider);
+				}
+				if (providers.isSearching(i, SearchType.Q)
+						&& !providers.hasUnvisitedNeighbour(i)) {
+					providerQueue.setFinished(i);
+					innovatorQueue.wakeUp(i);
 				}
 			}
-			for (Innovator innovator : Globals.innovatorList) {
-				if (innovator.hasUnvisitedNeighbour()) {
+			innovatorQueue.startRound(this.getRound());
+			for (int i = innovatorQueue.next(); i >= 0; i = innovatorQueue
+					.next()) {
+				Innovator innovator = Globals.innovatorList.get(i);
+				if (innovators.hasUnvisitedNeighbour(i)) {
 					innovator.continueSearch();
 					this.writeLog(innovator);
 				}
 				// null -> M
-				else if (innovator.getSearchType() == null) {
+				else if (innovators.isSearching(i, null)) {
 					innovator.startNewSearch(SearchType.M);
 					this.writeLog(innovator);
-				} else if (innovator.getSearchType() == SearchType.M) {
-					if (!innovator.hasSetPartner()) {
+				} else if (innovators.isSearching(i, SearchType.M)) {
+					if (!innovators.hasSetPartner(i)) {
 						int bestProviderId = Globals
 								.findBestProviderIdForInnovator(innovator);
 						innovator.setPartnerId(bestProviderId);
@@ -59,38 +81,37 @@ public class LicensingSearch extends Simulator {
 					}
 					// here, innovator's partner was set already
 					// innovator with partner:
-					if (innovator.getPartnerId() >= 0) {
-						Provider partner = Globals.providerList.get(innovator
-								.getPartnerId());
+					int partnerId = innovators.getPartnerId(i);
+					if (partnerId >= 0) {
 						// M -> Magain
-						if (partner.getSearchType() == SearchType.Q
-								&& !partner.hasUnvisitedNeighbour()) {
+						if (providers.isSearching(partnerId, SearchType.Q)
+								&& !providers.hasUnvisitedNeighbour(partnerId)) {
 							innovator.updateLocIdAndScore(innovator
-									.getLocIdWithOtherLocId(partner.getLocId(),
-											true));
+									.getLocIdWithOtherLocId(
+											providers.getLocId(partnerId), true));
 							innovator.startNewSearch(SearchType.Magain);
 							this.writeLog(innovator);
 						}
 						// M -> wait for partner
 						else {
-							innovator.waitAndDoNothing();
-							this.writeLog(innovator);
+							this.waitFor(innovatorQueue, innovator, partnerId);
 						}
 					}
 					// innovator without partner: M -> wait
 					else {
-						innovator.waitAndDoNothing();
-						this.writeLog(innovator);
+						this.waitIdle(innovatorQueue, innovator);
 					}
 				}
 				// Magain -> wait
 				else {
 					// innovator.getSearchType() == SearchType.Magain
-					innovator.waitAndDoNothing();
-					this.writeLog(innovator);
+					this.waitIdle(innovatorQueue, innovator);
 				}
+				this.updateFinished(innovatorQueue, i);
 			}
 		} // done
+		this.finishQueue(providerQueue);
+		this.finishQueue(innovatorQueue);
 		Globals.writer.close();
 	}
 
@@ -105,26 +126,29 @@ public class LicensingSearch extends Simulator {
 	 */
 	@Override
 	protected boolean isDone() {
-		for (Provider provider : Globals.providerList) {
-			if (provider.getSearchType() == SearchType.Q
-					&& !provider.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			return false;
-		}
-		for (Innovator innovator : Globals.innovatorList) {
-			if (innovator.getSearchType() == SearchType.Magain
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			if (innovator.getSearchType() == SearchType.M
-					&& innovator.hasSetPartner()
-					&& innovator.getPartnerId() < 0) {
-				continue;
-			}
-			return false;
+		return this.myProviderQueue.haveAllFinished()
+				&& this.myInnovatorQueue.haveAllFinished();
+	}
+
+	/**
+	 * Record in the given queue that the innovator of the given id has
+	 * finished if it has finished its Magain search, or if it is in its M
+	 * search without partner.
+	 * 
+	 * @param queue
+	 *            the queue of the innovators
+	 * @param i
+	 *            an innovator id
+	 */
+	private void updateFinished(AgentQueue queue, int i) {
+		AgentPopulation innovators = Globals.innovators;
+		if ((innovators.isSearching(i, SearchType.Magain) && !innovators
+				.hasUnvisitedNeighbour(i))
+				|| (innovators.isSearching(i, SearchType.M)
+						&& innovators.hasSetPartner(i) && innovators
+						.getPartnerId(i) < 0)) {
+			queue.setFinished(i);
 		}
-		return true;
 	}
 
 	@Override
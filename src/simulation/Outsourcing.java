@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import util.Globals;
 import agent.Agent.SearchType;
+import agent.AgentPopulation;
 import agent.Innovator;
 import agent.Provider;
 
@@ -21,8 +22,14 @@ import agent.Provider;
  * @author ziquan
  */
 public class Outsourcing extends Simulator {
-	private boolean myShouldProviderStart;
+	/**
+	 * the number of innovators, which have not finished their M searches
+	 * before the providers start
+	 */
+	private int myUnfinishedMCount;
 	private HashSet<Integer> myChosenProviderIds;
+	private AgentQueue myProviderQueue;
+	private AgentQueue myInnovatorQueue;
 
 	@Override
 	public void startSimulation() {
@@ -30,7 +37,7 @@ public class Outsourcing extends Simulator {
 
 		// providers do not start at time = 0
 		// until all innovators have finished their M.
-		this.myShouldProviderStart = false;
+		this.myUnfinishedMCount = Globals.innovators.size();
 
 		// find those providers that are some innovator's partner
 		this.myChosenProviderIds = new HashSet<Integer>();
@@ -46,88 +53,129 @@ public class Outsourcing extends Simulator {
 		}
 		this.myChosenProviderIds.remove(-1);
 
+		// the chosen providers take their turns in the order of the set
+		int chosenIds[] = new int[this.myChosenProviderIds.size()];
+		int count = 0;
+		for (int chosenId : this.myChosenProviderIds) {
+			chosenIds[count++] = chosenId;
+		}
+		AgentPopulation providers = Globals.providers;
+		AgentPopulation innovators = Globals.innovators;
+		// chosen providers wait for the start of the providers
+		AgentQueue providerQueue = new AgentQueue(providers, chosenIds, 1);
+		// innovators wait for the end of the partner's Q search, whose key
+		// is the partner id, or for the start of the providers
+		int startKey = providers.size();
+		AgentQueue innovatorQueue = new AgentQueue(innovators, startKey + 1);
+		this.myProviderQueue = providerQueue;
+		this.myInnovatorQueue = innovatorQueue;
+		boolean hasProviderStarted = false;
 		while (!this.isDone()) {
+			this.startRound();
 			if (this.shouldProviderStart()) {
-				for (int chosenId : this.myChosenProviderIds) {
+				if (!hasProviderStarted) {
+					hasProviderStarted = true;
+					providerQueue.wakeUp(0);
+					innovatorQueue.wakeUp(startKey);
+				}
+				providerQueue.startRound(this.getRound());
+				for (int chosenId = providerQueue.next(); chosenId >= 0; chosenId = providerQueue
+						.next()) {
 					Provider chosenProvider = Globals.providerList
 							.get(chosenId);
-					if (chosenProvider.hasUnvisitedNeighbour()) {
+					if (providers.hasUnvisitedNeighbour(chosenId)) {
 						chosenProvider.continueSearch();
 						this.writeLog(chosenProvider);
 					}
 					// null -> Q
-					else if (chosenProvider.getSearchType() == null) {
+					else if (providers.isSearching(chosenId, null)) {
 						chosenProvider.startNewSearch(SearchType.Q);
 						this.writeLog(chosenProvider);
 					}
 					// Q -> wait
 					else {
-						chosenProvider.waitAndDoNothing();
-						this.writeLog(chosenProvider);
+						this.waitIdle(providerQueue, chosenProvider);
+					}
+					if (providers.isSearching(chosenId, SearchType.Q)
+							&& !providers.hasUnvisitedNeighbour(chosenId)) {
+						providerQueue.setFinished(chosenId);
+						innovatorQueue.wakeUp(chosenId);
 					}
 				}
-				for (Innovator innovator : Globals.innovatorList) {
-					if (innovator.hasUnvisitedNeighbour()) {
+				innovatorQueue.startRound(this.getRound());
+				for (int i = innovatorQueue.next(); i >= 0; i = innovatorQueue
+						.next()) {
+					Innovator innovator = Globals.innovatorList.get(i);
+					if (innovators.hasUnvisitedNeighbour(i)) {
 						innovator.continueSearch();
 						this.writeLog(innovator);
-					} else if (innovator.getSearchType() == SearchType.M) {
+					} else if (innovators.isSearching(i, SearchType.M)) {
 						// innovator with partner:
-						if (innovator.getPartnerId() >= 0) {
-							Provider partner = Globals.providerList
-									.get(innovator.getPartnerId());
+						int partnerId = innovators.getPartnerId(i);
+						if (partnerId >= 0) {
 							// M -> Magain
-							if (partner.getSearchType() == SearchType.Q
-									&& !partner.hasUnvisitedNeighbour()) {
+							if (providers.isSearching(partnerId, SearchType.Q)
+									&& !providers
+											.hasUnvisitedNeighbour(partnerId)) {
 								innovator.updateLocIdAndScore(innovator
 										.getLocIdWithOtherLocId(
-												partner.getLocId(), true));
+												providers.getLocId(partnerId),
+												true));
 								innovator.startNewSearch(SearchType.Magain);
 								this.writeLog(innovator);
 							}
 							// M -> wait for partner
 							else {
-								innovator.waitAndDoNothing();
-								this.writeLog(innovator);
+								this.waitFor(innovatorQueue, innovator,
+										partnerId);
 							}
 						}
 						// innovator without partner: M -> wait
 						else {
-							innovator.waitAndDoNothing();
-							this.writeLog(innovator);
+							this.waitIdle(innovatorQueue, innovator);
 						}
 					}
 					// Magain -> wait
 					else {
 						// innovator.getSearchType() == SearchType.Magain
-						innovator.waitAndDoNothing();
-						this.writeLog(innovator);
+						this.waitIdle(innovatorQueue, innovator);
 					}
+					this.updateFinished(innovatorQueue, i);
 				}
 			} else {
 				// providers with partner: wait for innovators
-				for (int chosenId : this.myChosenProviderIds) {
-					Globals.providerList.get(chosenId).waitAndDoNothing();
-					this.writeLog(Globals.providerList.get(chosenId));
+				providerQueue.startRound(this.getRound());
+				for (int chosenId = providerQueue.next(); chosenId >= 0; chosenId = providerQueue
+						.next()) {
+					this.waitFor(providerQueue,
+							Globals.providerList.get(chosenId), 0);
 				}
-				for (Innovator innovator : Globals.innovatorList) {
-					if (innovator.hasUnvisitedNeighbour()) {
+				innovatorQueue.startRound(this.getRound());
+				for (int i = innovatorQueue.next(); i >= 0; i = innovatorQueue
+						.next()) {
+					Innovator innovator = Globals.innovatorList.get(i);
+					if (innovators.hasUnvisitedNeighbour(i)) {
 						innovator.continueSearch();
 						this.writeLog(innovator);
+						this.countEndOfM(i);
 					}
 					// null -> M
-					else if (innovator.getSearchType() == null) {
+					else if (innovators.isSearching(i, null)) {
 						innovator.startNewSearch(SearchType.M);
 						this.writeLog(innovator);
+						this.countEndOfM(i);
 					}
 					// M -> wait for other innovators
 					else {
 						// innovator.getSearchType() == SearchType.M
-						innovator.waitAndDoNothing();
-						this.writeLog(innovator);
+						this.waitFor(innovatorQueue, innovator, startKey);
 					}
+					this.updateFinished(innovatorQueue, i);
 				}
 			}
 		} // done
+		this.finishQueue(providerQueue);
+		this.finishQueue(innovatorQueue);
 		Globals.writer.close();
 	}
 
@@ -142,27 +190,29 @@ public class Outsourcing extends Simulator {
 	 */
 	@Override
 	protected boolean isDone() {
-		for (int chosenId : this.myChosenProviderIds) {
-			if (Globals.providerList.get(chosenId).getSearchType() == SearchType.Q
-					&& !Globals.providerList.get(chosenId)
-							.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			return false;
-		}
-		for (Innovator innovator : Globals.innovatorList) {
-			if (innovator.getSearchType() == SearchType.Magain
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			if (innovator.getSearchType() == SearchType.M
-					&& innovator.hasSetPartner()
-					&& innovator.getPartnerId() < 0) {
-				continue;
-			}
-			return false;
+		return this.myProviderQueue.haveAllFinished()
+				&& this.myInnovatorQueue.haveAllFinished();
+	}
+
+	/**
+	 * Record in the given queue that the innovator of the given id has
+	 * finished if it has finished its Magain search, or if it is in its M
+	 * search without partner.
+	 * 
+	 * @param queue
+	 *            the queue of the innovators
+	 * @param i
+	 *            an innovator id
+	 */
+	private void updateFinished(AgentQueue queue, int i) {
+		AgentPopulation innovators = Globals.innovators;
+		if ((innovators.isSearching(i, SearchType.Magain) && !innovators
+				.hasUnvisitedNeighbour(i))
+				|| (innovators.isSearching(i, SearchType.M)
+						&& innovators.hasSetPartner(i) && innovators
+						.getPartnerId(i) < 0)) {
+			queue.setFinished(i);
 		}
-		return true;
 	}
 
 	/**
@@ -171,21 +221,20 @@ public class Outsourcing extends Simulator {
 	 * @return true if all innovators have finished their M searches
 	 */
 	private boolean shouldProviderStart() {
-		if (this.myShouldProviderStart) {
-			return true;
-		}
-		for (Innovator innovator : Globals.innovatorList) {
-			if (innovator.getSearchType() == SearchType.M
-					&& !innovator.hasUnvisitedNeighbour()) {
-				continue;
-			}
-			if (innovator.getSearchType() == SearchType.Magain) {
-				continue;
-			}
-			return false;
+		return this.myUnfinishedMCount == 0;
+	}
+
+	/**
+	 * Count the innovator of the given id as finished with its M search if the
+	 * step, which it has just taken in an unfinished M search, has ended it.
+	 * 
+	 * @param i
+	 *            an innovator id
+	 */
+	private void countEndOfM(int i) {
+		if (!Globals.innovators.hasUnvisitedNeighbour(i)) {
+			this.myUnfinishedMCount--;
 		}
-		this.myShouldProviderStart = true;
-		return true;
 	}
 
 	@Override
@@ -2,12 +2,47 @@ package simulation;
 
 import util.Globals;
 import agent.Agent;
+import agent.AgentPopulation;
 
 public abstract class Simulator {
 	public enum SimulatorType {
 		CLOSED, LICENSING, OUTSOURCING, ALLIANCE_MAX, ALLIANCE_MIN
 	}
 
+	public enum ScheduleType {
+		EVERY, EVENT
+	}
+
+	/**
+	 * the number of rounds started so far, where every agent gets one turn in
+	 * a round
+	 */
+	private int myRound;
+	private ScheduleType myScheduleType;
+
+	/**
+	 * Create a simulator, which has not started any round and visits every
+	 * agent in every round.
+	 */
+	public Simulator() {
+		this.myRound = 0;
+		this.myScheduleType = ScheduleType.EVERY;
+	}
+
+	/**
+	 * Set how the agents are scheduled. With EVERY, every agent takes a turn
+	 * and writes its log in every round, also when it waits and does nothing.
+	 * With EVENT, an idle agent is parked until the end of the run or until an
+	 * event wakes it up; it writes no log while parked, and one log with its
+	 * final time stamp when the run ends.
+	 * 
+	 * @param type
+	 *            a schedule type
+	 */
+	public void setScheduleType(ScheduleType type) {
+		this.myScheduleType = type;
+	}
+
 	/**
 	 * Simulator starts to simulate.
 	 */
@@ -28,12 +63,97 @@ public abstract class Simulator {
 	protected abstract boolean isDone();
 
 	/**
-	 * Write log to the output file for the given agent.
+	 * Start a new round of the simulation. If the landscape is configured to
+	 * be shocked, it is shocked at the start of every period-th round, drawing
+	 * from Globals.randomGen; the agents notice the shock when they next
+	 * evaluate their location.
+	 */
+	protected void startRound() {
+		int period = Globals.ldscp.getShockPeriod();
+		if (period > 0 && this.myRound > 0 && this.myRound % period == 0) {
+			Globals.ldscp.shock(Globals.randomGen);
+		}
+		this.myRound++;
+	}
+
+	/**
+	 * Return the number of rounds started so far, i.e. the current round.
+	 * 
+	 * @return the current round
+	 */
+	protected int getRound() {
+		return this.myRound;
+	}
+
+	/**
+	 * The given agent, which takes its turn in the given queue, waits and does
+	 * nothing for the rest of the run. If agents are scheduled by events, it
+	 * is parked; otherwise it writes its log in every round.
+	 * 
+	 * @param queue
+	 *            the queue of the agent
+	 * @param agt
+	 *            an agent object
+	 */
+	protected void waitIdle(AgentQueue queue, Agent agt) {
+		agt.waitAndDoNothing();
+		if (this.myScheduleType == ScheduleType.EVENT) {
+			queue.park(this.myRound);
+		} else {
+			this.writeLog(agt);
+		}
+	}
+
+	/**
+	 * The given agent, which takes its turn in the given queue, waits and does
+	 * nothing until the event of the given key. If agents are scheduled by
+	 * events, it is parked until the event; otherwise it writes its log in
+	 * every round.
+	 * 
+	 * @param queue
+	 *            the queue of the agent
+	 * @param agt
+	 *            an agent object
+	 * @param key
+	 *            the key of the event, which wakes the agent up
+	 */
+	protected void waitFor(AgentQueue queue, Agent agt, int key) {
+		agt.waitAndDoNothing();
+		if (this.myScheduleType == ScheduleType.EVENT) {
+			queue.parkUntil(this.myRound, key);
+		} else {
+			this.writeLog(agt);
+		}
+	}
+
+	/**
+	 * End the run of the given queue: the parked agents get their final time
+	 * stamps and write their logs, in turn order.
+	 * 
+	 * @param queue
+	 *            a queue of agents
+	 */
+	protected void finishQueue(AgentQueue queue) {
+		AgentPopulation population = queue.getPopulation();
+		for (int slot : queue.finish(this.myRound)) {
+			this.writeLog(population.get(slot));
+		}
+	}
+
+	/**
+	 * Write log to the output file for the given agent. If the landscape is
+	 * configured to normalize, the fitness value of the agent divided by the
+	 * global maximum of the current landscape is appended.
 	 * 
 	 * @param agt
 	 *            an agent object
 	 */
 	protected void writeLog(Agent agt) {
-		Globals.writer.writeLine(Globals.getSeed() + "\t" + agt);
+		if (Globals.ldscp.isNormalizedScoresOn()) {
+			Globals.writer.writeLine(Globals.getSeed() + "\t" + agt + "\t"
+					+ agt.getScore() / Globals.ldscp.getGlobalMax());
+		} else {
+			Globals.writer.writeLine(Globals.getSeed() + "\t" + agt);
+		}
 	}
 }
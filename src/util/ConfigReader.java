@@ -9,7 +9,17 @@ import java.util.HashSet;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 
+import landscape.ContributionStorage.StorageType;
+import landscape.FitnessCache.EvictionPolicy;
+import landscape.FitnessContributionTable.GenerationOrder;
+import landscape.FitnessContributionTable.TableType;
+import landscape.GlobalOptimumSolver;
 import landscape.InfluenceMatrix;
+import landscape.LandscapeLibrary;
+import landscape.LandscapeSettings;
+import landscape.ScoreEvaluator.EvaluatorType;
+import landscape.analysis.AnalysisSettings;
+import landscape.analysis.LandscapeAnalyzer.AnalysisMode;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -17,6 +27,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import simulation.Case;
+import simulation.Simulator.ScheduleType;
 import simulation.Simulator.SimulatorType;
 import agent.Innovator;
 import agent.Provider;
@@ -66,7 +77,10 @@ public class ConfigReader {
 	private Case constructCase(Node caseNode) {
 		int runs = -1;
 		InfluenceMatrix inf = null;
+		LandscapeSettings landscapeSettings = new LandscapeSettings();
+		AnalysisSettings analysisSettings = null;
 		HashSet<SimulatorType> typeList = new HashSet<SimulatorType>();
+		ScheduleType scheduleType = ScheduleType.EVERY;
 		ArrayList<Innovator> innovatorList = new ArrayList<Innovator>();
 		ArrayList<Provider> providerList = new ArrayList<Provider>();
 
@@ -79,9 +93,48 @@ public class ConfigReader {
 					runs = new Integer(setting.getTextContent().trim());
 				} else if (setting.getTagName().equals("inf")) {
 					inf = this.constructInf(setting.getTextContent().trim());
+				} else if (setting.getTagName().equals("table")) {
+					landscapeSettings.setTableType(this
+							.constructTableType(setting.getTextContent().trim()));
+				} else if (setting.getTagName().equals("evaluator")) {
+					landscapeSettings.setEvaluatorType(this
+							.constructEvaluatorType(setting.getTextContent()
+									.trim()));
+				} else if (setting.getTagName().equals("generation")) {
+					landscapeSettings.setGenerationOrder(this
+							.constructGenerationOrder(setting.getTextContent()
+									.trim()));
+				} else if (setting.getTagName().equals("storage")) {
+					landscapeSettings.setStorageType(this
+							.constructStorageType(setting.getTextContent()
+									.trim()));
+				} else if (setting.getTagName().equals("pipeline")) {
+					int resident = Integer.parseInt(setting.getTextContent().trim());
+					if (resident < 1) {
+						System.out
+								.println("ERROR : invalid number of resident landscapes "
+										+ resident);
+						System.exit(1);
+					}
+					landscapeSettings.setResidentLandscapes(resident);
+				} else if (setting.getTagName().equals("cache")) {
+					this.constructCacheSettings(setting, landscapeSettings);
+				} else if (setting.getTagName().equals("shock")) {
+					this.constructShockSettings(setting, landscapeSettings);
+				} else if (setting.getTagName().equals("normalize")) {
+					landscapeSettings.setNormalizedScoresOn(Boolean
+							.parseBoolean(setting.getTextContent().trim()));
+				} else if (setting.getTagName().equals("library")) {
+					landscapeSettings.setLibrary(new LandscapeLibrary(new File(
+							setting.getTextContent().trim())));
+				} else if (setting.getTagName().equals("analysis")) {
+					analysisSettings = this.constructAnalysisSettings(setting);
 				} else if (setting.getTagName().equals("strategy")) {
 					typeList.add(this.constructType(setting.getTextContent()
 							.trim()));
+				} else if (setting.getTagName().equals("schedule")) {
+					scheduleType = this.constructScheduleType(setting
+							.getTextContent().trim());
 				} else if (setting.getTagName().equals("innovator")) {
 					innovatorList.addAll(this.constructInnovators(setting));
 				} else if (setting.getTagName().equals("provider")) {
@@ -108,7 +161,15 @@ public class ConfigReader {
 			}
 			providerList.get(i).setId(i);
 		}
-		return new Case(runs, inf, typeList, innovatorList, providerList);
+		if (landscapeSettings.isNormalizedScoresOn()
+				&& !GlobalOptimumSolver.canSolve(inf)) {
+			System.out.println("ERROR : cannot normalize, the global maximum"
+					+ " of N = " + inf.getN() + " and K = " + inf.getK()
+					+ " is too large to solve");
+			System.exit(1);
+		}
+		return new Case(runs, inf, landscapeSettings, analysisSettings,
+				typeList, scheduleType, innovatorList, providerList);
 	}
 
 	/**
@@ -146,6 +207,243 @@ public class ConfigReader {
 		return new InfluenceMatrix(matrix);
 	}
 
+	/**
+	 * Convert a string to a fitness contribution table type
+	 * 
+	 * @param table
+	 *            a string, that represents a table type
+	 * @return a table type
+	 */
+	private TableType constructTableType(String table) {
+		if (table.equalsIgnoreCase("EAGER")) {
+			return TableType.EAGER;
+		} else if (table.equalsIgnoreCase("LAZY")) {
+			return TableType.LAZY;
+		} else {
+			System.out.println("ERROR : unknown table type " + table);
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Convert a string to a fitness evaluator type
+	 * 
+	 * @param evaluator
+	 *            a string, that represents an evaluator type
+	 * @return an evaluator type
+	 */
+	private EvaluatorType constructEvaluatorType(String evaluator) {
+		if (evaluator.equalsIgnoreCase("GENERIC")) {
+			return EvaluatorType.GENERIC;
+		} else if (evaluator.equalsIgnoreCase("GENERATED")) {
+			return EvaluatorType.GENERATED;
+		} else {
+			System.out.println("ERROR : unknown evaluator type " + evaluator);
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Convert a string to a fitness contribution table generation order
+	 * 
+	 * @param generation
+	 *            a string, that represents a generation order
+	 * @return a generation order
+	 */
+	private GenerationOrder constructGenerationOrder(String generation) {
+		if (generation.equalsIgnoreCase("LEGACY")) {
+			return GenerationOrder.LEGACY;
+		} else if (generation.equalsIgnoreCase("PARALLEL")) {
+			return GenerationOrder.PARALLEL;
+		} else {
+			System.out.println("ERROR : unknown generation order "
+					+ generation);
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Convert a string to a fitness contribution storage type
+	 * 
+	 * @param storage
+	 *            a string, that represents a storage type
+	 * @return a storage type
+	 */
+	private StorageType constructStorageType(String storage) {
+		if (storage.equalsIgnoreCase("HEAP")) {
+			return StorageType.HEAP;
+		} else if (storage.equalsIgnoreCase("OFFHEAP")) {
+			return StorageType.OFF_HEAP;
+		} else if (storage.equalsIgnoreCase("MAPPED")) {
+			return StorageType.MAPPED;
+		} else {
+			System.out.println("ERROR : unknown storage type " + storage);
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Read a cache node into the given landscape settings.
+	 * 
+	 * @param cacheNode
+	 *            a cache node
+	 * @param landscapeSettings
+	 *            a landscape settings object, which receives the cache
+	 *            settings
+	 */
+	private void constructCacheSettings(Node cacheNode,
+			LandscapeSettings landscapeSettings) {
+		NodeList attrList = cacheNode.getChildNodes();
+		for (int i = 0; i < attrList.getLength(); i++) {
+			Node attrNode = attrList.item(i);
+			if (attrNode.getNodeType() == Node.ELEMENT_NODE) {
+				Element attr = (Element) attrNode;
+				if (attr.getTagName().equals("capacity")) {
+					landscapeSettings.setCacheCapacity(Integer.parseInt(attr
+							.getTextContent().trim()));
+				} else if (attr.getTagName().equals("policy")) {
+					landscapeSettings.setEvictionPolicy(this
+							.constructEvictionPolicy(attr.getTextContent()
+									.trim()));
+				} else if (attr.getTagName().equals("memo")) {
+					landscapeSettings.setMemoBudget(Long.parseLong(attr
+							.getTextContent().trim()) << 20);
+				} else if (attr.getTagName().equals("statistics")) {
+					landscapeSettings.setCacheStatisticsOn(Boolean
+							.parseBoolean(attr.getTextContent().trim()));
+				} else {
+					System.out.println("WARNING : unknown cache attribute "
+							+ attr.getTagName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a shock node into the given landscape settings.
+	 * 
+	 * @param shockNode
+	 *            a shock node
+	 * @param landscapeSettings
+	 *            a landscape settings object, which receives the shock
+	 *            settings
+	 */
+	private void constructShockSettings(Node shockNode,
+			LandscapeSettings landscapeSettings) {
+		NodeList attrList = shockNode.getChildNodes();
+		for (int i = 0; i < attrList.getLength(); i++) {
+			Node attrNode = attrList.item(i);
+			if (attrNode.getNodeType() == Node.ELEMENT_NODE) {
+				Element attr = (Element) attrNode;
+				if (attr.getTagName().equals("period")) {
+					int period = Integer.parseInt(attr.getTextContent().trim());
+					if (period < 0) {
+						System.out.println("ERROR : invalid shock period "
+								+ period);
+						System.exit(1);
+					}
+					landscapeSettings.setShockPeriod(period);
+				} else if (attr.getTagName().equals("rows")) {
+					int rows = Integer.parseInt(attr.getTextContent().trim());
+					if (rows < 1) {
+						System.out.println("ERROR : invalid number of shocked rows "
+								+ rows);
+						System.exit(1);
+					}
+					landscapeSettings.setShockRows(rows);
+				} else {
+					System.out.println("WARNING : unknown shock attribute "
+							+ attr.getTagName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Convert a string to a cache eviction policy
+	 * 
+	 * @param policy
+	 *            a string, that represents an eviction policy
+	 * @return an eviction policy
+	 */
+	private EvictionPolicy constructEvictionPolicy(String policy) {
+		if (policy.equalsIgnoreCase("LRU")) {
+			return EvictionPolicy.LRU;
+		} else if (policy.equalsIgnoreCase("CLOCK")) {
+			return EvictionPolicy.CLOCK;
+		} else if (policy.equalsIgnoreCase("TINYLFU")) {
+			return EvictionPolicy.TINY_LFU;
+		} else {
+			System.out.println("ERROR : unknown eviction policy " + policy);
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Convert an analysis node to an analysis settings object.
+	 * 
+	 * @param analysisNode
+	 *            an analysis node
+	 * @return an analysis settings object
+	 */
+	private AnalysisSettings constructAnalysisSettings(Node analysisNode) {
+		AnalysisSettings result = new AnalysisSettings();
+		NodeList attrList = analysisNode.getChildNodes();
+		for (int i = 0; i < attrList.getLength(); i++) {
+			Node attrNode = attrList.item(i);
+			if (attrNode.getNodeType() == Node.ELEMENT_NODE) {
+				Element attr = (Element) attrNode;
+				if (attr.getTagName().equals("mode")) {
+					result.setMode(this.constructAnalysisMode(attr
+							.getTextContent().trim()));
+				} else if (attr.getTagName().equals("flips")) {
+					result.setFlips(Integer.parseInt(attr.getTextContent().trim()));
+				} else if (attr.getTagName().equals("samples")) {
+					result.setSamples(Integer.parseInt(attr.getTextContent().trim()));
+				} else if (attr.getTagName().equals("climbs")) {
+					result.setClimbs(Integer.parseInt(attr.getTextContent().trim()));
+				} else if (attr.getTagName().equals("walk")) {
+					result.setWalkLength(Integer.parseInt(attr.getTextContent()
+							.trim()));
+				} else if (attr.getTagName().equals("lags")) {
+					result.setLags(Integer.parseInt(attr.getTextContent().trim()));
+				} else {
+					System.out.println("WARNING : unknown analysis attribute "
+							+ attr.getTagName());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Convert a string to an analysis mode
+	 * 
+	 * @param mode
+	 *            a string, that represents an analysis mode
+	 * @return an analysis mode
+	 */
+	private AnalysisMode constructAnalysisMode(String mode) {
+		if (mode.equalsIgnoreCase("AUTO")) {
+			return AnalysisMode.AUTO;
+		} else if (mode.equalsIgnoreCase("EXHAUSTIVE")) {
+			return AnalysisMode.EXHAUSTIVE;
+		} else if (mode.equalsIgnoreCase("BLOCK")) {
+			return AnalysisMode.BLOCK;
+		} else if (mode.equalsIgnoreCase("SAMPLED")) {
+			return AnalysisMode.SAMPLED;
+		} else {
+			System.out.println("ERROR : unknown analysis mode " + mode);
+			System.exit(1);
+			return null;
+		}
+	}
+
 	/**
 	 * Convert a string to a simulator type
 	 * 
@@ -171,6 +469,25 @@ public class ConfigReader {
 		}
 	}
 
+	/**
+	 * Convert a string to a schedule type
+	 * 
+	 * @param schedule
+	 *            a string, that represents a schedule type
+	 * @return a schedule type
+	 */
+	private ScheduleType constructScheduleType(String schedule) {
+		if (schedule.equalsIgnoreCase("EVERY")) {
+			return ScheduleType.EVERY;
+		} else if (schedule.equalsIgnoreCase("EVENT")) {
+			return ScheduleType.EVENT;
+		} else {
+			System.out.println("ERROR : unknown schedule type " + schedule);
+			System.exit(1);
+			return null;
+		}
+	}
+
 	/**
 	 * Covert an innovator node to a list of innovator objects.
 	 * 
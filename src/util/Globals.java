@@ -1,13 +1,13 @@
 package util;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
 
 import landscape.Landscape;
 import random.MersenneTwisterFast;
+import agent.AgentPopulation;
 import agent.Innovator;
 import agent.Provider;
+import agent.ProviderIndex;
 
 public class Globals {
 	private final static long myMagicSeed = 900111;
@@ -27,13 +27,40 @@ public class Globals {
 	 *            an non-negative integer, which is actually the run number
 	 */
 	public static void setSeed(int seed) {
+		setSeed(seed, createRandomGen(seed));
+	}
+
+	/**
+	 * Make the given random generator, which must come from
+	 * Globals.createRandomGen() with the same seed, the global random
+	 * generator of the given run. The generator may have been used already,
+	 * e.g. to build the run's landscape ahead of time.
+	 * 
+	 * @param seed
+	 *            an non-negative integer, which is actually the run number
+	 * @param random
+	 *            the random generator of the run
+	 */
+	public static void setSeed(int seed, MersenneTwisterFast random) {
 		myCurrentSeed = seed;
-		randomGen = new MersenneTwisterFast(myMagicSeed);
+		randomGen = random;
+	}
+
+	/**
+	 * Return a new random generator of the given run, seeded as described in
+	 * Globals.setSeed(). It does not change the global random generator.
+	 * 
+	 * @param seed
+	 *            an non-negative integer, which is actually the run number
+	 * @return a new random generator of the given run
+	 */
+	public static MersenneTwisterFast createRandomGen(int seed) {
+		MersenneTwisterFast random = new MersenneTwisterFast(myMagicSeed);
 		long newSeed = 0;
 		for (int i = 0; i < seed; i++) {
-			newSeed = randomGen.nextInt();
+			newSeed = random.nextInt();
 		}
-		randomGen = new MersenneTwisterFast(newSeed);
+		return new MersenneTwisterFast(newSeed);
 	}
 
 	/**
@@ -61,22 +88,34 @@ public class Globals {
 	public static ArrayList<Provider> providerList = null;
 
 	/**
-	 * Return the best provider's id for the given innovator.
+	 * Global population of the innovators in Globals.innovatorList, indexed
+	 * by agent id
+	 */
+	public static AgentPopulation innovators = null;
+
+	/**
+	 * Global population of the providers in Globals.providerList, indexed by
+	 * agent id
+	 */
+	public static AgentPopulation providers = null;
+
+	/**
+	 * Global index of the providers in Globals.providers, which must be
+	 * rebuilt whenever the providers are reset
+	 */
+	public static ProviderIndex providerIndex = null;
+
+	/**
+	 * Return the id of the best-scoring provider that can partner with the
+	 * given innovator, i.e. whose Q is a superset of the innovator's P; the
+	 * lowest id among equal scores, or -1 if there is none.
 	 * 
 	 * @param innovator
 	 *            an innovator object
-	 * @return the best provider's id for the given innovator
+	 * @return the best provider's id for the given innovator, or -1
 	 */
 	public static int findBestProviderIdForInnovator(Innovator innovator) {
-		float bestScore = -1f;
-		int bestProviderId = -1;
-		for (Provider provider : Globals.providerList) {
-			if (innovator.canPartnerWith(provider)
-					&& provider.getScore() > bestScore) {
-				bestProviderId = provider.getId();
-			}
-		}
-		return bestProviderId;
+		return providerIndex.findBestProviderId(innovator.getPMask());
 	}
 
 	/**
@@ -90,21 +129,23 @@ public class Globals {
 	public final static OutputWriter writer = new OutputWriter();
 
 	/**
-	 * Randomly remove an element from the given set and return that removed
-	 * element.
+	 * Return a random element of the given set of elements, where element e
+	 * is bit e of the mask; the caller removes it from the set. It draws one
+	 * random integer idx below the size of the set and returns the idx-th
+	 * smallest element, which is what removing the idx-th element of a
+	 * HashSet of the same small integers returned, since such a set iterates
+	 * in ascending order. Seeded draws thus stay the same as before.
 	 * 
-	 * @param set
-	 *            a set of objects
-	 * @return the randomly removed element from the set
+	 * @param elements
+	 *            a non-empty set of elements from 0 to 63, as a bit mask
+	 * @return a random element of the set
 	 */
-	public static <T> T removeRandomElementFromSet(HashSet<T> set) {
-		T result = null;
-		int candidateIndex = Globals.randomGen.nextInt(set.size());
-		Iterator<T> itr = set.iterator();
-		for (int i = 0; i <= candidateIndex; i++) {
-			result = itr.next();
+	public static int getRandomElementOfMask(long elements) {
+		int idx = Globals.randomGen.nextInt(Long.bitCount(elements));
+		for (int i = 0; i < idx; i++) {
+			// drop the smallest element
+			elements &= elements - 1;
 		}
-		itr.remove();
-		return result;
+		return Long.numberOfTrailingZeros(elements);
 	}
 }
@@ -0,0 +1,139 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A set of integers between 0 and a fixed bound, which supports adding,
+ * removing, membership tests and removing a uniformly random element in O(1)
+ * time. The elements are kept in a dense array, and an array indexed by
+ * element gives the position of each element in the dense array; an element
+ * is removed by moving the last element into its position.
+ */
+public class IndexedIntSet {
+	private int myElements[];
+	/**
+	 * element -> position in myElements, or -1 if absent
+	 */
+	private int myPositions[];
+	private int mySize;
+
+	/**
+	 * Create an empty set of integers between 0 and bound-1 (inclusive).
+	 * 
+	 * @param bound
+	 *            a non-negative integer, which is larger than all elements
+	 */
+	public IndexedIntSet(int bound) {
+		this.myElements = new int[bound];
+		this.myPositions = new int[bound];
+		Arrays.fill(this.myPositions, -1);
+		this.mySize = 0;
+	}
+
+	/**
+	 * Return the number of elements.
+	 * 
+	 * @return the number of elements
+	 */
+	public int size() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return true if the set has no elements.
+	 * 
+	 * @return true if the set has no elements
+	 */
+	public boolean isEmpty() {
+		return this.mySize == 0;
+	}
+
+	/**
+	 * Return true if the given integer is in the set.
+	 * 
+	 * @param element
+	 *            an integer between 0 and bound-1 (inclusive)
+	 * @return true if the given integer is in the set
+	 */
+	public boolean contains(int element) {
+		return this.myPositions[element] >= 0;
+	}
+
+	/**
+	 * Return the element at the given position of the dense array.
+	 * 
+	 * @param position
+	 *            an integer between 0 and size-1 (inclusive)
+	 * @return the element at the given position
+	 */
+	public int get(int position) {
+		return this.myElements[position];
+	}
+
+	/**
+	 * Add the given integer to the set.
+	 * 
+	 * @param element
+	 *            an integer between 0 and bound-1 (inclusive)
+	 * @return true if the integer was not in the set
+	 */
+	public boolean add(int element) {
+		if (this.myPositions[element] >= 0) {
+			return false;
+		}
+		this.myElements[this.mySize] = element;
+		this.myPositions[element] = this.mySize++;
+		return true;
+	}
+
+	/**
+	 * Add all integers between 0 and bound-1 (inclusive) to the set.
+	 */
+	public void addAll() {
+		for (int i = 0; i < this.myPositions.length; i++) {
+			this.add(i);
+		}
+	}
+
+	/**
+	 * Remove the given integer from the set.
+	 * 
+	 * @param element
+	 *            an integer between 0 and bound-1 (inclusive)
+	 * @return true if the integer was in the set
+	 */
+	public boolean remove(int element) {
+		int position = this.myPositions[element];
+		if (position < 0) {
+			return false;
+		}
+		int last = this.myElements[--this.mySize];
+		this.myElements[position] = last;
+		this.myPositions[last] = position;
+		this.myPositions[element] = -1;
+		return true;
+	}
+
+	/**
+	 * Randomly remove an element from the set and return that removed element.
+	 * Like Globals.randomGen.nextInt(size()), this draws one integer from the
+	 * global random generator.
+	 * 
+	 * @return the randomly removed element
+	 */
+	public int removeRandom() {
+		int result = this.myElements[Globals.randomGen.nextInt(this.mySize)];
+		this.remove(result);
+		return result;
+	}
+
+	/**
+	 * Remove all elements, in O(size) time.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.mySize; i++) {
+			this.myPositions[this.myElements[i]] = -1;
+		}
+		this.mySize = 0;
+	}
+}
@@ -0,0 +1,207 @@
+package util;
+
+import random.CounterBasedRandom;
+
+/**
+ * A set of longs, which supports adding, removing, membership tests and
+ * removing a uniformly random element in O(1) expected time without boxing.
+ * The elements are kept in a dense array; an open-addressing hash index with
+ * linear probing maps an element to its position in the dense array. An
+ * element is removed by moving the last element into its position.
+ */
+public class IndexedLongSet {
+	private final static int MIN_CAPACITY = 8;
+
+	private long myElements[];
+	private int mySize;
+	/**
+	 * hash slot -> position in myElements, -1 for an empty slot; its length is
+	 * a power of 2 and at least twice the length of myElements
+	 */
+	private int myIndex[];
+	private int myIndexMask;
+
+	/**
+	 * Create an empty set.
+	 */
+	public IndexedLongSet() {
+		this.myElements = new long[MIN_CAPACITY];
+		this.mySize = 0;
+		this.allocateIndex(MIN_CAPACITY * 2);
+	}
+
+	/**
+	 * Return the number of elements.
+	 * 
+	 * @return the number of elements
+	 */
+	public int size() {
+		return this.mySize;
+	}
+
+	/**
+	 * Return true if the set has no elements.
+	 * 
+	 * @return true if the set has no elements
+	 */
+	public boolean isEmpty() {
+		return this.mySize == 0;
+	}
+
+	/**
+	 * Return true if the given long is in the set.
+	 * 
+	 * @param element
+	 *            a long
+	 * @return true if the given long is in the set
+	 */
+	public boolean contains(long element) {
+		return this.myIndex[this.find(element)] >= 0;
+	}
+
+	/**
+	 * Return the element at the given position of the dense array.
+	 * 
+	 * @param position
+	 *            an integer between 0 and size-1 (inclusive)
+	 * @return the element at the given position
+	 */
+	public long get(int position) {
+		return this.myElements[position];
+	}
+
+	/**
+	 * Add the given long to the set.
+	 * 
+	 * @param element
+	 *            a long
+	 * @return true if the long was not in the set
+	 */
+	public boolean add(long element) {
+		int slot = this.find(element);
+		if (this.myIndex[slot] >= 0) {
+			return false;
+		}
+		if (this.mySize == this.myElements.length) {
+			long elements[] = new long[this.myElements.length * 2];
+			System.arraycopy(this.myElements, 0, elements, 0, this.mySize);
+			this.myElements = elements;
+			this.allocateIndex(elements.length * 2);
+			for (int i = 0; i < this.mySize; i++) {
+				this.myIndex[this.find(this.myElements[i])] = i;
+			}
+			slot = this.find(element);
+		}
+		this.myElements[this.mySize] = element;
+		this.myIndex[slot] = this.mySize++;
+		return true;
+	}
+
+	/**
+	 * Remove the given long from the set.
+	 * 
+	 * @param element
+	 *            a long
+	 * @return true if the long was in the set
+	 */
+	public boolean remove(long element) {
+		int slot = this.find(element);
+		int position = this.myIndex[slot];
+		if (position < 0) {
+			return false;
+		}
+		this.removeFromIndex(slot);
+		long last = this.myElements[--this.mySize];
+		if (position != this.mySize) {
+			this.myElements[position] = last;
+			this.myIndex[this.find(last)] = position;
+		}
+		return true;
+	}
+
+	/**
+	 * Randomly remove an element from the set and return that removed element.
+	 * Like Globals.randomGen.nextInt(size()), this draws one integer from the
+	 * global random generator.
+	 * 
+	 * @return the randomly removed element
+	 */
+	public long removeRandom() {
+		long result = this.myElements[Globals.randomGen.nextInt(this.mySize)];
+		this.remove(result);
+		return result;
+	}
+
+	/**
+	 * Remove all elements, in O(size) time. The allocated capacity is kept, so
+	 * a set can be reused without allocating.
+	 */
+	public void clear() {
+		// remove from the last element, so that the positions of the
+		// remaining elements stay valid while their slots are shifted
+		for (int i = this.mySize - 1; i >= 0; i--) {
+			this.removeFromIndex(this.find(this.myElements[i]));
+		}
+		this.mySize = 0;
+	}
+
+	/**
+	 * Replace the hash index by an empty one of the given length.
+	 * 
+	 * @param length
+	 *            a power of 2
+	 */
+	private void allocateIndex(int length) {
+		this.myIndex = new int[length];
+		this.myIndexMask = length - 1;
+		for (int i = 0; i < length; i++) {
+			this.myIndex[i] = -1;
+		}
+	}
+
+	/**
+	 * Return the slot of the given long in the hash index, or the empty slot
+	 * where it would be added.
+	 * 
+	 * @param element
+	 *            a long
+	 * @return a slot of the hash index
+	 */
+	private int find(long element) {
+		for (int slot = (int) CounterBasedRandom.mix(element)
+				& this.myIndexMask;; slot = (slot + 1) & this.myIndexMask) {
+			int position = this.myIndex[slot];
+			if (position < 0 || this.myElements[position] == element) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Empty the given slot of the hash index. The following entries of the
+	 * probe sequence are shifted backwards, so the index never needs
+	 * tombstones.
+	 * 
+	 * @param gap
+	 *            a non-empty slot of the hash index
+	 */
+	private void removeFromIndex(int gap) {
+		for (int slot = (gap + 1) & this.myIndexMask;; slot = (slot + 1)
+				& this.myIndexMask) {
+			int position = this.myIndex[slot];
+			if (position < 0) {
+				break;
+			}
+			// the entry may fill the gap only if its home slot is not
+			// between the gap and its current slot
+			int home = (int) CounterBasedRandom.mix(this.myElements[position])
+					& this.myIndexMask;
+			if (((slot - home) & this.myIndexMask) >= ((slot - gap)
+					& this.myIndexMask)) {
+				this.myIndex[gap] = position;
+				gap = slot;
+			}
+		}
+		this.myIndex[gap] = -1;
+	}
+}
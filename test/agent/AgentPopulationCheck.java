@@ -0,0 +1,244 @@
+package agent;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import landscape.InfluenceMatrix;
+import landscape.Landscape;
+import util.Globals;
+import agent.Agent.SearchType;
+
+/**
+ * AgentPopulationCheck checks that agents are consistent views of their
+ * population. It checks that:
+ * <ul>
+ * <li>agents start detached</li>
+ * <li>the getters of every agent and of its slot agree after every step of
+ * the M, P and MandP searches of a population</li>
+ * <li>the state of an agent is moved intact to another population</li>
+ * <li>an agent, whose neighbour sampler and fitness contributions are reused
+ * by Agent.reset(), searches exactly like a new agent of the same run</li>
+ * <li>resetting an innovator or a provider allocates nothing once it has been
+ * reset before</li>
+ * </ul>
+ * It prints "ERROR : ..." and exits with 1 on the first failure, and "OK"
+ * otherwise.
+ *
+ * Usage: java -cp classes agent.AgentPopulationCheck
+ */
+public class AgentPopulationCheck {
+	private final static int N = 16;
+	private final static int K = 3;
+	private final static int AGENTS = 200;
+	private final static int RESETS = 100000;
+	private final static int WINDOWS = 5;
+
+	public static void main(String args[]) {
+		int matrix[][] = new int[N][N];
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j <= K; j++) {
+				matrix[i][(i + j) % N] = 1;
+			}
+		}
+		Globals.setSeed(0);
+		Globals.ldscp = new Landscape(new InfluenceMatrix(matrix));
+
+		ArrayList<Innovator> innovators = new ArrayList<Innovator>();
+		for (int i = 0; i < AGENTS; i++) {
+			Innovator innovator = new Innovator(1 + i % 3, 6, 3);
+			if (innovator.getPopulation() != null) {
+				fail("a new innovator is not detached");
+			}
+			innovator.setId(i);
+			innovators.add(innovator);
+		}
+		AgentPopulation population = new AgentPopulation(innovators);
+		if (population.size() != AGENTS) {
+			fail("population of " + AGENTS + " innovators has size "
+					+ population.size());
+		}
+		for (int i = 0; i < AGENTS; i++) {
+			Innovator innovator = innovators.get(i);
+			if (population.get(i) != innovator
+					|| innovator.getPopulation() != population) {
+				fail("innovator " + i + " is not the view of slot " + i);
+			}
+			innovator.reset();
+			checkView(innovator);
+			if (innovator.getTimestamp() != 0
+					|| innovator.getSearchType() != null
+					|| innovator.hasUnvisitedNeighbour()
+					|| innovator.hasSetPartner()
+					|| innovator.getPartnerId() != -1) {
+				fail("innovator " + i + " is not reset: " + innovator);
+			}
+		}
+		for (Innovator innovator : innovators) {
+			search(innovator);
+		}
+		checkMove(innovators.get(AGENTS / 2));
+		checkReset(innovators.get(0));
+		Provider provider = new Provider(2, 5);
+		provider.setId(0);
+		new AgentPopulation(1).add(provider);
+		checkResetAllocation(innovators.get(1));
+		checkResetAllocation(provider);
+		System.out.println("OK");
+	}
+
+	/**
+	 * Check that the getters of the given agent agree with those of its slot
+	 * and that its score is the fitness value of its location id.
+	 */
+	private static void checkView(Agent agent) {
+		AgentPopulation population = agent.getPopulation();
+		int slot = agent.getId();
+		if (agent.getLocId() != population.getLocId(slot)
+				|| agent.getScore() != population.getScore(slot)
+				|| agent.getTimestamp() != population.getTimestamp(slot)
+				|| agent.getSearchType() != population.getSearchType(slot)
+				|| agent.hasUnvisitedNeighbour() != population
+						.hasUnvisitedNeighbour(slot)) {
+			fail("agent " + slot + " disagrees with its slot: " + agent);
+		}
+		if (agent.getScore() != Globals.ldscp.getScoreOfLocId(agent.getLocId())) {
+			fail("agent " + slot + " has score " + agent.getScore()
+					+ " instead of "
+					+ Globals.ldscp.getScoreOfLocId(agent.getLocId()));
+		}
+		if (agent instanceof Innovator) {
+			Innovator innovator = (Innovator) agent;
+			if (innovator.getPartnerId() != population.getPartnerId(slot)
+					|| innovator.hasSetPartner() != population
+							.hasSetPartner(slot)) {
+				fail("innovator " + slot + " disagrees with its slot: "
+						+ innovator);
+			}
+		}
+	}
+
+	/**
+	 * Run the M, P and MandP searches of the given innovator to their ends,
+	 * check it after every step, and return its location ids and time stamps
+	 * after every step.
+	 */
+	private static ArrayList<Long> search(Innovator innovator) {
+		AgentPopulation population = innovator.getPopulation();
+		int slot = innovator.getId();
+		ArrayList<Long> result = new ArrayList<Long>();
+		SearchType types[] = { SearchType.M, SearchType.P, SearchType.MandP };
+		long masks[] = { innovator.getMMask(), innovator.getPMask(),
+				innovator.getMMask() | innovator.getPMask() };
+		for (int t = 0; t < types.length; t++) {
+			innovator.startNewSearch(types[t]);
+			if (population.getSearchMask(slot) != masks[t]) {
+				fail("innovator " + slot + " searches the mask "
+						+ population.getSearchMask(slot) + " in " + types[t]
+						+ " instead of " + masks[t]);
+			}
+			checkView(innovator);
+			while (innovator.hasUnvisitedNeighbour()) {
+				long timestamp = innovator.getTimestamp();
+				float score = innovator.getScore();
+				innovator.continueSearch();
+				checkView(innovator);
+				if (innovator.getTimestamp() != timestamp + 1
+						|| innovator.getScore() < score) {
+					fail("innovator " + slot + " took a wrong step in "
+							+ types[t] + ": " + innovator);
+				}
+				result.add(innovator.getLocId());
+				result.add(innovator.getTimestamp());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Check that adding the given innovator to another population moves its
+	 * state there.
+	 */
+	private static void checkMove(Innovator innovator) {
+		AgentPopulation from = innovator.getPopulation();
+		int fromSlot = innovator.getId();
+		innovator.setPartnerId(7);
+		String before = innovator.toString();
+		long searchMask = from.getSearchMask(fromSlot);
+		AgentPopulation to = new AgentPopulation(1);
+		if (to.add(innovator) != 0 || innovator.getPopulation() != to) {
+			fail("innovator " + fromSlot + " is not moved to slot 0");
+		}
+		if (to.getLocId(0) != from.getLocId(fromSlot)
+				|| to.getScore(0) != from.getScore(fromSlot)
+				|| to.getTimestamp(0) != from.getTimestamp(fromSlot)
+				|| to.getSearchType(0) != from.getSearchType(fromSlot)
+				|| to.getSearchMask(0) != searchMask
+				|| to.getPartnerId(0) != 7 || !to.hasSetPartner(0)
+				|| to.hasUnvisitedNeighbour(0) != from
+						.hasUnvisitedNeighbour(fromSlot)
+				|| !innovator.toString().equals(before)) {
+			fail("innovator " + fromSlot + " changed by the move: " + before
+					+ " became " + innovator);
+		}
+	}
+
+	/**
+	 * Check that the given innovator, after a reset, searches the same way as
+	 * a new innovator of the same parameters in the same run.
+	 */
+	private static void checkReset(Innovator innovator) {
+		Globals.setSeed(7);
+		innovator.reset();
+		ArrayList<Long> reused = search(innovator);
+
+		Innovator fresh = new Innovator(innovator.getProcessingPower(),
+				innovator.getMSize(), innovator.getPSize());
+		fresh.setId(0);
+		new AgentPopulation(1).add(fresh);
+		Globals.setSeed(7);
+		fresh.reset();
+		ArrayList<Long> created = search(fresh);
+		if (!reused.equals(created)) {
+			fail("a reset innovator searches differently from a new one: "
+					+ reused.size() / 2 + " and " + created.size() / 2
+					+ " steps");
+		}
+	}
+
+	/**
+	 * Check that resetting the given agent, after it has been reset before,
+	 * allocates nothing, as measured by the bytes allocated by the current
+	 * thread. Installing code compiled in the background may allocate a few
+	 * bytes once, so the resets are measured in up to WINDOWS windows, one of
+	 * which must allocate nothing.
+	 */
+	private static void checkResetAllocation(Agent agent) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < RESETS; i++) {
+			agent.reset();
+		}
+		long allocated = 0L;
+		for (int window = 0; window < WINDOWS; window++) {
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < RESETS; i++) {
+				agent.reset();
+			}
+			allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+			if (allocated == 0) {
+				return;
+			}
+		}
+		fail("resetting " + agent + " allocated " + allocated + " bytes in "
+				+ RESETS + " resets, in each of " + WINDOWS + " windows");
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
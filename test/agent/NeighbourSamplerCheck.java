@@ -0,0 +1,171 @@
+package agent;
+
+import java.lang.management.ManagementFactory;
+
+import landscape.FlipPatternTable;
+import random.CounterBasedRandom;
+import random.MersenneTwisterFast;
+
+/**
+ * NeighbourSamplerCheck checks that NeighbourSampler unranks the flip
+ * patterns in the order of FlipPatternTable: for random element masks of up
+ * to 64 bits and processing powers 0 to 4, the walk must return location id ^
+ * patterns[permute(i)] for i = 0, 1, ... of the enumerated patterns, and end
+ * exactly after the last one. It also checks that visited locations are
+ * skipped, and that starting and walking a neighbourhood allocates nothing.
+ * It prints "ERROR : ..." and exits with 1 on the first failure, and "OK"
+ * otherwise.
+ *
+ * Usage: java -cp classes agent.NeighbourSamplerCheck
+ */
+public class NeighbourSamplerCheck {
+	private final static int MASKS = 300;
+	private final static int MAX_POWER = 4;
+
+	private static MersenneTwisterFast random = new MersenneTwisterFast(4357);
+
+	public static void main(String args[]) {
+		FlipPatternTable table = new FlipPatternTable(64);
+		NeighbourSampler sampler = new NeighbourSampler();
+		VisitedLocationSet visited = new VisitedLocationSet();
+		for (int m = 0; m < MASKS; m++) {
+			long mask = createMask();
+			int power = m % (MAX_POWER + 1);
+			checkOrder(table, sampler, visited, mask, power);
+		}
+		checkOrder(table, sampler, visited, -1L, 2);
+		checkOrder(table, sampler, visited, 0L, 3);
+		checkSkipsVisited(sampler, visited);
+		checkAllocation(sampler, visited);
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return a random element mask, whose number of bits is small enough to
+	 * enumerate all patterns of up to MAX_POWER bits.
+	 */
+	private static long createMask() {
+		int bits = random.nextInt(24);
+		long result = 0L;
+		while (Long.bitCount(result) < bits) {
+			result |= 1L << random.nextInt(64);
+		}
+		return result;
+	}
+
+	/**
+	 * Walk the neighbourhood of a random location id in the given mask with
+	 * the given power, and compare it with the enumerated patterns.
+	 */
+	private static void checkOrder(FlipPatternTable table,
+			NeighbourSampler sampler, VisitedLocationSet visited, long mask,
+			int power) {
+		String name = "mask " + Long.toHexString(mask) + ", power " + power;
+		long patterns[] = table.getPatterns(mask, power);
+		long locId = random.nextLong();
+		long key = random.nextLong();
+		visited.reset(mask);
+		sampler.start(locId, mask, power, key);
+		for (int i = 0; i < patterns.length; i++) {
+			if (!sampler.hasNext(visited)) {
+				fail(name + ": walk ended after " + i + " of "
+						+ patterns.length + " neighbours");
+			}
+			long expected = locId
+					^ patterns[(int) CounterBasedRandom.permute(i,
+							patterns.length, key)];
+			long neighbour = sampler.next(visited);
+			if (neighbour != expected) {
+				fail(name + ": neighbour " + i + " is "
+						+ Long.toHexString(neighbour) + " instead of "
+						+ Long.toHexString(expected));
+			}
+		}
+		if (sampler.hasNext(visited)) {
+			fail(name + ": walk did not end after " + patterns.length
+					+ " neighbours");
+		}
+	}
+
+	/**
+	 * Check that a walk, after every other neighbour of a first walk has been
+	 * visited, returns exactly the other neighbours.
+	 */
+	private static void checkSkipsVisited(NeighbourSampler sampler,
+			VisitedLocationSet visited) {
+		long mask = 0xF0F0L;
+		// 8 choose 1, 2 and 3
+		int expected = 8 + 28 + 56;
+		long locId = random.nextLong();
+		long key = random.nextLong();
+		visited.reset(mask);
+		sampler.start(locId, mask, 3, key);
+		int count = 0;
+		while (sampler.hasNext(visited)) {
+			long neighbour = sampler.next(visited);
+			if (count++ % 2 == 0) {
+				visited.add(neighbour);
+			}
+		}
+		sampler.start(locId, mask, 3, key);
+		int unvisited = 0;
+		while (sampler.hasNext(visited)) {
+			long neighbour = sampler.next(visited);
+			if (visited.contains(neighbour)) {
+				fail("visited neighbour " + Long.toHexString(neighbour)
+						+ " was returned");
+			}
+			unvisited++;
+		}
+		if (count != expected || unvisited != expected / 2) {
+			fail("walks returned " + count + " and " + unvisited
+					+ " neighbours instead of " + expected + " and "
+					+ expected / 2);
+		}
+	}
+
+	/**
+	 * Check that starting and walking neighbourhoods allocates nothing once
+	 * the sampler has been used, as measured by the bytes allocated by the
+	 * current thread.
+	 */
+	private static void checkAllocation(NeighbourSampler sampler,
+			VisitedLocationSet visited) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		visited.reset(-1L);
+		long sum = walk(sampler, visited);
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		sum += walk(sampler, visited);
+		long after = threadBean.getThreadAllocatedBytes(threadId);
+		if (after != before) {
+			fail("walking allocated " + (after - before) + " bytes (" + sum
+					+ ")");
+		}
+	}
+
+	/**
+	 * Walk many neighbourhoods of 40 elements with processing power 3 part
+	 * of the way, and return the XOR of the neighbours.
+	 */
+	private static long walk(NeighbourSampler sampler,
+			VisitedLocationSet visited) {
+		long result = 0L;
+		for (int i = 0; i < 10000; i++) {
+			sampler.start(i, 0xFFFFFFFFFFL, 3, i * 31L);
+			for (int j = 0; j < 100 && sampler.hasNext(visited); j++) {
+				result ^= sampler.next(visited);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
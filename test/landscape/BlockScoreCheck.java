@@ -0,0 +1,137 @@
+package landscape;
+
+import random.MersenneTwisterFast;
+
+/**
+ * BlockScoreCheck checks the evaluation of fitness values by blocks. For
+ * block-diagonal influence matrices, a landscape that evaluates by blocks
+ * must give the same fitness values as the same landscape with a memo budget
+ * of 0, which sums up the contributions of all elements, up to rounding, and
+ * exactly if every block has a single element. This must hold as built,
+ * after shocks and after undoing them. Every way of scoring a location, from
+ * scratch or incrementally, must give exactly the same value, and the block
+ * fitness values must be a new array on every call. It prints "ERROR : ..."
+ * and exits with 1 on the first failure, and "OK" otherwise.
+ *
+ * Usage: java -cp classes landscape.BlockScoreCheck
+ */
+public class BlockScoreCheck {
+	private final static int SAMPLES = 20000;
+	private final static int SHOCKS = 5;
+	private final static float TOLERANCE = 1e-6f;
+
+	private static MersenneTwisterFast random = new MersenneTwisterFast(4357);
+
+	public static void main(String args[]) {
+		check("ten modules", createBlockMatrix(60, 6, false));
+		check("interleaved", createBlockMatrix(20, 5, true));
+		check("K = 0", createBlockMatrix(16, 1, false));
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return an influence matrix of the given N, which splits into
+	 * independent blocks of the given size, in which every element depends on
+	 * all others of its block. The blocks are contiguous, or interleaved so
+	 * that element i is in block i % (N / blockSize).
+	 */
+	private static int[][] createBlockMatrix(int n, int blockSize,
+			boolean isInterleaved) {
+		int blocks = n / blockSize;
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (isInterleaved ? i % blocks == j % blocks : i / blockSize == j
+						/ blockSize) {
+					matrix[i][j] = 1;
+				}
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Build a landscape that evaluates by blocks and one that does not from
+	 * the same seed, and compare them as built, after every shock and after
+	 * undoing the shocks.
+	 */
+	private static void check(String name, int matrix[][]) {
+		InfluenceMatrix inf = new InfluenceMatrix(matrix);
+		boolean isExact = (inf.getLargestBlockSize() == 1);
+		LandscapeSettings settings = new LandscapeSettings();
+		settings.setShockRows(2);
+		// a memo of 2^N values would hide the evaluation
+		settings.setMemoBudget(inf.getN() <= 24 ? (4L << inf.getN()) - 1
+				: 64L << 20);
+		int seed = random.nextInt();
+		Landscape blocks = new Landscape(inf, settings, 0,
+				new MersenneTwisterFast(seed));
+		settings.setMemoBudget(0);
+		Landscape elements = new Landscape(inf, settings, 0,
+				new MersenneTwisterFast(seed));
+		if (blocks.hasMemo()) {
+			fail(name + ": the landscape keeps a dense memo");
+		}
+		if (blocks.getBlockScores(0) == blocks.getBlockScores(0)) {
+			fail(name + ": the block fitness values are kept");
+		}
+
+		compare(name + " as built", blocks, elements, isExact);
+		int shockSeed = random.nextInt();
+		MersenneTwisterFast blocksRandom = new MersenneTwisterFast(shockSeed);
+		MersenneTwisterFast elementsRandom = new MersenneTwisterFast(shockSeed);
+		for (int i = 0; i < SHOCKS; i++) {
+			blocks.shock(blocksRandom);
+			elements.shock(elementsRandom);
+			compare(name + " after shock " + (i + 1), blocks, elements, isExact);
+		}
+		blocks.undoShocks();
+		elements.undoShocks();
+		compare(name + " after undoing the shocks", blocks, elements, isExact);
+	}
+
+	/**
+	 * Compare the fitness values of random locations of the two landscapes,
+	 * and check that every way of scoring them on the landscape that evaluates
+	 * by blocks gives the same value.
+	 */
+	private static void compare(String name, Landscape blocks,
+			Landscape elements, boolean isExact) {
+		int n = blocks.getInfN();
+		long bits = (n == 64 ? -1L : (1L << n) - 1);
+		float contributions[] = new float[n];
+		long locId = random.nextLong() & bits;
+		blocks.computeContributions(locId, contributions);
+		for (int i = 0; i < SAMPLES; i++) {
+			long flipMask = 0L;
+			for (int j = 1 + random.nextInt(3); j > 0; j--) {
+				flipMask |= 1L << random.nextInt(n);
+			}
+			long next = locId ^ flipMask;
+			float expected = elements.computeScore(next);
+			float score = blocks.computeScore(next);
+			if (isExact ? score != expected
+					: Math.abs(score - expected) > TOLERANCE) {
+				fail(name + ": location id " + next + " scores " + score
+						+ " by blocks instead of " + expected);
+			}
+			if (blocks.getScoreOfLocId(next) != score
+					|| blocks.getScoreOfFlip(locId, contributions, flipMask) != score
+					|| blocks.computeScoreOfFlip(locId, contributions, flipMask) != score
+					|| blocks.moveContributions(locId, contributions, flipMask) != score) {
+				fail(name + ": location id " + next
+						+ " scores differently from " + score
+						+ " when it is scored by a flip");
+			}
+			locId = next;
+		}
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
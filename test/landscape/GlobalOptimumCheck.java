@@ -0,0 +1,141 @@
+package landscape;
+
+import random.MersenneTwisterFast;
+
+/**
+ * GlobalOptimumCheck checks GlobalOptimumSolver against brute force: for
+ * cyclic, random and block-diagonal influence matrices, the fitness value of
+ * the solved location id must be the largest of all 2^N fitness values. The
+ * random matrices with N > MAX_FRONTIER run branch-and-bound, all others
+ * dynamic programming, and the check fails if either method is not run. It
+ * prints "ERROR : ..." and exits with 1 on the first failure, and "OK"
+ * otherwise.
+ *
+ * Usage: java -cp classes landscape.GlobalOptimumCheck
+ */
+public class GlobalOptimumCheck {
+	private static MersenneTwisterFast random = new MersenneTwisterFast(4357);
+	private static int dynamicProgrammingBlocks = 0;
+	private static int branchAndBoundBlocks = 0;
+
+	public static void main(String args[]) {
+		for (int n = 8; n <= 20; n += 4) {
+			for (int k = 0; k < n; k += 3) {
+				check("cyclic", createCyclicMatrix(n, k));
+				check("random", createRandomMatrix(n, k));
+			}
+		}
+		check("block-diagonal", createBlockMatrix(16, 4));
+		check("block-diagonal", createBlockMatrix(18, 3));
+		for (int n = 22; n <= 23; n++) {
+			for (int k = 5; k <= 7; k++) {
+				check("random", createRandomMatrix(n, k));
+			}
+		}
+		if (dynamicProgrammingBlocks == 0 || branchAndBoundBlocks == 0) {
+			fail("dynamic programming solved " + dynamicProgrammingBlocks
+					+ " and branch-and-bound solved " + branchAndBoundBlocks
+					+ " blocks, but each should solve some");
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return an influence matrix of the given N and K, in which each element
+	 * depends on the next K elements in cyclic order.
+	 */
+	private static int[][] createCyclicMatrix(int n, int k) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= k; j++) {
+				matrix[i][(i + j) % n] = 1;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Return an influence matrix of the given N and K, in which each element
+	 * depends on K other elements chosen at random.
+	 */
+	private static int[][] createRandomMatrix(int n, int k) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			matrix[i][i] = 1;
+			for (int j = 0; j < k; j++) {
+				int dependent;
+				do {
+					dependent = random.nextInt(n);
+				} while (matrix[i][dependent] == 1);
+				matrix[i][dependent] = 1;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Return an influence matrix of the given N, which splits into
+	 * independent blocks of the given size, in which every element depends on
+	 * all others of its block.
+	 */
+	private static int[][] createBlockMatrix(int n, int blockSize) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			int start = i - i % blockSize;
+			for (int j = start; j < start + blockSize; j++) {
+				matrix[i][j] = 1;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Solve the global maximum of a landscape of the given influence matrix
+	 * and compare its fitness value with the largest of all 2^N fitness
+	 * values.
+	 */
+	private static void check(String kind, int matrix[][]) {
+		InfluenceMatrix inf = new InfluenceMatrix(matrix);
+		String name = kind + " N = " + inf.getN() + ", K = " + inf.getK();
+		LandscapeSettings settings = new LandscapeSettings();
+		settings.setMemoBudget(0);
+		Landscape landscape = new Landscape(inf, settings, 0,
+				new MersenneTwisterFast(random.nextInt()));
+		GlobalOptimumSolver solver = new GlobalOptimumSolver(inf, landscape);
+		for (int block = 0; block < inf.getBlockCount(); block++) {
+			if (solver.isSolvedByDynamicProgramming(block)) {
+				dynamicProgrammingBlocks++;
+			} else {
+				branchAndBoundBlocks++;
+			}
+		}
+		long solved = solver.solve();
+		long size = 1L << inf.getN();
+		if (solved < 0 || solved >= size) {
+			fail(name + ": solved location id " + solved + " is out of range");
+		}
+		long best = 0L;
+		float bestScore = landscape.computeScore(0L);
+		for (long locId = 1L; locId < size; locId++) {
+			float score = landscape.computeScore(locId);
+			if (score > bestScore) {
+				best = locId;
+				bestScore = score;
+			}
+		}
+		float solvedScore = landscape.computeScore(solved);
+		if (solvedScore != bestScore) {
+			fail(name + ": solved location id " + solved + " scores "
+					+ solvedScore + ", but location id " + best + " scores "
+					+ bestScore);
+		}
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
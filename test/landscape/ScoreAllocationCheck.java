@@ -0,0 +1,110 @@
+package landscape;
+
+import java.lang.management.ManagementFactory;
+
+import landscape.FitnessContributionTable.TableType;
+import random.MersenneTwisterFast;
+
+/**
+ * ScoreAllocationCheck checks that scoring a location id allocates nothing
+ * once the landscape has been warmed up: Landscape.getScoreOfLocId() with a
+ * dense memo and Landscape.computeScore() with an eager and a lazy table, for
+ * N = 16 and several K. The bytes allocated by the current thread must not
+ * change across the calls. It prints "ERROR : ..." and exits with 1 on the
+ * first failure, and "OK" otherwise.
+ *
+ * Usage: java -cp classes landscape.ScoreAllocationCheck
+ */
+public class ScoreAllocationCheck {
+	private final static int N = 16;
+	private final static int KS[] = { 0, 3, 10, 15 };
+	private final static int WARM_UP_CALLS = 1000000;
+	private final static int CALLS = 5000000;
+
+	private static com.sun.management.ThreadMXBean threadBean;
+	/**
+	 * the sum of all scores, which keeps the calls from being optimized away
+	 */
+	private static float sink;
+
+	public static void main(String args[]) {
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threadBean.isThreadAllocatedMemorySupported()) {
+			System.out
+					.println("ERROR : thread allocated memory is not supported by this JVM");
+			System.exit(1);
+		}
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		for (int k : KS) {
+			InfluenceMatrix inf = new InfluenceMatrix(createMatrix(N, k));
+			// the default memo budget holds all 2^16 fitness values
+			Landscape memoized = createLandscape(inf, TableType.EAGER);
+			check("getScoreOfLocId, eager table, K = " + k, memoized, true);
+			check("computeScore, eager table, K = " + k, memoized, false);
+			Landscape lazy = createLandscape(inf, TableType.LAZY);
+			check("computeScore, lazy table, K = " + k, lazy, false);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return an influence matrix of the given N and K, in which each element
+	 * depends on the next K elements in cyclic order.
+	 */
+	private static int[][] createMatrix(int n, int k) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= k; j++) {
+				matrix[i][(i + j) % n] = 1;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Return a landscape of the given influence matrix and table type, drawn
+	 * from a fixed seed.
+	 */
+	private static Landscape createLandscape(InfluenceMatrix inf,
+			TableType tableType) {
+		LandscapeSettings settings = new LandscapeSettings();
+		settings.setTableType(tableType);
+		return new Landscape(inf, settings, 0, new MersenneTwisterFast(4357));
+	}
+
+	/**
+	 * Warm the given landscape up, then score many location ids and exit with
+	 * an error if the current thread has allocated any bytes meanwhile.
+	 */
+	private static void check(String name, Landscape landscape,
+			boolean isLookedUp) {
+		long threadId = Thread.currentThread().getId();
+		score(landscape, isLookedUp, WARM_UP_CALLS);
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		score(landscape, isLookedUp, CALLS);
+		long after = threadBean.getThreadAllocatedBytes(threadId);
+		if (after != before) {
+			System.out.println("ERROR : " + name + " allocated "
+					+ (after - before) + " bytes in " + CALLS + " calls");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Score the given number of location ids, which walk through all 2^N
+	 * locations, with Landscape.getScoreOfLocId() if isLookedUp is true, and
+	 * with Landscape.computeScore() otherwise.
+	 */
+	private static void score(Landscape landscape, boolean isLookedUp,
+			int calls) {
+		long mask = (1L << N) - 1;
+		float sum = 0.0f;
+		for (int i = 0; i < calls; i++) {
+			long locId = (i * 0x9E3779B97F4A7C15L) & mask;
+			sum += (isLookedUp ? landscape.getScoreOfLocId(locId) : landscape
+					.computeScore(locId));
+		}
+		sink += sum;
+	}
+}
@@ -0,0 +1,171 @@
+package landscape;
+
+import landscape.FitnessCache.EvictionPolicy;
+import landscape.FitnessContributionTable.TableType;
+import random.MersenneTwisterFast;
+
+/**
+ * ShockCheck checks that shocks never let a stale fitness value through and
+ * that Landscape.undoShocks() restores the landscape as it was built. For an
+ * eager and a lazy table, with a dense memo and with each cache, every
+ * location id is scored through the memo or the cache, incrementally from
+ * the contributions of a neighbour, and from scratch after every shock, and
+ * the three values must be the same; after the shocks are undone, every
+ * value must be the one of the unshocked landscape. The 16-bit epoch tags of
+ * the memo are also run through a wrap-around. It prints "ERROR : ..." and
+ * exits with 1 on the first failure, and "OK" otherwise.
+ *
+ * Usage: java -cp classes landscape.ShockCheck
+ */
+public class ShockCheck {
+	private final static int N = 12;
+	private final static int K = 3;
+	private final static int SHOCKS = 20;
+	private final static int SHOCK_ROWS = 2;
+
+	public static void main(String args[]) {
+		InfluenceMatrix inf = new InfluenceMatrix(createMatrix(N, K));
+		for (TableType tableType : TableType.values()) {
+			check(inf, tableType, null, 0);
+			for (EvictionPolicy policy : EvictionPolicy.values()) {
+				check(inf, tableType, policy, 1024);
+			}
+			check(inf, tableType, EvictionPolicy.LRU, 1);
+		}
+		checkMemoWrapAround(new InfluenceMatrix(createMatrix(8, 2)));
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return an influence matrix of the given N and K, in which each element
+	 * depends on the next K elements in cyclic order.
+	 */
+	private static int[][] createMatrix(int n, int k) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= k; j++) {
+				matrix[i][(i + j) % n] = 1;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Return a landscape of the given influence matrix and table type, with a
+	 * dense memo if the given policy is null, and otherwise with a cache of
+	 * the given policy and capacity.
+	 */
+	private static Landscape createLandscape(InfluenceMatrix inf,
+			TableType tableType, EvictionPolicy policy, int capacity) {
+		LandscapeSettings settings = new LandscapeSettings();
+		settings.setTableType(tableType);
+		settings.setShockPeriod(1);
+		settings.setShockRows(SHOCK_ROWS);
+		if (policy != null) {
+			settings.setMemoBudget(0);
+			settings.setEvictionPolicy(policy);
+			settings.setCacheCapacity(capacity);
+		}
+		return new Landscape(inf, settings, 0, new MersenneTwisterFast(4357));
+	}
+
+	/**
+	 * Shock a landscape of the given configuration several times, compare the
+	 * looked-up, incremental and computed values after each shock, and
+	 * compare all values with those of the unshocked landscape after the
+	 * shocks are undone.
+	 */
+	private static void check(InfluenceMatrix inf, TableType tableType,
+			EvictionPolicy policy, int capacity) {
+		String name = tableType + " table, "
+				+ (policy == null ? "memo" : policy + " cache of " + capacity);
+		Landscape landscape = createLandscape(inf, tableType, policy, capacity);
+		int n = inf.getN();
+		float built[] = new float[1 << n];
+		for (long locId = 0; locId < built.length; locId++) {
+			built[(int) locId] = landscape.getScoreOfLocId(locId);
+			if (built[(int) locId] != landscape.computeScore(locId)) {
+				fail(name + ": looked-up and computed values differ at "
+						+ locId + " before any shock");
+			}
+		}
+		MersenneTwisterFast random = new MersenneTwisterFast(1);
+		float contributions[] = new float[n];
+		for (int shock = 1; shock <= SHOCKS; shock++) {
+			landscape.shock(random);
+			if (landscape.getEpoch() == 0) {
+				fail(name + ": shock " + shock + " left the epoch at 0");
+			}
+			boolean isChanged = false;
+			for (long locId = 0; locId < built.length; locId++) {
+				float computed = landscape.computeScore(locId);
+				if (landscape.getScoreOfLocId(locId) != computed) {
+					fail(name + ": stale value at " + locId + " after shock "
+							+ shock);
+				}
+				// score the location from the contributions of a neighbour
+				long baseLocId = locId ^ (1L << (locId % n));
+				landscape.computeContributions(baseLocId, contributions);
+				if (landscape.getScoreOfFlip(baseLocId, contributions, locId
+						^ baseLocId) != computed) {
+					fail(name + ": incremental value differs at " + locId
+							+ " after shock " + shock);
+				}
+				isChanged |= (computed != built[(int) locId]);
+			}
+			if (!isChanged) {
+				fail(name + ": shock " + shock + " changed no value");
+			}
+		}
+		landscape.undoShocks();
+		if (landscape.getEpoch() != 0) {
+			fail(name + ": undoShocks() left the epoch at "
+					+ landscape.getEpoch());
+		}
+		for (long locId = 0; locId < built.length; locId++) {
+			if (landscape.getScoreOfLocId(locId) != built[(int) locId]
+					|| landscape.computeScore(locId) != built[(int) locId]) {
+				fail(name + ": value at " + locId
+						+ " differs from the unshocked landscape after undoShocks()");
+			}
+		}
+	}
+
+	/**
+	 * Shock a memoized landscape more often than its 16-bit epoch tags can
+	 * count, and check that no value of an earlier epoch with the same tag is
+	 * taken for a current one.
+	 */
+	private static void checkMemoWrapAround(InfluenceMatrix inf) {
+		Landscape landscape = createLandscape(inf, TableType.EAGER, null, 0);
+		MersenneTwisterFast random = new MersenneTwisterFast(2);
+		int size = 1 << inf.getN();
+		for (int shock = 1; shock <= Character.MAX_VALUE + 2; shock++) {
+			landscape.shock(random);
+			// touch one location per epoch, and check all around the wrap
+			long touched = shock % size;
+			if (landscape.getScoreOfLocId(touched) != landscape
+					.computeScore(touched)) {
+				fail("memo wrap-around: stale value at " + touched
+						+ " after shock " + shock);
+			}
+			if (shock >= Character.MAX_VALUE - 1) {
+				for (long locId = 0; locId < size; locId++) {
+					if (landscape.getScoreOfLocId(locId) != landscape
+							.computeScore(locId)) {
+						fail("memo wrap-around: stale value at " + locId
+								+ " after shock " + shock);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,156 @@
+package landscape;
+
+import landscape.FitnessContributionTable.TableType;
+import random.MersenneTwisterFast;
+import util.Globals;
+
+/**
+ * WideLandscapeCheck checks WideLandscape and WideLocation. For N = 16, 63
+ * and 64 and both table types, the fitness value of random locations must be
+ * the same as that of Landscape on the same table. For N = 2000, a random
+ * walk that flips one to three elements per step with
+ * WideLandscape.moveContributions() must give the same fitness value as
+ * scoring every location from scratch, and flipping the same elements back
+ * must restore the contributions exactly. It prints "ERROR : ..." and exits
+ * with 1 on the first failure, and "OK" otherwise.
+ *
+ * Usage: java -cp classes landscape.WideLandscapeCheck
+ */
+public class WideLandscapeCheck {
+	private final static int K = 3;
+	private final static int SAMPLES = 100000;
+	private final static int WIDE_N = 2000;
+	private final static int STEPS = 200000;
+
+	public static void main(String args[]) {
+		int ns[] = { 16, 63, 64 };
+		for (int n : ns) {
+			for (TableType tableType : TableType.values()) {
+				checkSameAsLandscape(n, tableType);
+			}
+		}
+		checkWalk();
+		System.out.println("OK");
+	}
+
+	/**
+	 * Return an influence matrix of the given N and K, in which each element
+	 * depends on the next K elements in cyclic order.
+	 */
+	private static InfluenceMatrix createInf(int n, int k) {
+		int matrix[][] = new int[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= k; j++) {
+				matrix[i][(i + j) % n] = 1;
+			}
+		}
+		return new InfluenceMatrix(matrix);
+	}
+
+	/**
+	 * Return the long location id of the given location of at most 64
+	 * elements, where element i is bit N-1-i.
+	 */
+	private static long toLocId(WideLocation location) {
+		int n = location.getN();
+		long result = 0L;
+		for (int i = 0; i < n; i++) {
+			result |= (long) location.get(i) << (n - 1 - i);
+		}
+		return result;
+	}
+
+	/**
+	 * Build a landscape and a wide landscape of the given N and table type
+	 * from the same seed, and compare their fitness values of random
+	 * locations.
+	 */
+	private static void checkSameAsLandscape(int n, TableType tableType) {
+		String name = "N = " + n + ", " + tableType + " table";
+		InfluenceMatrix inf = createInf(n, K);
+		LandscapeSettings settings = new LandscapeSettings();
+		settings.setTableType(tableType);
+		Globals.setSeed(0);
+		WideLandscape wide = new WideLandscape(inf, settings);
+		Globals.setSeed(0);
+		Landscape landscape = new Landscape(inf, settings);
+
+		MersenneTwisterFast random = new MersenneTwisterFast(1);
+		WideLocation location = new WideLocation(n);
+		float contributions[] = new float[wide.getContributionsLength()];
+		for (int i = 0; i < SAMPLES; i++) {
+			location.randomize(random);
+			long locId = toLocId(location);
+			float expected = landscape.computeScore(locId);
+			if (wide.computeScore(location) != expected
+					|| wide.computeContributions(location, contributions) != expected) {
+				fail(name + ": location id " + locId + " scores "
+						+ wide.computeScore(location) + " instead of "
+						+ expected);
+			}
+		}
+	}
+
+	/**
+	 * Walk randomly on a landscape of WIDE_N elements and compare the
+	 * incremental fitness values with those computed from scratch.
+	 */
+	private static void checkWalk() {
+		String name = "N = " + WIDE_N + " walk";
+		InfluenceMatrix inf = createInf(WIDE_N, K);
+		Globals.setSeed(0);
+		WideLandscape wide = new WideLandscape(inf, new LandscapeSettings());
+
+		MersenneTwisterFast random = new MersenneTwisterFast(2);
+		WideLocation location = new WideLocation(WIDE_N);
+		location.randomize(random);
+		float contributions[] = new float[wide.getContributionsLength()];
+		wide.computeContributions(location, contributions);
+		float saved[] = new float[contributions.length];
+		int elements[] = new int[3];
+		for (int step = 0; step < STEPS; step++) {
+			int count = 1 + random.nextInt(elements.length);
+			for (int i = 0; i < count; i++) {
+				boolean isDistinct;
+				do {
+					elements[i] = random.nextInt(WIDE_N);
+					isDistinct = true;
+					for (int j = 0; j < i; j++) {
+						isDistinct &= (elements[j] != elements[i]);
+					}
+				} while (!isDistinct);
+			}
+			// every other step is undone, which must restore everything
+			boolean isUndone = (step % 2 == 1);
+			if (isUndone) {
+				System.arraycopy(contributions, 0, saved, 0, saved.length);
+			}
+			float score = wide.moveContributions(location, contributions,
+					elements, count);
+			if (score != wide.computeScore(location)) {
+				fail(name + ": step " + step + " scores " + score
+						+ " incrementally but " + wide.computeScore(location)
+						+ " from scratch");
+			}
+			if (isUndone) {
+				wide.moveContributions(location, contributions, elements,
+						count);
+				for (int i = 0; i < saved.length; i++) {
+					if (Float.floatToIntBits(contributions[i]) != Float
+							.floatToIntBits(saved[i])) {
+						fail(name + ": undoing step " + step
+								+ " did not restore contribution " + i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}
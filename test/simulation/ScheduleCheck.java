@@ -0,0 +1,229 @@
+package simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import landscape.InfluenceMatrix;
+import landscape.Landscape;
+import landscape.LandscapeSettings;
+import simulation.Simulator.ScheduleType;
+import simulation.Simulator.SimulatorType;
+import util.Globals;
+import agent.AgentPopulation;
+import agent.Innovator;
+import agent.Provider;
+import agent.ProviderIndex;
+
+/**
+ * ScheduleCheck checks that scheduling by events gives the same output as
+ * visiting every agent in every round, for every strategy and several runs.
+ * The output of EVENT must be the output of EVERY without the lines of
+ * idle agents, i.e. lines that only repeat the agent's previous line with the
+ * next time stamp, followed by one final line of every parked agent, which
+ * must be the last line of that agent under EVERY. It prints "ERROR : ..."
+ * and exits with 1 on the first failure, and "OK" otherwise.
+ *
+ * Usage: java -cp classes simulation.ScheduleCheck
+ */
+public class ScheduleCheck {
+	private final static int N = 12;
+	private final static int K = 3;
+	private final static int RUNS = 3;
+
+	private static InfluenceMatrix inf;
+
+	public static void main(String args[]) throws IOException {
+		int matrix[][] = new int[N][N];
+		for (int i = 0; i < N; i++) {
+			for (int j = 0; j <= K; j++) {
+				matrix[i][(i + j) % N] = 1;
+			}
+		}
+		inf = new InfluenceMatrix(matrix);
+		ArrayList<Innovator> innovators = new ArrayList<Innovator>();
+		for (int i = 0; i < 40; i++) {
+			innovators.add(i % 2 == 0 ? new Innovator(1, 5, 2) : new Innovator(
+					2, 4, 2));
+			innovators.get(i).setId(i);
+		}
+		ArrayList<Provider> providers = new ArrayList<Provider>();
+		for (int i = 0; i < 20; i++) {
+			providers.add(i % 2 == 0 ? new Provider(1, 5) : new Provider(2, 4));
+			providers.get(i).setId(i);
+		}
+		Globals.innovatorList = innovators;
+		Globals.providerList = providers;
+		Globals.innovators = new AgentPopulation(innovators);
+		Globals.providers = new AgentPopulation(providers);
+		for (SimulatorType type : SimulatorType.values()) {
+			for (int run = 0; run < RUNS; run++) {
+				List<String> every = simulate(type, run, ScheduleType.EVERY);
+				List<String> event = simulate(type, run, ScheduleType.EVENT);
+				compare(type + " run " + run, every, event);
+			}
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Simulate the given strategy in the given run with the given schedule
+	 * type, as Main does, and return the lines of its output.
+	 */
+	private static List<String> simulate(SimulatorType type, int run,
+			ScheduleType scheduleType) throws IOException {
+		Globals.setSeed(run);
+		Globals.ldscp = new Landscape(inf, new LandscapeSettings());
+		for (Innovator innovator : Globals.innovatorList) {
+			innovator.reset();
+		}
+		for (Provider provider : Globals.providerList) {
+			provider.reset();
+		}
+		Globals.providerIndex = new ProviderIndex(Globals.providers);
+		final File file = File.createTempFile("schedule", ".txt");
+		Simulator s = null;
+		switch (type) {
+		case CLOSED:
+			s = new ClosedInnovation() {
+				@Override
+				public String constructOutputFileName() {
+					return file.getPath();
+				}
+			};
+			break;
+		case LICENSING:
+			s = new LicensingSearch() {
+				@Override
+				public String constructOutputFileName() {
+					return file.getPath();
+				}
+			};
+			break;
+		case OUTSOURCING:
+			s = new Outsourcing() {
+				@Override
+				public String constructOutputFileName() {
+					return file.getPath();
+				}
+			};
+			break;
+		case ALLIANCE_MAX:
+		case ALLIANCE_MIN:
+			s = new Alliance(type == SimulatorType.ALLIANCE_MAX) {
+				@Override
+				public String constructOutputFileName() {
+					return file.getPath();
+				}
+			};
+			break;
+		}
+		s.setScheduleType(scheduleType);
+		s.startSimulation();
+		List<String> result = Files.readAllLines(file.toPath());
+		file.delete();
+		return result;
+	}
+
+	/**
+	 * Compare the output of EVERY with the output of EVENT: the lines of EVENT
+	 * must be found in the same order in EVERY, and the lines of EVERY, which
+	 * are skipped, must be idle lines or the last line of an agent, which
+	 * must come at the end of EVENT instead.
+	 */
+	private static void compare(String name, List<String> every,
+			List<String> event) {
+		// the last line and whether each line is idle, for each agent
+		HashMap<String, String> lastLines = new HashMap<String, String>();
+		boolean isIdle[] = new boolean[every.size()];
+		for (int i = 0; i < every.size(); i++) {
+			String line = every.get(i);
+			String previous = lastLines.get(getAgentKey(line));
+			if (previous == null) {
+				// an agent, which waits from the start, e.g. a provider of
+				// outsourcing before all innovators have finished M
+				isIdle[i] = getFields(line)[5].equals("null")
+						&& getTimestamp(line) == 1;
+			} else {
+				isIdle[i] = getBody(line).equals(getBody(previous))
+						&& getTimestamp(line) == getTimestamp(previous) + 1;
+			}
+			lastLines.put(getAgentKey(line), line);
+		}
+		HashSet<String> finalLines = new HashSet<String>();
+		int j = 0;
+		for (String line : event) {
+			while (j < every.size() && !every.get(j).equals(line)) {
+				checkSkipped(name, every.get(j), isIdle[j], lastLines);
+				j++;
+			}
+			if (j < every.size()) {
+				j++;
+			} else if (line.equals(lastLines.get(getAgentKey(line)))) {
+				finalLines.add(line);
+			} else {
+				fail(name + ": event line '" + line
+						+ "' is neither in the every output nor the last line of its agent");
+			}
+		}
+		for (; j < every.size(); j++) {
+			checkSkipped(name, every.get(j), isIdle[j], lastLines);
+		}
+		HashSet<String> eventLines = new HashSet<String>(event);
+		for (String line : lastLines.values()) {
+			if (!eventLines.contains(line)) {
+				fail(name + ": last line '" + line + "' is missing in event");
+			}
+		}
+	}
+
+	/**
+	 * Fail unless the given line of EVERY, which is not in EVENT at its
+	 * place, is idle or the last line of its agent.
+	 */
+	private static void checkSkipped(String name, String line, boolean isIdle,
+			HashMap<String, String> lastLines) {
+		if (!isIdle && !line.equals(lastLines.get(getAgentKey(line)))) {
+			fail(name + ": line '" + line + "' is missing in event");
+		}
+	}
+
+	/**
+	 * Return the fields of the given output line: SEED, TIMESTAMP,
+	 * AGENT_TYPE, AGENT_ID, AGENT_POWER, AGENT_STAGE, PERFORMANCE,
+	 * AGENT_PARTNER.
+	 */
+	private static String[] getFields(String line) {
+		return line.split("\t");
+	}
+
+	private static String getAgentKey(String line) {
+		String fields[] = getFields(line);
+		return fields[0] + "\t" + fields[2] + "\t" + fields[3];
+	}
+
+	private static long getTimestamp(String line) {
+		return Long.parseLong(getFields(line)[1]);
+	}
+
+	/**
+	 * Return the given output line without its time stamp and its partners.
+	 */
+	private static String getBody(String line) {
+		String fields[] = getFields(line);
+		return fields[0] + "\t" + fields[2] + "\t" + fields[3] + "\t"
+				+ fields[4] + "\t" + fields[5] + "\t" + fields[6];
+	}
+
+	/**
+	 * Print the given error message and exit with 1.
+	 */
+	private static void fail(String message) {
+		System.out.println("ERROR : " + message);
+		System.exit(1);
+	}
+}